@@ -1,5 +1,13 @@
 package com.TabuSearch;
 
 public enum MovesType {
-	SWAP
+	SWAP,
+	CANDIDATE_LIST,
+	TWO_OPT_STAR,
+	OR_OPT,
+	EXCHANGE,
+	CROSS_EXCHANGE,
+	GRANULAR,
+	ADAPTIVE,
+	EJECTION_CHAIN
 }
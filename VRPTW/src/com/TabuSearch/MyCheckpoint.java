@@ -0,0 +1,274 @@
+package com.TabuSearch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.coinor.opents.MultiThreadedTabuSearch;
+import org.coinor.opents.Solution;
+
+import com.mdvrp.Cost;
+import com.mdvrp.Customer;
+import com.mdvrp.Instance;
+import com.mdvrp.MyLogger;
+import com.mdvrp.Route;
+
+/**
+ * Checkpoint of a search: the state of the search at the end of an iteration
+ * (current and best solutions, penalty parameters, tabu list, frequency memory,
+ * iteration counters and random generators) is saved to a compact binary file,
+ * so that a search resumed from it goes on exactly as it would have without stopping.
+ * The state is saved every interval iterations and when the search stops; it is
+ * written to a temporary file which then replaces the checkpoint, so a checkpoint
+ * interrupted while writing leaves the previous one intact.
+ */
+public class MyCheckpoint {
+
+	private static String class_name = MyCheckpoint.class.getName();
+	private static MyLogger MyLog = new MyLogger(class_name);
+
+	private static final int MAGIC = 0x56525054;		// "VRPT"
+	private static final int VERSION = 3;
+	private static final long SHUTDOWN_TIMEOUT = 10000;	// milliseconds to wait for the final checkpoint
+
+	private MySearchProgram program;
+	private File file;
+	private int interval;		// iterations between two checkpoints (0 = only when the search stops)
+
+	/**
+	 * @param program the search to save
+	 * @param fileName the checkpoint file
+	 * @param interval the iterations between two checkpoints, 0 to save only when the search stops
+	 */
+	public MyCheckpoint(MySearchProgram program, String fileName, int interval) {
+		this.program = program;
+		this.file = new File(fileName);
+		this.interval = interval;
+	}
+
+	/**
+	 * Save the state if a checkpoint is due; called by the search at the end of each iteration
+	 * @param iterationsCompleted the iterations completed, the current one included
+	 */
+	public void iterationDone(int iterationsCompleted) {
+		if (interval > 0 && iterationsCompleted % interval == 0)
+			save(iterationsCompleted);
+	}
+
+	/**
+	 * Save the state of the search; an error is logged and the search goes on
+	 * @param iterationsCompleted the iterations completed, the current one included
+	 */
+	public void save(int iterationsCompleted) {
+		File temp = new File(file.getPath() + ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				writeHeader(out);
+				program.write(out, iterationsCompleted);
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			MyLog.err(class_name, "save", "checkpoint of iteration " + iterationsCompleted + " not saved: " + e.getMessage());
+			return;
+		}
+		MyLog.info(class_name, "save", "checkpoint of iteration " + iterationsCompleted + " saved to " + file);
+	}
+
+	/**
+	 * Restore the state of a search saved by a checkpoint; the search must have been
+	 * created on the same instance with the same parameters, and the state is restored
+	 * before it starts
+	 * @param program the search
+	 * @param fileName the checkpoint file
+	 * @throws IOException if the file can not be read or it is not a checkpoint of the instance
+	 */
+	public static void restore(MySearchProgram program, String fileName) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+			readHeader(in, fileName);
+			program.read(in);
+		}
+		MyLog.info(class_name, "restore", "search resumed from " + fileName + " after " + program.getTabuSearch().getIterationsCompleted() + " iterations");
+	}
+
+	/**
+	 * On termination of the virtual machine, e.g. on SIGTERM, stop the search
+	 * and wait for it to save its final checkpoint
+	 */
+	public void addShutdownHook() {
+		Runtime.getRuntime().addShutdownHook(new Thread("checkpoint") {
+			@Override
+			public void run() {
+				MultiThreadedTabuSearch tabuSearch = program.getTabuSearch();
+				Future<Solution> solver = tabuSearch.getSolverFuture();
+				if (solver == null || solver.isDone())
+					return;
+				tabuSearch.stopSolving();
+				try {
+					solver.get(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException | ExecutionException | TimeoutException e) {
+					MyLog.err(class_name, "addShutdownHook", "the search did not stop: " + e);
+				}
+			}
+		});
+	}
+
+	// the checkpoint is bound to the instance it was taken on
+	private static void writeHeader(DataOutput out) throws IOException {
+		Instance instance = MyTSsolution.getInstance();
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(instance.getDepotsNr());
+		out.writeInt(instance.getVehiclesNr());
+		out.writeInt(instance.getCustomersNr());
+	}
+
+	private static void readHeader(DataInput in, String fileName) throws IOException {
+		Instance instance = MyTSsolution.getInstance();
+		if (in.readInt() != MAGIC || in.readInt() != VERSION)
+			throw new IOException(fileName + " is not a checkpoint");
+		if (in.readInt() != instance.getDepotsNr() || in.readInt() != instance.getVehiclesNr() || in.readInt() != instance.getCustomersNr())
+			throw new IOException(fileName + " is a checkpoint of another instance");
+	}
+
+	/**
+	 * Write the routes with their customers and costs
+	 * @param out
+	 * @param routes
+	 * @throws IOException
+	 */
+	static void writeRoutes(DataOutput out, Route[][] routes) throws IOException {
+		for (int i = 0; i < routes.length; ++i)
+			for (int j = 0; j < routes[i].length; ++j) {
+				Route route = routes[i][j];
+				out.writeInt(route.getIndex());
+				writeCost(out, route.getCost());
+				out.writeInt(route.getCustomersLength());
+				for (int k = 0; k < route.getCustomersLength(); ++k) {
+					Customer customer = route.getCustomer(k);
+					out.writeInt(customer.getNumber());
+					out.writeDouble(customer.getArriveTime());
+					out.writeDouble(customer.getWaitingTime());
+					out.writeDouble(customer.getTwViol());
+				}
+			}
+	}
+
+	/**
+	 * Read new routes written by writeRoutes()
+	 * @param in
+	 * @param layout routes giving the depot and the vehicle of each new route
+	 * @return the routes
+	 * @throws IOException
+	 */
+	static Route[][] readRoutes(DataInput in, Route[][] layout) throws IOException {
+		Instance instance = MyTSsolution.getInstance();
+		Route[][] routes = new Route[layout.length][];
+		for (int i = 0; i < layout.length; ++i) {
+			routes[i] = new Route[layout[i].length];
+			for (int j = 0; j < layout[i].length; ++j) {
+				Route route = new Route();
+				route.setIndex(in.readInt());
+				route.setDepot(layout[i][j].getDepot());
+				route.setAssignedVehicle(layout[i][j].getAssignedVehicle());
+				route.setCost(readCost(in));
+				int customersNr = in.readInt();
+				for (int k = 0; k < customersNr; ++k) {
+					Customer customer = new Customer(instance.getCustomerByNumID(in.readInt()));
+					customer.setArriveTime(in.readDouble());
+					customer.setWaitingTime(in.readDouble());
+					customer.setTwViol(in.readDouble());
+					route.addCustomer(customer);
+				}
+				routes[i][j] = route;
+			}
+		}
+		return routes;
+	}
+
+	/**
+	 * Write all the components of the cost
+	 * @param out
+	 * @param cost
+	 * @throws IOException
+	 */
+	static void writeCost(DataOutput out, Cost cost) throws IOException {
+		out.writeDouble(cost.total);
+		out.writeDouble(cost.travelTime);
+		out.writeDouble(cost.load);
+		out.writeDouble(cost.serviceTime);
+		out.writeDouble(cost.waitingTime);
+		out.writeDouble(cost.loadViol);
+		out.writeDouble(cost.durationViol);
+		out.writeDouble(cost.twViol);
+		out.writeDouble(cost.returnToDepotTime);
+		out.writeDouble(cost.depotTwViol);
+	}
+
+	/**
+	 * @param in
+	 * @return a new cost written by writeCost()
+	 * @throws IOException
+	 */
+	static Cost readCost(DataInput in) throws IOException {
+		Cost cost = new Cost();
+		cost.total             = in.readDouble();
+		cost.travelTime        = in.readDouble();
+		cost.load              = in.readDouble();
+		cost.serviceTime       = in.readDouble();
+		cost.waitingTime       = in.readDouble();
+		cost.loadViol          = in.readDouble();
+		cost.durationViol      = in.readDouble();
+		cost.twViol            = in.readDouble();
+		cost.returnToDepotTime = in.readDouble();
+		cost.depotTwViol       = in.readDouble();
+		return cost;
+	}
+
+	/**
+	 * Write the state of the random generator, so that it goes on with the same sequence
+	 * @param out
+	 * @param random
+	 * @throws IOException
+	 */
+	static void writeRandom(DataOutput out, Random random) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+			objects.writeObject(random);
+		}
+		out.writeInt(bytes.size());
+		out.write(bytes.toByteArray());
+	}
+
+	/**
+	 * @param in
+	 * @return a new random generator written by writeRandom()
+	 * @throws IOException
+	 */
+	static Random readRandom(DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return (Random)objects.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.TabuSearch;
+
+import com.mdvrp.Instance;
+
+/**
+ * CROSS-exchange move: exchange segments of consecutive customers of bounded length
+ * between two routes, keeping their orientation. It makes the same change as the
+ * exchange move, for longer segments, and it is evaluated from the aggregates of the
+ * routes: only the customers of the segments are walked, not the rest of the routes.
+ */
+@SuppressWarnings("serial")
+public class MyCrossExchangeMove extends MyExchangeMove {
+
+	/**
+	 * @param instance
+	 * @param solution the solution the move is made on
+	 * @param firstDepotNr
+	 * @param firstRouteNr
+	 * @param firstPosition the first customer of the segment of the first route
+	 * @param firstLength the customers of the segment of the first route
+	 * @param secondDepotNr
+	 * @param secondRouteNr
+	 * @param secondPosition the first customer of the segment of the second route
+	 * @param secondLength the customers of the segment of the second route
+	 */
+	public MyCrossExchangeMove(Instance instance, MyTSsolution solution, int firstDepotNr, int firstRouteNr, int firstPosition, int firstLength,
+			int secondDepotNr, int secondRouteNr, int secondPosition, int secondLength)
+	{
+		super(instance, solution, firstDepotNr, firstRouteNr, firstPosition, firstLength, secondDepotNr, secondRouteNr, secondPosition, secondLength);
+	}   // end constructor
+
+	/**
+	 * This function returns a string containing the move information in readable format
+	 */
+	public String toString() {
+		return super.toString().replaceFirst("Exchange", "CROSS-exchange");
+	}
+}   // end class MyCrossExchangeMove
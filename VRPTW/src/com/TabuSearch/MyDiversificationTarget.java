@@ -0,0 +1,16 @@
+package com.TabuSearch;
+
+/**
+ * Chooses where the customers relocated by MySearchProgram.diversify() go.
+ */
+public interface MyDiversificationTarget {
+
+	/**
+	 * @param sol the current solution
+	 * @param depotNr
+	 * @param routeNr
+	 * @param position the position of the customer to relocate
+	 * @return the move relocating the customer to a different route, null if there is none
+	 */
+	MySwapMove relocation(MyTSsolution sol, int depotNr, int routeNr, int position);
+}
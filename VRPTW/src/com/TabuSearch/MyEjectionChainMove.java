@@ -0,0 +1,297 @@
+package com.TabuSearch;
+
+import java.util.ArrayList;
+
+import org.coinor.opents.*;
+
+import com.mdvrp.Cost;
+import com.mdvrp.Customer;
+import com.mdvrp.Instance;
+import com.mdvrp.Route;
+
+/**
+ * Ejection chain move: a customer leaves its route and takes the place of a customer
+ * of another route, which takes the place of a customer of a third route, and so on
+ * up to the ejection depth; the last customer ejected is inserted in a route without
+ * ejecting anyone. Each route is changed at most once, so a full route can take a
+ * customer in the same step it gives one away.
+ * The move is the root of the chains: the first customer and the customer it ejects
+ * are given, the rest of the chain is the best one found by the objective function
+ * over the graph of the candidate ejections, where a customer can only take the place
+ * of one of its nearest neighbors or be inserted next to one of them; the chains
+ * adding load or time window violations to a route are pruned, see
+ * RouteAggregates.admits(). The moves of different roots are evaluated in parallel.
+ * The tabu attributes are those of the swap move of the first customer to the route
+ * of the customer it ejects.
+ */
+@SuppressWarnings("serial")
+public class MyEjectionChainMove implements KeyedComplexMove {
+	private Instance instance;
+	private int customerNr;				// first customer of the chain
+	// where each customer is, shared by the moves of an iteration
+	private int[] depotOf;
+	private int[] routeOf;
+	private int[] positionOf;
+	// chain: the route left by the first customer, the routes of the customers ejected,
+	// the route the last customer is inserted in; set by the objective function
+	private int ejections;				// customers ejected, 0 if no chain has been found
+	private int[] depots;
+	private int[] routes;
+	private int[] positions;			// position of the customer left or ejected, of the insertion for the last route
+	// chain being built by the objective function
+	private int[] trialDepots;
+	private int[] trialRoutes;
+	private int[] trialPositions;
+
+	/**
+	 * @param instance
+	 * @param solution the solution the move is made on
+	 * @param depotNr
+	 * @param routeNr
+	 * @param position the position of the first customer of the chain
+	 * @param ejectDepotNr
+	 * @param ejectRouteNr
+	 * @param ejectPosition the position of the customer it ejects
+	 * @param depotOf the depot of each customer
+	 * @param routeOf the route of each customer
+	 * @param positionOf the position of each customer in its route
+	 */
+	public MyEjectionChainMove(Instance instance, MyTSsolution solution, int depotNr, int routeNr, int position,
+			int ejectDepotNr, int ejectRouteNr, int ejectPosition, int[] depotOf, int[] routeOf, int[] positionOf)
+	{
+		int length = instance.getParameters().getEjectionDepth() + 2;
+		this.instance       = instance;
+		this.customerNr     = solution.getRoute(depotNr, routeNr).getCustomerNr(position);
+		this.depotOf        = depotOf;
+		this.routeOf        = routeOf;
+		this.positionOf     = positionOf;
+		this.depots         = new int[length];
+		this.routes         = new int[length];
+		this.positions      = new int[length];
+		this.trialDepots    = new int[length];
+		this.trialRoutes    = new int[length];
+		this.trialPositions = new int[length];
+		setTrial(0, depotNr, routeNr, position);
+		setTrial(1, ejectDepotNr, ejectRouteNr, ejectPosition);
+	}   // end constructor
+
+	/**
+	 * Make the chain and evaluate the routes from scratch;
+	 * nothing is done if no chain has been found
+	 * @param solution
+	 */
+	public void operateOn( Solution solution )
+	{
+		if (ejections == 0)
+			return;
+		MyTSsolution sol = (MyTSsolution)solution;
+		Route[] chain = new Route[ejections + 2];
+		Cost[] initialCosts = new Cost[chain.length];
+		long variation = 0;
+		for (int k = 0; k < chain.length; ++k) {
+			chain[k] = sol.getRoute(depots[k], routes[k]);
+			// the routes may share their customers with snapshots of the solution
+			chain[k].copyOnWrite();
+			initialCosts[k] = new Cost(chain[k].getCost());
+			variation ^= routeHash(chain[k]);
+		}
+
+		ArrayList<Customer> customers = new ArrayList<>(chain[0].getCustomers());
+		Customer moving = customers.remove(positions[0]);
+		chain[0].setCustomers(customers);
+		for (int k = 1; k <= ejections; ++k) {
+			customers = new ArrayList<>(chain[k].getCustomers());
+			moving = customers.set(positions[k], moving);
+			chain[k].setCustomers(customers);
+		}
+		customers = new ArrayList<>(chain[ejections + 1].getCustomers());
+		customers.add(positions[ejections + 1], moving);
+		chain[ejections + 1].setCustomers(customers);
+
+		for (int k = 0; k < chain.length; ++k) {
+			MyObjectiveFunction.evaluateRoute(chain[k]);
+			variation ^= routeHash(chain[k]);
+		}
+		sol.xorHash(variation);
+		evaluateTotalCostVariation(sol, chain, initialCosts);
+		sol.incrementBs(this);
+	}   // end operateOn
+
+	/**
+	 * @param route
+	 * @return the xor of the hashes of the arcs of the route
+	 */
+	private static long routeHash(Route route) {
+		long hash = 0;
+		int previous = route.getDepotNr();
+		for (int k = 0; k < route.getCustomersLength(); ++k) {
+			hash ^= MyTSsolution.arcHash(previous, route.getCustomerNr(k));
+			previous = route.getCustomerNr(k);
+		}
+		return hash ^ MyTSsolution.arcHash(previous, route.getDepotNr());
+	}
+
+	private void evaluateTotalCostVariation(MyTSsolution sol, Route[] chain, Cost[] initialCosts)
+	{
+		for (int k = 0; k < chain.length; ++k) {
+			sol.addTravelTime( - initialCosts[k].travelTime + chain[k].getCost().travelTime);
+			sol.addServiceTime( - initialCosts[k].serviceTime + chain[k].getCost().serviceTime);
+			sol.addWaitingTime( - initialCosts[k].waitingTime + chain[k].getCost().waitingTime);
+			sol.getCost().loadViol += - initialCosts[k].loadViol + chain[k].getCost().loadViol;
+			sol.getCost().durationViol += - initialCosts[k].durationViol + chain[k].getCost().durationViol;
+			sol.getCost().twViol += - initialCosts[k].twViol + chain[k].getCost().twViol;
+		}
+
+		sol.getCost().waitingTime = Math.abs(sol.getCost().waitingTime) < instance.getPrecision() ? 0 : sol.getCost().waitingTime;
+		sol.getCost().loadViol = Math.abs(sol.getCost().loadViol) < instance.getPrecision() ? 0 : sol.getCost().loadViol;
+		sol.getCost().durationViol = Math.abs(sol.getCost().durationViol) < instance.getPrecision() ? 0 : sol.getCost().durationViol;
+		sol.getCost().twViol = Math.abs(sol.getCost().twViol) < instance.getPrecision() ? 0 : sol.getCost().twViol;
+
+		sol.getCost().calculateTotal(sol.getAlpha(), sol.getBeta(), sol.getGamma());
+	}
+
+	/**
+	 * Set a link of the chain being built
+	 * @param k the link: 0 for the route left by the first customer, then the routes of the customers ejected
+	 * @param depotNr
+	 * @param routeNr
+	 * @param position
+	 */
+	void setTrial(int k, int depotNr, int routeNr, int position) {
+		trialDepots[k] = depotNr;
+		trialRoutes[k] = routeNr;
+		trialPositions[k] = position;
+	}
+
+	/**
+	 * @param k the number of links of the chain being built
+	 * @param depotNr
+	 * @param routeNr
+	 * @return true if the route is already changed by one of the first k links
+	 */
+	boolean isTrialRoute(int k, int depotNr, int routeNr) {
+		for (int i = 0; i < k; ++i)
+			if (trialDepots[i] == depotNr && trialRoutes[i] == routeNr)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Make the chain being built, with the last customer inserted in the given route,
+	 * the chain of the move
+	 * @param ejections the customers ejected by the chain being built
+	 * @param depotNr
+	 * @param routeNr
+	 * @param position the position of the insertion of the last customer
+	 */
+	void setChain(int ejections, int depotNr, int routeNr, int position) {
+		this.ejections = ejections;
+		System.arraycopy(trialDepots, 0, depots, 0, ejections + 1);
+		System.arraycopy(trialRoutes, 0, routes, 0, ejections + 1);
+		System.arraycopy(trialPositions, 0, positions, 0, ejections + 1);
+		depots[ejections + 1] = depotNr;
+		routes[ejections + 1] = routeNr;
+		positions[ejections + 1] = position;
+	}
+
+	/**
+	 * Forget the chain found, before the move is evaluated again
+	 */
+	void clearChain() {
+		ejections = 0;
+	}
+
+	@Override
+	public int[] attributesDelete() {
+		return new int[]{ trialDepots[0], trialRoutes[0], customerNr, 0, 0};
+	}
+
+	@Override
+	public int[] attributesInsert() {
+		return new int[]{ trialDepots[1], trialRoutes[1], customerNr, 0, 0};
+	}
+
+	@Override
+	public long deleteKey() {
+		return MySwapMove.key(instance, trialDepots[0], trialRoutes[0], customerNr);
+	}
+
+	@Override
+	public long insertKey() {
+		return MySwapMove.key(instance, trialDepots[1], trialRoutes[1], customerNr);
+	}
+
+	/**
+	 * This function returns a string containing the move information in readable format
+	 */
+	public String toString() {
+		StringBuffer print = new StringBuffer();
+		print.append("--- Ejection chain " + ejections + " ---------------------------------");
+		print.append("\n" + "| Depot=" + trialDepots[0] + " Route=" + trialRoutes[0] + " Position=" + trialPositions[0]);
+		for (int k = 1; k <= ejections; ++k)
+			print.append("\n" + "| EjectDepot=" + depots[k] + " EjectRoute=" + routes[k] + " EjectPosition=" + positions[k]);
+		if (ejections > 0)
+			print.append("\n" + "| InsertDepot=" + depots[ejections + 1] + " InsertRoute=" + routes[ejections + 1] + " InsertPosition=" + positions[ejections + 1]);
+		print.append("\n" + "--------------------------------------------------");
+		return print.toString();
+	}
+
+	/**
+	 * @return the first customer of the chain
+	 */
+	public int getCustomerNr() {
+		return customerNr;
+	}
+
+	/**
+	 * @return the depot of each customer
+	 */
+	public int[] getDepotOf() {
+		return depotOf;
+	}
+
+	/**
+	 * @return the route of each customer
+	 */
+	public int[] getRouteOf() {
+		return routeOf;
+	}
+
+	/**
+	 * @return the position of each customer in its route
+	 */
+	public int[] getPositionOf() {
+		return positionOf;
+	}
+
+	/**
+	 * @return the customers ejected by the chain found, 0 if none has been found
+	 */
+	public int getEjections() {
+		return ejections;
+	}
+
+	/**
+	 * @param k a link of the chain being built
+	 * @return the depot of the route of the link
+	 */
+	public int getTrialDepotNr(int k) {
+		return trialDepots[k];
+	}
+
+	/**
+	 * @param k a link of the chain being built
+	 * @return the route of the link
+	 */
+	public int getTrialRouteNr(int k) {
+		return trialRoutes[k];
+	}
+
+	/**
+	 * @param k a link of the chain being built
+	 * @return the position of the customer left or ejected
+	 */
+	public int getTrialPosition(int k) {
+		return trialPositions[k];
+	}
+}   // end class MyEjectionChainMove
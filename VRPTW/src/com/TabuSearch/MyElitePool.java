@@ -0,0 +1,78 @@
+package com.TabuSearch;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.mdvrp.Cost;
+import com.mdvrp.Route;
+
+/**
+ * Elite pool shared by the islands of a cooperative multi-start search.
+ * It keeps the best feasible solution offered so far; the islands publish
+ * and read it without locking through a compare-and-set on an immutable entry.
+ */
+public class MyElitePool {
+
+	private final AtomicReference<Elite> best = new AtomicReference<>();
+
+	/**
+	 * Offer a feasible solution to the pool; it is kept if better than the current best.
+	 * The routes are not copied: they must not be modified after the offer.
+	 * @param routes
+	 * @param cost
+	 * @param island the index of the island offering the solution
+	 * @return true if the solution became the best of the pool
+	 */
+	public boolean offer(Route[][] routes, Cost cost, int island) {
+		Elite candidate = new Elite(routes, cost, island);
+		Elite current;
+		do {
+			current = best.get();
+			if (current != null && current.cost.total <= cost.total)
+				return false;
+		} while (!best.compareAndSet(current, candidate));
+		return true;
+	}
+
+	/**
+	 * @return the best solution of the pool, null if none has been offered yet
+	 */
+	public Elite getBest() {
+		return best.get();
+	}
+
+	/**
+	 * Immutable entry of the pool
+	 */
+	public static final class Elite {
+		private final Route[][] routes;
+		private final Cost cost;
+		private final int island;
+
+		private Elite(Route[][] routes, Cost cost, int island) {
+			this.routes = routes;
+			this.cost = cost;
+			this.island = island;
+		}
+
+		/**
+		 * @return the routes, to be copied before being modified
+		 */
+		public Route[][] getRoutes() {
+			return routes;
+		}
+
+		/**
+		 * @return the cost
+		 */
+		public Cost getCost() {
+			return cost;
+		}
+
+		/**
+		 * @return the island that offered the solution
+		 */
+		public int getIsland() {
+			return island;
+		}
+	}
+}
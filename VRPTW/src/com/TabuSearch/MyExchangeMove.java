@@ -0,0 +1,241 @@
+package com.TabuSearch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.coinor.opents.*;
+
+import com.mdvrp.Cost;
+import com.mdvrp.Customer;
+import com.mdvrp.Instance;
+import com.mdvrp.Route;
+
+/**
+ * λ-interchange move: exchange a segment of consecutive customers of a route with
+ * a segment of another route, each segment taking the place of the other one.
+ * With segments of one customer it is the 1-1 interchange, with segments of one and
+ * two customers the 2-1 interchange. Unlike two swap moves it keeps the loads of
+ * both routes close, so it can exchange customers between full routes.
+ * The tabu attributes are those of the swap move of the first customer of the
+ * first segment to the second route; the move is immutable, so the moves can be
+ * evaluated in parallel.
+ */
+@SuppressWarnings("serial")
+public class MyExchangeMove implements KeyedComplexMove {
+	private Instance instance;
+	private int firstDepotNr;
+	private int firstRouteNr;
+	private int firstPosition;		// first customer of the segment of the first route
+	private int firstLength;		// customers of the segment of the first route
+	private int secondDepotNr;
+	private int secondRouteNr;
+	private int secondPosition;
+	private int secondLength;
+	private int customerNr;			// first customer of the segment of the first route
+
+	/**
+	 * @param instance
+	 * @param solution the solution the move is made on
+	 * @param firstDepotNr
+	 * @param firstRouteNr
+	 * @param firstPosition the first customer of the segment of the first route
+	 * @param firstLength the customers of the segment of the first route
+	 * @param secondDepotNr
+	 * @param secondRouteNr
+	 * @param secondPosition the first customer of the segment of the second route
+	 * @param secondLength the customers of the segment of the second route
+	 */
+	public MyExchangeMove(Instance instance, MyTSsolution solution, int firstDepotNr, int firstRouteNr, int firstPosition, int firstLength,
+			int secondDepotNr, int secondRouteNr, int secondPosition, int secondLength)
+	{
+		this.instance       = instance;
+		this.firstDepotNr   = firstDepotNr;
+		this.firstRouteNr   = firstRouteNr;
+		this.firstPosition  = firstPosition;
+		this.firstLength    = firstLength;
+		this.secondDepotNr  = secondDepotNr;
+		this.secondRouteNr  = secondRouteNr;
+		this.secondPosition = secondPosition;
+		this.secondLength   = secondLength;
+		this.customerNr     = solution.getRoute(firstDepotNr, firstRouteNr).getCustomerNr(firstPosition);
+	}   // end constructor
+
+	/**
+	 * Exchange the segments and evaluate the routes from scratch
+	 * @param solution
+	 */
+	public void operateOn( Solution solution )
+	{
+		MyTSsolution sol = (MyTSsolution)solution;
+		Route first = sol.getRoute(firstDepotNr, firstRouteNr);
+		Route second = sol.getRoute(secondDepotNr, secondRouteNr);
+		// the routes may share their customers with snapshots of the solution
+		first.copyOnWrite();
+		second.copyOnWrite();
+		Cost initialFirstCost = new Cost(first.getCost());
+		Cost initialSecondCost = new Cost(second.getCost());
+		sol.xorHash(hashVariation(first, firstPosition, firstLength, second, secondPosition, secondLength)
+				^ hashVariation(second, secondPosition, secondLength, first, firstPosition, firstLength));
+
+		ArrayList<Customer> firstCustomers = new ArrayList<>(first.getCustomers());
+		ArrayList<Customer> secondCustomers = new ArrayList<>(second.getCustomers());
+		List<Customer> firstSegment = firstCustomers.subList(firstPosition, firstPosition + firstLength);
+		List<Customer> secondSegment = secondCustomers.subList(secondPosition, secondPosition + secondLength);
+		List<Customer> moved = new ArrayList<>(firstSegment);
+		firstSegment.clear();
+		firstSegment.addAll(secondSegment);
+		secondSegment.clear();
+		secondSegment.addAll(moved);
+		first.setCustomers(firstCustomers);
+		second.setCustomers(secondCustomers);
+		MyObjectiveFunction.evaluateRoute(first);
+		MyObjectiveFunction.evaluateRoute(second);
+
+		evaluateTotalCostVariation(sol, first, second, initialFirstCost, initialSecondCost);
+		sol.incrementBs(this);
+	}   // end operateOn
+
+	/**
+	 * Compute, before the move is made, the variation of the hash of a route:
+	 * the arcs through its segment are replaced by the arcs through the other segment
+	 * @param route
+	 * @param position the first customer of the segment of the route
+	 * @param length the customers of the segment of the route
+	 * @param other the route of the other segment
+	 * @param otherPosition
+	 * @param otherLength
+	 * @return the xor of the hashes of the arcs removed and added
+	 */
+	private static long hashVariation(Route route, int position, int length, Route other, int otherPosition, int otherLength) {
+		int before = node(route, position - 1);
+		int after = node(route, position + length);
+		long variation = MyTSsolution.arcHash(before, route.getCustomerNr(position))
+				^ MyTSsolution.arcHash(route.getCustomerNr(position + length - 1), after)
+				^ MyTSsolution.arcHash(before, other.getCustomerNr(otherPosition))
+				^ MyTSsolution.arcHash(other.getCustomerNr(otherPosition + otherLength - 1), after);
+		for (int k = position + 1; k < position + length; ++k)
+			variation ^= MyTSsolution.arcHash(route.getCustomerNr(k - 1), route.getCustomerNr(k));
+		for (int k = otherPosition + 1; k < otherPosition + otherLength; ++k)
+			variation ^= MyTSsolution.arcHash(other.getCustomerNr(k - 1), other.getCustomerNr(k));
+		return variation;
+	}
+
+	// number of the customer at the given position of the route, the depot outside the route
+	private static int node(Route route, int position) {
+		if (position < 0 || position >= route.getCustomersLength())
+			return route.getDepotNr();
+		return route.getCustomerNr(position);
+	}
+
+	private void evaluateTotalCostVariation(MyTSsolution sol, Route first, Route second,
+			Cost initialFirstCost, Cost initialSecondCost)
+	{
+		sol.addTravelTime( - initialFirstCost.travelTime - initialSecondCost.travelTime
+		                   + first.getCost().travelTime + second.getCost().travelTime);
+		sol.addServiceTime( - initialFirstCost.serviceTime - initialSecondCost.serviceTime
+		                    + first.getCost().serviceTime + second.getCost().serviceTime);
+		sol.addWaitingTime( - initialFirstCost.waitingTime - initialSecondCost.waitingTime
+		                    + first.getCost().waitingTime + second.getCost().waitingTime);
+		sol.getCost().loadViol += - initialFirstCost.loadViol - initialSecondCost.loadViol
+		                          + first.getCost().loadViol + second.getCost().loadViol;
+		sol.getCost().durationViol += - initialFirstCost.durationViol - initialSecondCost.durationViol
+		                              + first.getCost().durationViol + second.getCost().durationViol;
+		sol.getCost().twViol += - initialFirstCost.twViol - initialSecondCost.twViol
+		                        + first.getCost().twViol + second.getCost().twViol;
+
+		sol.getCost().waitingTime = Math.abs(sol.getCost().waitingTime) < instance.getPrecision() ? 0 : sol.getCost().waitingTime;
+		sol.getCost().loadViol = Math.abs(sol.getCost().loadViol) < instance.getPrecision() ? 0 : sol.getCost().loadViol;
+		sol.getCost().durationViol = Math.abs(sol.getCost().durationViol) < instance.getPrecision() ? 0 : sol.getCost().durationViol;
+		sol.getCost().twViol = Math.abs(sol.getCost().twViol) < instance.getPrecision() ? 0 : sol.getCost().twViol;
+
+		sol.getCost().calculateTotal(sol.getAlpha(), sol.getBeta(), sol.getGamma());
+	}
+
+	@Override
+	public int[] attributesDelete() {
+		return new int[]{ firstDepotNr, firstRouteNr, customerNr, 0, 0};
+	}
+
+	@Override
+	public int[] attributesInsert() {
+		return new int[]{ secondDepotNr, secondRouteNr, customerNr, 0, 0};
+	}
+
+	@Override
+	public long deleteKey() {
+		return MySwapMove.key(instance, firstDepotNr, firstRouteNr, customerNr);
+	}
+
+	@Override
+	public long insertKey() {
+		return MySwapMove.key(instance, secondDepotNr, secondRouteNr, customerNr);
+	}
+
+	/**
+	 * This function returns a string containing the move information in readable format
+	 */
+	public String toString() {
+		StringBuffer print = new StringBuffer();
+		print.append("--- Exchange " + firstLength + "-" + secondLength + " --------------------------------------");
+		print.append("\n" + "| FirstDepot=" + firstDepotNr + " FirstRoute=" + firstRouteNr + " FirstPosition=" + firstPosition);
+		print.append("\n" + "| SecondDepot=" + secondDepotNr + " SecondRoute=" + secondRouteNr + " SecondPosition=" + secondPosition);
+		print.append("\n" + "--------------------------------------------------");
+		return print.toString();
+	}
+
+	/**
+	 * @return the firstDepotNr
+	 */
+	public int getFirstDepotNr() {
+		return firstDepotNr;
+	}
+
+	/**
+	 * @return the firstRouteNr
+	 */
+	public int getFirstRouteNr() {
+		return firstRouteNr;
+	}
+
+	/**
+	 * @return the first customer of the segment of the first route
+	 */
+	public int getFirstPosition() {
+		return firstPosition;
+	}
+
+	/**
+	 * @return the customers of the segment of the first route
+	 */
+	public int getFirstLength() {
+		return firstLength;
+	}
+
+	/**
+	 * @return the secondDepotNr
+	 */
+	public int getSecondDepotNr() {
+		return secondDepotNr;
+	}
+
+	/**
+	 * @return the secondRouteNr
+	 */
+	public int getSecondRouteNr() {
+		return secondRouteNr;
+	}
+
+	/**
+	 * @return the first customer of the segment of the second route
+	 */
+	public int getSecondPosition() {
+		return secondPosition;
+	}
+
+	/**
+	 * @return the customers of the segment of the second route
+	 */
+	public int getSecondLength() {
+		return secondLength;
+	}
+}   // end class MyExchangeMove
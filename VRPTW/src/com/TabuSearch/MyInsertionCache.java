@@ -0,0 +1,169 @@
+package com.TabuSearch;
+
+import com.mdvrp.Instance;
+import com.mdvrp.Route;
+
+/**
+ * Cache of the insertions evaluated by the objective function: for each customer
+ * and route it keeps the travel time, load, duration and time window violations
+ * of the route with the customer inserted in each position. The violations are
+ * kept apart so that the entries stay valid when alpha, beta and gamma change;
+ * an entry is valid while the route has the version it was computed on, i.e. a
+ * move invalidates only the entries of the two routes it modifies.
+ * Each entry keeps also its dominant position, if any: an insertion without violations
+ * whose travel time is not above the ones of the insertions with violations. Whatever
+ * alpha, beta and gamma, it is the best insertion in the route, so the other positions
+ * need not be scanned.
+ * Threads may fill different entries at the same time, but an entry is filled and read by
+ * one thread at a time: the moves evaluated in the same iteration must not share an entry,
+ * i.e. there is at most one move for each customer and route.
+ */
+public class MyInsertionCache {
+
+	/**
+	 * Largest number of entries cached (one for each customer of each route)
+	 */
+	public static final long MAX_SIZE = 1L << 22;
+
+	private static final int COMPONENTS = 4;	// travel time, load, duration and time window violations
+
+	private int vehiclesNr;
+	private int customersNr;
+	private long[] versions;		// version of the route each entry was computed on, 0 if none
+	private int[] dominants;		// dominant position of each entry, -1 if none
+	private double[][] entries;		// the components of each insert position, one after the other
+
+	/**
+	 * @param instance
+	 */
+	public MyInsertionCache(Instance instance) {
+		vehiclesNr = instance.getVehiclesNr();
+		customersNr = instance.getCustomersNr();
+		int size = instance.getDepotsNr() * vehiclesNr * customersNr;
+		versions = new long[size];
+		dominants = new int[size];
+		entries = new double[size][];
+	}
+
+	/**
+	 * @param instance
+	 * @return true if the insertions of the instance are few enough to be cached
+	 */
+	public static boolean fits(Instance instance) {
+		return (long)instance.getDepotsNr() * instance.getVehiclesNr() * instance.getCustomersNr() <= MAX_SIZE;
+	}
+
+	/**
+	 * @param depot
+	 * @param route
+	 * @param customer
+	 * @return the entry of the insertions of the customer in the route
+	 */
+	public int entry(int depot, int route, int customer) {
+		return (depot * vehiclesNr + route) * customersNr + customer;
+	}
+
+	/**
+	 * @param entry
+	 * @param route the route the customer is inserted into
+	 * @return true if the entry has been computed on the current version of the route
+	 */
+	public boolean isValid(int entry, Route route) {
+		return versions[entry] == route.getVersion();
+	}
+
+	/**
+	 * Get the entry ready to be filled with the insertions in the current version of the route
+	 * @param entry
+	 * @param route
+	 */
+	public void reset(int entry, Route route) {
+		int length = (route.getCustomersLength() + 1) * COMPONENTS;
+		if (entries[entry] == null || entries[entry].length < length)
+			// leave room for the route to grow
+			entries[entry] = new double[length + 2 * COMPONENTS];
+		dominants[entry] = -1;
+		versions[entry] = route.getVersion();
+	}
+
+	/**
+	 * Store the cost of the insertion in a position
+	 * @param entry
+	 * @param position
+	 * @param travelTime
+	 * @param loadViol
+	 * @param durationViol
+	 * @param twViol
+	 */
+	public void set(int entry, int position, double travelTime, double loadViol, double durationViol, double twViol) {
+		double[] components = entries[entry];
+		int i = position * COMPONENTS;
+		components[i] = travelTime;
+		components[i + 1] = loadViol;
+		components[i + 2] = durationViol;
+		components[i + 3] = twViol;
+	}
+
+	/**
+	 * Find the dominant position of the entry, once all its positions are stored: the first
+	 * insertion without violations with the lowest travel time, if the insertions with
+	 * violations before it have a greater travel time and the ones after it not a lower one.
+	 * The penalized violations are positive, so the scan of all the positions would choose it
+	 * @param entry
+	 * @param positions the number of positions of the entry
+	 */
+	public void setDominant(int entry, int positions) {
+		double[] components = entries[entry];
+		int dominant = -1;
+		for (int i = 0; i < positions * COMPONENTS; i += COMPONENTS)
+			if (components[i + 1] == 0 && components[i + 2] == 0 && components[i + 3] == 0
+					&& (dominant < 0 || components[i] < components[dominant * COMPONENTS]))
+				dominant = i / COMPONENTS;
+		if (dominant >= 0) {
+			double travelTime = components[dominant * COMPONENTS];
+			for (int i = 0; i < positions * COMPONENTS; i += COMPONENTS)
+				if ((components[i + 1] > 0 || components[i + 2] > 0 || components[i + 3] > 0)
+						&& (i < dominant * COMPONENTS ? components[i] <= travelTime : components[i] < travelTime)) {
+					dominant = -1;
+					break;
+				}
+		}
+		dominants[entry] = dominant;
+	}
+
+	/**
+	 * @param entry
+	 * @return the dominant position of the entry, -1 if none
+	 */
+	public int getDominant(int entry) {
+		return dominants[entry];
+	}
+
+	/**
+	 * @return the travel time of the route with the insertion in the position
+	 */
+	public double getTravelTime(int entry, int position) {
+		return entries[entry][position * COMPONENTS];
+	}
+
+	/**
+	 * @return the load violation of the route with the insertion in the position
+	 */
+	public double getLoadViol(int entry, int position) {
+		return entries[entry][position * COMPONENTS + 1];
+	}
+
+	/**
+	 * @return the duration violation of the route with the insertion in the position
+	 */
+	public double getDurationViol(int entry, int position) {
+		return entries[entry][position * COMPONENTS + 2];
+	}
+
+	/**
+	 * @return the time window violation of the route with the insertion in the position
+	 */
+	public double getTwViol(int entry, int position) {
+		return entries[entry][position * COMPONENTS + 3];
+	}
+}
@@ -0,0 +1,83 @@
+package com.TabuSearch;
+
+import org.coinor.opents.TabuSearchEvent;
+import org.coinor.opents.TabuSearchListener;
+
+import com.TabuSearch.MyElitePool.Elite;
+import com.mdvrp.MyLogger;
+import com.mdvrp.Route;
+
+/**
+ * Connects an island of the cooperative multi-start search to the elite pool.
+ * Every exchangeInterval iterations the island offers its best feasible solution
+ * and, if it did not improve in the last exchangeInterval iterations, restarts
+ * from the best solution of the pool when this is better than its own.
+ * Everything runs in the thread of the island, the others are never stopped.
+ */
+@SuppressWarnings("serial")
+public class MyIslandListener implements TabuSearchListener {
+
+	private static String class_name = MyIslandListener.class.getName();
+	private static MyLogger MyLog = new MyLogger(class_name);
+
+	private MySearchProgram program;
+	private MyElitePool pool;
+	private int island;
+	private int exchangeInterval;
+	private Route[][] offeredRoutes;	// last routes offered to the pool
+	private int adoptionIndex;		// iteration of the last adoption from the pool
+
+	public MyIslandListener(MySearchProgram program, MyElitePool pool, int island, int exchangeInterval) {
+		this.program = program;
+		this.pool = pool;
+		this.island = island;
+		this.exchangeInterval = exchangeInterval;
+		this.adoptionIndex = -1;
+	}
+
+	/**
+	 * Exchange with the pool every exchangeInterval iterations
+	 */
+	@Override
+	public void newCurrentSolutionFound(TabuSearchEvent event) {
+		int iteration = program.getTabuSearch().getIterationsCompleted() + 1; // plus the current one
+		if (iteration % exchangeInterval != 0)
+			return;
+
+		// feasibleRoutes is replaced, never modified, when a better solution is found
+		if (program.feasibleCost.total != Double.POSITIVE_INFINITY && program.feasibleRoutes != offeredRoutes) {
+			offeredRoutes = program.feasibleRoutes;
+			pool.offer(program.feasibleRoutes, program.feasibleCost, island);
+		}
+
+		Elite elite = pool.getBest();
+		if (elite == null || elite.getIsland() == island
+				|| elite.getCost().total >= program.feasibleCost.total - program.instance.getPrecision())
+			return;
+		// adopt only if stagnating
+		if (iteration - Math.max(program.feasibleIndex, adoptionIndex) < exchangeInterval)
+			return;
+
+		program.restartFrom(elite.getRoutes());
+		adoptionIndex = iteration;
+		MyLog.info(class_name, "newCurrentSolutionFound", "island " + island + " at iteration " + iteration + " restarts from the solution of island " + elite.getIsland() + " with cost " + elite.getCost().total);
+	}
+
+	@Override
+	public void improvingMoveMade(TabuSearchEvent event) {}
+
+	@Override
+	public void newBestSolutionFound(TabuSearchEvent event) {}
+
+	@Override
+	public void noChangeInValueMoveMade(TabuSearchEvent event) {}
+
+	@Override
+	public void tabuSearchStarted(TabuSearchEvent event) {}
+
+	@Override
+	public void tabuSearchStopped(TabuSearchEvent event) {}
+
+	@Override
+	public void unimprovingMoveMade(TabuSearchEvent event) {}
+}
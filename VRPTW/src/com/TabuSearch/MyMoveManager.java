@@ -1,18 +1,99 @@
 package com.TabuSearch;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.coinor.opents.*;
 
+import com.mdvrp.Cost;
 import com.mdvrp.Customer;
 import com.mdvrp.Instance;
+import com.mdvrp.MyLogger;
+import com.mdvrp.Parameters;
 import com.mdvrp.Route;
 
+/**
+ * Generates the moves of each iteration.
+ * With CANDIDATE_LIST moves only a random sample of the swap moves is generated;
+ * if the sample is adaptive the manager listens to the search and grows the sample
+ * when the search stagnates, shrinking it when new best solutions are found.
+ * With TWO_OPT_STAR moves the swap moves are interleaved with the 2-opt* moves,
+ * with OR_OPT moves with the moves relocating chains of customers inside their route,
+ * with EXCHANGE moves with the moves exchanging customers between two routes,
+ * with CROSS_EXCHANGE moves with a random sample, as for the candidate list,
+ * of the moves exchanging longer segments between two routes.
+ * With GRANULAR moves only the swap moves inserting a customer next to one of its
+ * nearest neighbors are generated.
+ * With EJECTION_CHAIN moves the swap moves are interleaved with the roots of the ejection
+ * chains: a customer taking the place of one of its nearest neighbors in another route.
+ * With ADAPTIVE moves each iteration generates the moves of a single operator among
+ * the swap, candidate list, granular, ejection chain, 2-opt*, Or-opt, exchange and
+ * CROSS-exchange ones, drawn by a roulette: the weight of an operator follows the
+ * improvement of the objective value per millisecond of the iterations it has been
+ * drawn for, with a share of the draws left uniform so that no operator is given up.
+ * The time depends on the machine and on its load, so when a random seed, a checkpoint
+ * or a resume file is given the improvement is weighed per thousand moves generated
+ * instead, and the run can be replayed and resumed; without them an adaptive run cannot
+ * be replayed. The weights, the time and the moves of each operator are logged every
+ * progress interval and when the search stops.
+ * The swap moves are kept from an iteration to the next and set again, instead of being
+ * created for each customer and route at every iteration: the search uses the moves only
+ * in the iteration they are generated for, the tabu list keeps the keys of the move made.
+ */
 @SuppressWarnings("serial")
-public class MyMoveManager implements MoveManager {
+public class MyMoveManager implements MoveManager, TabuSearchListener {
+	private static final double MIN_SAMPLE_FRACTION = 0.05;
+	private static final double SAMPLE_DELTA = 0.1;			// relative variation of the adaptive sample
+	private static final int STAGNATION_ITERATIONS = 10;	// iterations without new best before growing the sample
+	private static final int MAX_CHAIN_LENGTH = 3;			// customers relocated together by the Or-opt moves
+	private static final int MAX_EXCHANGE_LENGTH = 2;		// longest segment of the exchange moves, 2 for the 2-1 interchange
+	private static final int MAX_CROSS_LENGTH = 3;			// longest segment of the CROSS-exchange moves
+	private static final MovesType[] OPERATORS = { MovesType.SWAP, MovesType.CANDIDATE_LIST, MovesType.GRANULAR,
+			MovesType.EJECTION_CHAIN, MovesType.TWO_OPT_STAR, MovesType.OR_OPT,
+			MovesType.EXCHANGE, MovesType.CROSS_EXCHANGE };		// drawn by the ADAPTIVE moves
+	private static final double OPERATOR_EXPLORATION = 0.1;	// share of the operator draws left uniform
+	private static final double OPERATOR_REACTION = 0.1;	// weight of the last iteration in the score of an operator
+	
+	private static String class_name = MyMoveManager.class.getName();
+	private static MyLogger MyLog = new MyLogger(class_name);
+	
 	private static Instance instance;
     private MovesType movesType;
+    private double sampleFraction;		// probability of each swap move to be in the candidate list
+    private boolean adaptiveSample;
+    private int stagnation;				// iterations since the last new best solution
+    private Random random;
+    private MySwapMove[] swapMoves;		// reused by the swap moves generators, see getSwapMovesPool()
+    private Move[] swapMovesBuffer;		// returned by getSwapMoves(), reused while the moves are as many
+    private int progressInterval;		// iterations between two logs of the operator scores
+    private boolean replayable;			// the operators are scored on the moves generated instead of the time
+    private int operator;				// operator drawn for the current iteration, -1 if none
+    private long operatorStart;			// System.nanoTime() when its moves have been requested
+    private double operatorStartValue;	// weighted total cost of the solution the moves are made on
+    private int operatorMoveCount;		// moves generated for the current iteration
+    private double[] operatorScores = new double[OPERATORS.length];		// smoothed improvement per millisecond or per thousand moves
+    private int[] operatorDraws = new int[OPERATORS.length];
+    private long[] operatorTimes = new long[OPERATORS.length];			// nanoseconds of the iterations drawn for
+    private long[] operatorMoves = new long[OPERATORS.length];			// moves generated in the iterations drawn for
+    private double[] operatorImprovements = new double[OPERATORS.length];
 
 	public MyMoveManager(Instance instance) {
     	MyMoveManager.setInstance(instance);
+    	Parameters parameters = instance.getParameters();
+    	sampleFraction = parameters.getSampleFraction();
+    	adaptiveSample = parameters.isAdaptiveSample();
+    	progressInterval = parameters.getProgressInterval();
+    	replayable = parameters.getRandomSeed() != -1 || parameters.getCheckpointFile() != null
+    			|| parameters.getResumeFile() != null;
+    	operator = -1;
+    	if (parameters.getRandomSeed() != -1)
+    		random = new Random(parameters.getRandomSeed());
+    	else
+    		random = new Random(instance.getRandom().nextLong());
     }
     
     public Move[] getAllMoves( Solution solution ) { 
@@ -21,6 +102,30 @@ public class MyMoveManager implements MoveManager {
     	switch (movesType) {
 		case SWAP:
 			return getSwapMoves(sol);
+			
+		case CANDIDATE_LIST:
+			return getCandidateListMoves(sol);
+			
+		case TWO_OPT_STAR:
+			return interleave(getSwapMoves(sol), getTwoOptStarMoves(sol));
+			
+		case OR_OPT:
+			return interleave(getSwapMoves(sol), getOrOptMoves(sol));
+			
+		case EXCHANGE:
+			return interleave(getSwapMoves(sol), getExchangeMoves(sol));
+			
+		case CROSS_EXCHANGE:
+			return interleave(getSwapMoves(sol), getCrossExchangeMoves(sol));
+			
+		case GRANULAR:
+			return getGranularMoves(sol);
+			
+		case ADAPTIVE:
+			return getAdaptiveMoves(sol);
+			
+		case EJECTION_CHAIN:
+			return interleave(getSwapMoves(sol), getEjectionChainMoves(sol));
 
 		default:
 			return getSwapMoves(sol);
@@ -28,6 +133,109 @@ public class MyMoveManager implements MoveManager {
     }   // end getAllMoves
     
     
+    /**
+     * Draw the operator of the iteration by roulette on the scores and generate its moves;
+     * if it has no moves in the solution the swap moves are generated in its place.
+     * The time, the objective value and the moves are taken here, the score of the operator is
+     * updated when the move made is notified, see newCurrentSolutionFound()
+     * @param solution
+     * @return
+     */
+    public Move[] getAdaptiveMoves(MyTSsolution solution){
+    	double totalScore = 0;
+    	for (int o = 0; o < OPERATORS.length; ++o)
+    		totalScore += operatorScores[o];
+    	double draw = random.nextDouble();
+    	operator = 0;
+    	if (totalScore > 0 && draw >= OPERATOR_EXPLORATION) {
+    		// roulette on the scores
+    		draw = (draw - OPERATOR_EXPLORATION) / (1 - OPERATOR_EXPLORATION) * totalScore;
+    		while (operator < OPERATORS.length - 1 && draw >= operatorScores[operator])
+    			draw -= operatorScores[operator++];
+    	} else {
+    		// uniform draw
+    		operator = Math.min(OPERATORS.length - 1, (int)(random.nextDouble() * OPERATORS.length));
+    	}
+    	operatorStart = System.nanoTime();
+    	// the penalties may have changed since the solution has been evaluated: weigh them as the moves do
+    	Cost cost = solution.getCost();
+    	operatorStartValue = cost.travelTime + solution.getAlpha() * cost.loadViol
+    			+ solution.getBeta() * cost.durationViol + solution.getGamma() * cost.twViol;
+    	
+    	Move[] moves;
+    	switch (OPERATORS[operator]) {
+		case CANDIDATE_LIST:
+			moves = getCandidateListMoves(solution);
+			break;
+			
+		case GRANULAR:
+			moves = getGranularMoves(solution);
+			break;
+			
+		case EJECTION_CHAIN:
+			moves = getEjectionChainMoves(solution);
+			break;
+			
+		case TWO_OPT_STAR:
+			moves = getTwoOptStarMoves(solution);
+			break;
+			
+		case OR_OPT:
+			moves = getOrOptMoves(solution);
+			break;
+			
+		case EXCHANGE:
+			moves = getExchangeMoves(solution);
+			break;
+			
+		case CROSS_EXCHANGE:
+			moves = getCrossExchangeMoves(solution);
+			break;
+			
+		default:
+			moves = getSwapMoves(solution);
+			break;
+		}
+    	if (moves.length == 0) {
+    		operator = 0;
+    		moves = getSwapMoves(solution);
+    	}
+    	operatorMoveCount = moves.length;
+    	return moves;
+    }
+    
+    /**
+     * Update the score of the operator drawn for the iteration with the improvement
+     * of the move made per millisecond, or per thousand moves generated if the run is replayable
+     * @param value the weighted total cost of the solution after the move
+     */
+    private void scoreOperator(double value) {
+    	long time = System.nanoTime() - operatorStart;
+    	double improvement = Math.max(0, operatorStartValue - value);
+    	operatorDraws[operator]++;
+    	operatorTimes[operator] += time;
+    	operatorMoves[operator] += operatorMoveCount;
+    	operatorImprovements[operator] += improvement;
+    	double effort = replayable ? operatorMoveCount / 1e3 : time / 1e6;
+    	operatorScores[operator] = (1 - OPERATOR_REACTION) * operatorScores[operator]
+    			+ OPERATOR_REACTION * improvement / Math.max(effort, 1e-3);
+    	operator = -1;
+    }
+    
+    /**
+     * Log the draws, the time, the moves, the improvement and the score of each operator
+     * @param method the method logging
+     * @param iteration
+     */
+    private void logOperators(String method, int iteration) {
+    	StringBuffer print = new StringBuffer("iteration " + iteration + ": operators");
+    	for (int o = 0; o < OPERATORS.length; ++o)
+    		print.append(" | " + OPERATORS[o] + " draws " + operatorDraws[o] + " ms " + operatorTimes[o] / 1000000
+    				+ " moves " + operatorMoves[o] + " improvement " + String.format("%.2f", operatorImprovements[o])
+    				+ " score " + String.format("%.4f", operatorScores[o]));
+    	MyLog.info(class_name, method, print.toString());
+    }
+    
     /**
      * Generate moves that move each customer from one route to all routes that are different
      * @param solution
@@ -35,7 +243,19 @@ public class MyMoveManager implements MoveManager {
      */
     public Move[] getSwapMoves(MyTSsolution solution){
     	 Route[][] routes = solution.getRoutes();
-         Move[] buffer = new Move[ getInstance().getCustomersNr() * getInstance().getVehiclesNr() * getInstance().getDepotsNr()];
+    	 // each customer goes to each other route
+    	 int routesNr = 0;
+    	 int customersNr = 0;
+    	 for (int i = 0; i < routes.length; ++i) {
+    		 routesNr += routes[i].length;
+    		 for (int j = 0; j < routes[i].length; ++j)
+    			 customersNr += routes[i][j].getCustomersLength();
+    	 }
+    	 int size = customersNr * (routesNr - 1);
+    	 if (swapMovesBuffer == null || swapMovesBuffer.length != size)
+    		 swapMovesBuffer = new Move[ size];
+    	 Move[] buffer = swapMovesBuffer;
+    	 MySwapMove[] pool = getSwapMovesPool(size);
          int nextBufferPos = 0;
          
          // iterates depots
@@ -49,21 +269,441 @@ public class MyMoveManager implements MoveManager {
 	         			for (int r = 0; r < routes[l].length; ++r) { 
 	         				if (!(r == j && i == l)) {
 	         					Customer customer = routes[i][j].getCustomer(k);
-	         					buffer[nextBufferPos++] = new MySwapMove(getInstance(), customer, i, j, k, l, r);
+	         					pool[nextBufferPos].set(customer, i, j, k, l, r, 0, Integer.MAX_VALUE);
+	         					buffer[nextBufferPos] = pool[nextBufferPos];
+	         					++nextBufferPos;
 	         				}
 	         			}
          			}
          		}
          	}
          }
-          
-         // Trim buffer
-         Move[] moves = new Move[ nextBufferPos];
-         System.arraycopy( buffer, 0, moves, 0, nextBufferPos );
          
-         return moves;
+         return buffer;
+    }
+    
+    /**
+     * Get the swap moves kept from an iteration to the next, creating the ones missing
+     * @param size the number of moves needed
+     * @return the moves, at least size
+     */
+    private MySwapMove[] getSwapMovesPool(int size) {
+    	if (swapMoves == null || swapMoves.length < size) {
+    		MySwapMove[] pool = new MySwapMove[size];
+    		int created = 0;
+    		if (swapMoves != null) {
+    			created = swapMoves.length;
+    			System.arraycopy( swapMoves, 0, pool, 0, created );
+    		}
+    		for (int n = created; n < size; ++n)
+    			pool[n] = new MySwapMove(getInstance());
+    		swapMoves = pool;
+    	}
+    	return swapMoves;
+    }
+    
+    /**
+     * Generate the granular neighborhood of the swap moves: each customer is inserted just before
+     * or just after one of its nearest neighbors in another route, or in the first empty route of
+     * each depot, so that a new route can still be opened.
+     * A customer gets one move for each route, trying the positions from the first to the last
+     * one next to its neighbors in the route: the moves of a customer and a route would share
+     * their entry of the insertion cache, filled by the thread evaluating the move
+     * @param solution
+     * @return
+     */
+    public Move[] getGranularMoves(MyTSsolution solution){
+    	Route[][] routes = solution.getRoutes();
+    	// where each customer is
+    	int[] depotOf = new int[getInstance().getCustomersNr()];
+    	int[] routeOf = new int[getInstance().getCustomersNr()];
+    	int[] positionOf = new int[getInstance().getCustomersNr()];
+    	for (int i = 0; i < routes.length; ++i)
+    		for (int j = 0; j < routes[i].length; ++j)
+    			for (int k = 0; k < routes[i][j].getCustomersLength(); ++k) {
+    				int customer = routes[i][j].getCustomerNr(k);
+    				depotOf[customer] = i;
+    				routeOf[customer] = j;
+    				positionOf[customer] = k;
+    			}
+    	MySwapMove[] buffer = getSwapMovesPool(getInstance().getCustomersNr() * (getInstance().getParameters().getNeighborsNr() + getInstance().getDepotsNr()));
+    	int nextBufferPos = 0;
+    	
+    	// iterates depots
+    	for (int i = 0; i < routes.length; ++i) {
+    		// iterates routes
+    		for (int j = 0; j < routes[i].length; ++j) {
+    			// iterates customers in the route
+    			for (int k = 0; k < routes[i][j].getCustomersLength(); ++k) {
+    				Customer customer = routes[i][j].getCustomer(k);
+    				int firstMove = nextBufferPos;
+    				// next to the neighbors in the other routes
+    				for (int neighbor : getInstance().getNeighbors(customer.getNumber())) {
+    					int l = depotOf[neighbor];
+    					int r = routeOf[neighbor];
+    					if (r == j && i == l)
+    						continue;
+    					// widen the move of the route, if the customer already has one
+    					int m = firstMove;
+    					while (m < nextBufferPos && !(buffer[m].getInsertDepotNr() == l && buffer[m].getInsertRouteNr() == r))
+    						++m;
+    					if (m < nextBufferPos)
+    						buffer[m].set(customer, i, j, k, l, r,
+    								Math.min(buffer[m].getFirstInsertPositionIndex(), positionOf[neighbor]),
+    								Math.max(buffer[m].getLastInsertPositionIndex(), positionOf[neighbor] + 1));
+    					else
+    						buffer[nextBufferPos++].set(customer, i, j, k, l, r, positionOf[neighbor], positionOf[neighbor] + 1);
+    				}
+    				// in an empty route
+    				for (int l = 0; l < routes.length; ++l)
+    					for (int r = 0; r < routes[l].length; ++r)
+    						if (routes[l][r].isEmpty()) {
+    							buffer[nextBufferPos++].set(customer, i, j, k, l, r, 0, Integer.MAX_VALUE);
+    							break;
+    						}
+    			}
+    		}
+    	}
+    	
+    	// Trim buffer
+    	Move[] moves = new Move[ nextBufferPos];
+    	System.arraycopy( buffer, 0, moves, 0, nextBufferPos );
+    	
+    	return moves;
     }
     
+    /**
+     * Generate the roots of the ejection chains: each customer takes the place of one of its
+     * nearest neighbors in another route; the rest of each chain is searched when the move
+     * is evaluated, so the chains of different roots are searched in parallel
+     * @param solution
+     * @return
+     */
+    public Move[] getEjectionChainMoves(MyTSsolution solution){
+    	Route[][] routes = solution.getRoutes();
+    	// where each customer is, read by the moves when they are evaluated
+    	int[] depotOf = new int[getInstance().getCustomersNr()];
+    	int[] routeOf = new int[getInstance().getCustomersNr()];
+    	int[] positionOf = new int[getInstance().getCustomersNr()];
+    	for (int i = 0; i < routes.length; ++i)
+    		for (int j = 0; j < routes[i].length; ++j)
+    			for (int k = 0; k < routes[i][j].getCustomersLength(); ++k) {
+    				int customer = routes[i][j].getCustomerNr(k);
+    				depotOf[customer] = i;
+    				routeOf[customer] = j;
+    				positionOf[customer] = k;
+    			}
+    	List<Move> moves = new ArrayList<>();
+    	
+    	// iterates depots
+    	for (int i = 0; i < routes.length; ++i) {
+    		// iterates routes
+    		for (int j = 0; j < routes[i].length; ++j) {
+    			// iterates customers in the route
+    			for (int k = 0; k < routes[i][j].getCustomersLength(); ++k) {
+    				for (int neighbor : getInstance().getNeighbors(routes[i][j].getCustomerNr(k))) {
+    					int l = depotOf[neighbor];
+    					int r = routeOf[neighbor];
+    					if (!(r == j && i == l))
+    						moves.add(new MyEjectionChainMove(getInstance(), solution, i, j, k, l, r, positionOf[neighbor], depotOf, routeOf, positionOf));
+    				}
+    			}
+    		}
+    	}
+    	return moves.toArray(new Move[moves.size()]);
+    }
+    
+    /**
+     * Generate a random sample of the swap moves: each one is taken with probability sampleFraction.
+     * The moves left out are skipped with a geometric draw, so the random numbers drawn are
+     * proportional to the sample and not to the whole neighborhood.
+     * The list starts from a random move, so that choosing the first improving move
+     * does not always favour the first routes.
+     * @param solution
+     * @return
+     */
+    public Move[] getCandidateListMoves(MyTSsolution solution){
+    	if (sampleFraction >= 1)
+    		return getSwapMoves(solution);
+    	
+    	Route[][] routes = solution.getRoutes();
+    	MySwapMove[] buffer = getSwapMovesPool(getInstance().getCustomersNr() * getInstance().getVehiclesNr() * getInstance().getDepotsNr());
+    	int nextBufferPos = 0;
+    	double logSkip = Math.log(1 - sampleFraction);
+    	int skip = nextSkip(logSkip);
+    	
+    	// iterates depots
+    	for (int i = 0; i < routes.length; ++i) {
+    		// iterates routes
+    		for (int j = 0; j < routes[i].length; ++j) {
+    			// iterates customers in the route
+    			for (int k = 0; k < routes[i][j].getCustomersLength(); ++k) {
+    				for(int l = 0; l < routes.length; ++l){
+    					// iterate each route for that deposit and take the move to it if drawn
+    					for (int r = 0; r < routes[l].length; ++r) { 
+    						if (!(r == j && i == l) && skip-- == 0) {
+    							Customer customer = routes[i][j].getCustomer(k);
+    							buffer[nextBufferPos++].set(customer, i, j, k, l, r, 0, Integer.MAX_VALUE);
+    							skip = nextSkip(logSkip);
+    						}
+    					}
+    				}
+    			}
+    		}
+    	}
+    	
+    	// the search needs at least one move
+    	if (nextBufferPos == 0)
+    		return getSwapMoves(solution);
+    	
+    	// Trim buffer, starting from a random move
+    	int start = random.nextInt(nextBufferPos);
+    	Move[] moves = new Move[ nextBufferPos];
+    	System.arraycopy( buffer, start, moves, 0, nextBufferPos - start );
+    	System.arraycopy( buffer, 0, moves, nextBufferPos - start, start );
+    	
+    	return moves;
+    }
+    
+    /**
+     * Generate the moves exchanging the tails of each pair of routes of the same depot.
+     * Among the empty routes of a depot only the first one is used, the others would give
+     * the same moves
+     * @param solution
+     * @return
+     */
+    public Move[] getTwoOptStarMoves(MyTSsolution solution){
+    	Route[][] routes = solution.getRoutes();
+    	// count the moves first, the same way they are generated
+    	int size = 0;
+    	for (int i = 0; i < routes.length; ++i) {
+    		boolean emptyRoute = false;
+    		for (int j = 0; j < routes[i].length; ++j) {
+    			if (routes[i][j].isEmpty()) {
+    				if (emptyRoute)
+    					continue;
+    				emptyRoute = true;
+    			}
+    			for (int r = j + 1; r < routes[i].length; ++r)
+    				if (!(routes[i][j].isEmpty() && routes[i][r].isEmpty()))
+    					// all the pairs of positions but nothing and the whole routes exchanged
+    					size += (routes[i][j].getCustomersLength() + 1) * (routes[i][r].getCustomersLength() + 1) - 2;
+    		}
+    	}
+    	Move[] moves = new Move[ size];
+    	int nextBufferPos = 0;
+    	
+    	// iterates depots
+    	for (int i = 0; i < routes.length; ++i) {
+    		boolean emptyRoute = false;
+    		for (int j = 0; j < routes[i].length; ++j) {
+    			if (routes[i][j].isEmpty()) {
+    				if (emptyRoute)
+    					continue;
+    				emptyRoute = true;
+    			}
+    			// the aggregates are computed here once, not by each evaluating thread
+    			routes[i][j].getAggregates(getInstance());
+    			for (int r = j + 1; r < routes[i].length; ++r) {
+    				if (routes[i][j].isEmpty() && routes[i][r].isEmpty())
+    					continue;
+    				// positions where the tails start; exchanging the whole routes or nothing changes nothing
+    				for (int k = 0; k <= routes[i][j].getCustomersLength(); ++k)
+    					for (int p = 0; p <= routes[i][r].getCustomersLength(); ++p)
+    						if (!(k == 0 && p == 0) && !(k == routes[i][j].getCustomersLength() && p == routes[i][r].getCustomersLength()))
+    							moves[nextBufferPos++] = new MyTwoOptStarMove(getInstance(), solution, i, j, k, r, p);
+    			}
+    		}
+    	}
+    	
+    	return moves;
+    }
+    
+    /**
+     * Generate the moves relocating each chain of 1 to MAX_CHAIN_LENGTH consecutive customers
+     * to each other position of its route
+     * @param solution
+     * @return
+     */
+    public Move[] getOrOptMoves(MyTSsolution solution){
+    	Route[][] routes = solution.getRoutes();
+    	int size = 0;
+    	for (int i = 0; i < routes.length; ++i)
+    		for (int j = 0; j < routes[i].length; ++j)
+    			size += routes[i][j].getCustomersLength() * routes[i][j].getCustomersLength();
+    	Move[] buffer = new Move[ size * MAX_CHAIN_LENGTH ];
+    	int nextBufferPos = 0;
+    	
+    	// iterates depots
+    	for (int i = 0; i < routes.length; ++i) {
+    		// iterates routes
+    		for (int j = 0; j < routes[i].length; ++j) {
+    			int customersNr = routes[i][j].getCustomersLength();
+    			for (int length = 1; length <= MAX_CHAIN_LENGTH && length < customersNr; ++length)
+    				// iterates chains and the positions they can be moved to
+    				for (int k = 0; k + length <= customersNr; ++k)
+    					for (int p = 0; p + length <= customersNr; ++p)
+    						if (p != k)
+    							buffer[nextBufferPos++] = new MyOrOptMove(getInstance(), solution, i, j, k, length, p);
+    		}
+    	}
+    	
+    	// Trim buffer
+    	Move[] moves = new Move[ nextBufferPos];
+    	System.arraycopy( buffer, 0, moves, 0, nextBufferPos );
+    	
+    	return moves;
+    }
+    
+    /**
+     * Generate the moves exchanging a customer of a route with a customer of another route (1-1)
+     * and, up to MAX_EXCHANGE_LENGTH, two consecutive customers with one customer (2-1 and 1-2).
+     * The moves are counted first, so the list is allocated once and the generator keeps
+     * no state between the calls
+     * @param solution
+     * @return
+     */
+    public Move[] getExchangeMoves(MyTSsolution solution){
+    	Route[][] routes = solution.getRoutes();
+    	int size = 0;
+    	for (int i = 0; i < routes.length; ++i)
+    		for (int j = 0; j < routes[i].length; ++j)
+    			for (int l = i; l < routes.length; ++l)
+    				for (int r = (l == i ? j + 1 : 0); r < routes[l].length; ++r)
+    					size += exchangesNr(routes[i][j], routes[l][r]);
+    	Move[] moves = new Move[ size ];
+    	int nextBufferPos = 0;
+    	
+    	// iterates the pairs of routes
+    	for (int i = 0; i < routes.length; ++i)
+    		for (int j = 0; j < routes[i].length; ++j)
+    			for (int l = i; l < routes.length; ++l)
+    				for (int r = (l == i ? j + 1 : 0); r < routes[l].length; ++r)
+    					// iterates the segments of the first and of the second route
+    					for (int firstLength = 1; firstLength <= MAX_EXCHANGE_LENGTH; ++firstLength)
+    						for (int secondLength = 1; secondLength <= MAX_EXCHANGE_LENGTH; ++secondLength) {
+    							if (firstLength > 1 && secondLength > 1)
+    								continue;
+    							for (int k = 0; k + firstLength <= routes[i][j].getCustomersLength(); ++k)
+    								for (int p = 0; p + secondLength <= routes[l][r].getCustomersLength(); ++p)
+    									moves[nextBufferPos++] = new MyExchangeMove(getInstance(), solution, i, j, k, firstLength, l, r, p, secondLength);
+    						}
+    	
+    	return moves;
+    }
+    
+    /**
+     * Generate a random sample of the moves exchanging segments of 1 to MAX_CROSS_LENGTH customers
+     * between two routes: each one is taken with probability sampleFraction, skipping the others
+     * with a geometric draw as for the candidate list. On large instances the whole neighborhood
+     * is too large to be generated at each iteration.
+     * @param solution
+     * @return
+     */
+    public Move[] getCrossExchangeMoves(MyTSsolution solution){
+    	Route[][] routes = solution.getRoutes();
+    	List<Move> moves = new ArrayList<Move>();
+    	boolean sample = sampleFraction < 1;
+    	double logSkip = sample ? Math.log(1 - sampleFraction) : 0;
+    	int skip = sample ? nextSkip(logSkip) : 0;
+    	
+    	// the aggregates are computed here once, not by each evaluating thread
+    	for (int i = 0; i < routes.length; ++i)
+    		for (int j = 0; j < routes[i].length; ++j)
+    			routes[i][j].getAggregates(getInstance());
+    	
+    	// iterates the pairs of routes
+    	for (int i = 0; i < routes.length; ++i)
+    		for (int j = 0; j < routes[i].length; ++j)
+    			for (int l = i; l < routes.length; ++l)
+    				for (int r = (l == i ? j + 1 : 0); r < routes[l].length; ++r)
+    					// iterates the segments of the first and of the second route
+    					for (int firstLength = 1; firstLength <= MAX_CROSS_LENGTH; ++firstLength)
+    						for (int secondLength = 1; secondLength <= MAX_CROSS_LENGTH; ++secondLength)
+    							for (int k = 0; k + firstLength <= routes[i][j].getCustomersLength(); ++k)
+    								for (int p = 0; p + secondLength <= routes[l][r].getCustomersLength(); ++p)
+    									if (!sample || skip-- == 0) {
+    										moves.add(new MyCrossExchangeMove(getInstance(), solution, i, j, k, firstLength, l, r, p, secondLength));
+    										if (sample)
+    											skip = nextSkip(logSkip);
+    									}
+    	
+    	return moves.toArray(new Move[moves.size()]);
+    }
+    
+    // exchange moves between two routes: the segments of one route against a customer of the other one
+    private static int exchangesNr(Route first, Route second) {
+    	int exchanges = 0;
+    	for (int firstLength = 1; firstLength <= MAX_EXCHANGE_LENGTH; ++firstLength)
+    		for (int secondLength = 1; secondLength <= MAX_EXCHANGE_LENGTH; ++secondLength)
+    			if (firstLength == 1 || secondLength == 1)
+    				exchanges += Math.max(0, first.getCustomersLength() - firstLength + 1)
+    				           * Math.max(0, second.getCustomersLength() - secondLength + 1);
+    	return exchanges;
+    }
+    
+    // alternate the moves of the two lists, then the moves left of the longer one
+    private static Move[] interleave(Move[] first, Move[] second) {
+    	Move[] moves = new Move[ first.length + second.length];
+    	int common = Math.min(first.length, second.length);
+    	for (int m = 0; m < common; ++m) {
+    		moves[2 * m] = first[m];
+    		moves[2 * m + 1] = second[m];
+    	}
+    	System.arraycopy( first, common, moves, 2 * common, first.length - common );
+    	System.arraycopy( second, common, moves, 2 * common, second.length - common );
+    	return moves;
+    }
+    
+    // number of moves to skip before the next one taken in the candidate list
+    private int nextSkip(double logSkip) {
+    	return (int)(Math.log(1 - random.nextDouble()) / logSkip);
+    }
+    
+    /**
+     * when a new best solution is found shrink the adaptive sample
+     */
+    @Override
+    public void newBestSolutionFound(TabuSearchEvent event) {
+    	stagnation = 0;
+    	if (adaptiveSample)
+    		sampleFraction = Math.max(MIN_SAMPLE_FRACTION, sampleFraction / (1 + SAMPLE_DELTA));
+    }
+    
+    /**
+     * when the search does not find a new best solution for a while grow the adaptive sample;
+     * score the operator of the ADAPTIVE moves on the move made
+     */
+    @Override
+    public void newCurrentSolutionFound(TabuSearchEvent event) {
+    	if (adaptiveSample && ++stagnation > STAGNATION_ITERATIONS)
+    		sampleFraction = Math.min(1, sampleFraction * (1 + SAMPLE_DELTA));
+    	if (operator >= 0) {
+    		scoreOperator(((MyTSsolution)event.getTabuSearch().getCurrentSolution()).getCost().total);
+    		int iteration = event.getTabuSearch().getIterationsCompleted() + 1;
+    		if (progressInterval > 0 && iteration % progressInterval == 0)
+    			logOperators("newCurrentSolutionFound", iteration);
+    	}
+    }
+    
+    @Override
+    public void improvingMoveMade(TabuSearchEvent event) {}
+    
+    @Override
+    public void noChangeInValueMoveMade(TabuSearchEvent event) {}
+    
+    @Override
+    public void tabuSearchStarted(TabuSearchEvent event) {}
+    
+    @Override
+    public void tabuSearchStopped(TabuSearchEvent event) {
+    	if (movesType == MovesType.ADAPTIVE)
+    		logOperators("tabuSearchStopped", event.getTabuSearch().getIterationsCompleted());
+    }
+    
+    @Override
+    public void unimprovingMoveMade(TabuSearchEvent event) {}
+    
 	/**
 	 * @return the movesType
 	 */
@@ -78,6 +718,64 @@ public class MyMoveManager implements MoveManager {
 		this.movesType = movesType;
 	}
 
+	/**
+	 * @return the current probability of each swap move to be in the candidate list
+	 */
+	public double getSampleFraction() {
+		return sampleFraction;
+	}
+
+	/**
+	 * @param sampleFraction the probability of each swap move to be in the candidate list
+	 */
+	public void setSampleFraction(double sampleFraction) {
+		this.sampleFraction = sampleFraction;
+	}
+
+	/**
+	 * @param random the random generator drawing the candidate list
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * Write the state of the candidate list: sample and random generator,
+	 * and the scores and statistics of the operators of the ADAPTIVE moves
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeDouble(sampleFraction);
+		out.writeInt(stagnation);
+		MyCheckpoint.writeRandom(out, random);
+		for (int o = 0; o < OPERATORS.length; ++o) {
+			out.writeDouble(operatorScores[o]);
+			out.writeInt(operatorDraws[o]);
+			out.writeLong(operatorTimes[o]);
+			out.writeLong(operatorMoves[o]);
+			out.writeDouble(operatorImprovements[o]);
+		}
+	}
+
+	/**
+	 * Restore the state written by write()
+	 * @param in
+	 * @throws IOException
+	 */
+	public void read(DataInput in) throws IOException {
+		sampleFraction = in.readDouble();
+		stagnation = in.readInt();
+		random = MyCheckpoint.readRandom(in);
+		for (int o = 0; o < OPERATORS.length; ++o) {
+			operatorScores[o] = in.readDouble();
+			operatorDraws[o] = in.readInt();
+			operatorTimes[o] = in.readLong();
+			operatorMoves[o] = in.readLong();
+			operatorImprovements[o] = in.readDouble();
+		}
+	}
+
 	/**
 	 * @return the instance
 	 */
@@ -0,0 +1,173 @@
+package com.TabuSearch;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.coinor.opents.Solution;
+
+import com.mdvrp.Instance;
+import com.mdvrp.MyLogger;
+import com.mdvrp.Parameters;
+
+/**
+ * Multi-start tabu search: runs several independent searches, each one with its own
+ * initial solution (own start customer drawn from its own seed) and its own penalty
+ * parameters alpha, beta, gamma, on a bounded pool of threads, and keeps the best
+ * feasible solution found among them.
+ * With an exchange interval the searches cooperate as islands sharing their best
+ * solution through a {@link MyElitePool}, see {@link MyIslandListener}.
+ */
+public class MyMultiStartSearch {
+
+	private static String class_name = MyMultiStartSearch.class.getName();
+	private static MyLogger MyLog = new MyLogger(class_name);
+
+	private Instance instance;
+	private MySearchProgram[] searches;		// one independent search for each start
+	private Random[] randoms;				// random generator of each search
+	private int poolSize;					// searches running at the same time
+	private MyElitePool elitePool;			// shared by the searches, null if they are independent
+
+	/**
+	 * Prepare parameters.getStarts() searches: the first one starts from initialSol,
+	 * the others from routes built from a random start customer
+	 * @param instance
+	 * @param initialSol
+	 */
+	public MyMultiStartSearch(Instance instance, MyTSsolution initialSol) {
+		Parameters parameters = instance.getParameters();
+		int starts = parameters.getStarts();
+
+		this.instance = instance;
+		searches = new MySearchProgram[starts];
+		randoms = new Random[starts];
+		poolSize = Math.min(starts, parameters.getThreads());
+		// the cores left are shared among the searches to evaluate the neighborhoods
+		int threadsPerSearch = Math.max(1, parameters.getThreads() / poolSize);
+
+		// the initial solution shares its customers with the instance, which are
+		// going to be modified building the other solutions
+		initialSol.detachRoutes();
+		if (parameters.getExchangeInterval() > 0)
+			elitePool = new MyElitePool();
+
+		for (int k = 0; k < starts; ++k) {
+			// with a seed the whole portfolio can be replayed
+			if (parameters.getRandomSeed() != -1)
+				randoms[k] = new Random(parameters.getRandomSeed() + k);
+			else
+				randoms[k] = new Random(instance.getRandom().nextLong());
+
+			MyTSsolution sol = k == 0 ? initialSol : new MyTSsolution(instance, randoms[k]);
+			searches[k] = createSearch(sol, randoms[k]);
+			searches[k].getTabuSearch().setThreads(threadsPerSearch);
+			searches[k].getTabuSearch().setIterationsToGo(parameters.getIterations());
+			searches[k].addProgressListener("search " + k);
+			if (elitePool != null)
+				searches[k].getTabuSearch().addTabuSearchListener(new MyIslandListener(searches[k], elitePool, k, parameters.getExchangeInterval()));
+		}
+		MyLog.info(class_name, "MyMultiStartSearch", starts + " searches created, " + poolSize + " running at the same time with " + threadsPerSearch + " threads each");
+	}
+
+	/**
+	 * Create the search objects of a single start
+	 * @param sol
+	 * @param random
+	 * @return
+	 */
+	private MySearchProgram createSearch(MyTSsolution sol, Random random) {
+		MyObjectiveFunction objFunc = new MyObjectiveFunction(instance);
+		MyMoveManager moveManager = new MyMoveManager(instance);
+		moveManager.setMovesType(instance.getParameters().getMovesType());
+		moveManager.setRandom(random);
+
+		int dimension[] = {instance.getDepotsNr(), instance.getVehiclesNr(), instance.getCustomersNr(), 1, 1 };
+		MyTabuList tabuList = instance.getParameters().isReactiveTenure()
+				? new MyReactiveTabuList(instance.getParameters().getTabuTenure(), dimension)
+				: new MyTabuList(instance.getParameters().getTabuTenure(), dimension);
+
+		return new MySearchProgram(instance, sol, moveManager, objFunc, tabuList, false, null);
+	}
+
+	/**
+	 * Run all the searches and wait for them to finish
+	 * @return the search that found the best feasible solution; if none of them
+	 * found a feasible solution the first one
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	public MySearchProgram solve() throws InterruptedException, ExecutionException {
+		ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Future<Solution>[] results = new Future[searches.length];
+		MySearchProgram best = searches[0];
+
+		try {
+			for (int k = 0; k < searches.length; ++k) {
+				searches[k].getTabuSearch().setExecutor(pool);
+				results[k] = searches[k].solve();
+			}
+
+			for (int k = 0; k < searches.length; ++k) {
+				results[k].get();
+				MyLog.info(class_name, "solve", "search " + k + " finished, feasible cost = " + searches[k].feasibleCost.total);
+				if (searches[k].feasibleCost.total < best.feasibleCost.total)
+					best = searches[k];
+			}
+		} finally {
+			// stop the searches still running if we have been interrupted
+			for (int k = 0; k < searches.length; ++k)
+				if (results[k] != null)
+					results[k].cancel(false);
+			pool.shutdown();
+		}
+		return best;
+	}
+
+	/**
+	 * Stop all the searches at the given time
+	 * @param deadline the time as System.currentTimeMillis(), 0 for no deadline
+	 */
+	public void setDeadline(long deadline) {
+		for (int k = 0; k < searches.length; ++k)
+			searches[k].setDeadline(deadline);
+	}
+
+	/**
+	 * Anytime access to the searches: can be called by any thread while they are running
+	 * @return a copy of the best feasible solution found so far by any search, null if none
+	 */
+	public MyTSsolution getFeasibleSolution() {
+		MyTSsolution best = null;
+		for (int k = 0; k < searches.length; ++k) {
+			MyTSsolution solution = searches[k].getFeasibleSolution();
+			if (solution != null && (best == null || solution.getCost().total < best.getCost().total))
+				best = solution;
+		}
+		return best;
+	}
+
+	/**
+	 * @return the searches
+	 */
+	public MySearchProgram[] getSearches() {
+		return searches;
+	}
+
+	/**
+	 * @return the elite pool shared by the searches, null if they are independent
+	 */
+	public MyElitePool getElitePool() {
+		return elitePool;
+	}
+
+	/**
+	 * @return the random generator of each search
+	 */
+	public Random[] getRandoms() {
+		return randoms;
+	}
+}
@@ -6,17 +6,45 @@ import com.mdvrp.Cost;
 import com.mdvrp.Customer;
 import com.mdvrp.Instance;
 import com.mdvrp.Route;
+import com.mdvrp.RouteAggregates;
 
 
 @SuppressWarnings("serial")
-public class MyObjectiveFunction implements ObjectiveFunction {
+public class MyObjectiveFunction implements BufferedObjectiveFunction {
 	private static Instance instance;
  	private double lambda;		// λ
+ 	private transient MyInsertionCache cache;	// insertions evaluated on the current routes, null if too many
+ 	// costs reused by each thread evaluating the moves: {insert, best insert, delete, solution}
+ 	private transient ThreadLocal<Cost[]> buffers = new ThreadLocal<Cost[]>() {
+ 		@Override
+ 		protected Cost[] initialValue() {
+ 			return new Cost[]{ new Cost(), new Cost(), new Cost(), new Cost() };
+ 		}
+ 	};
+ 	// variations of the cost of the solution along the ejection chain each thread is building
+ 	private transient ThreadLocal<Cost[]> chains = new ThreadLocal<Cost[]>() {
+ 		@Override
+ 		protected Cost[] initialValue() {
+ 			Cost[] chain = new Cost[instance.getParameters().getEjectionDepth() + 1];
+ 			for (int k = 0; k < chain.length; ++k)
+ 				chain[k] = new Cost();
+ 			return chain;
+ 		}
+ 	};
+ 	// removals evaluated by each thread on the current routes
+ 	private transient ThreadLocal<MyRemovalCache> removals = new ThreadLocal<MyRemovalCache>() {
+ 		@Override
+ 		protected MyRemovalCache initialValue() {
+ 			return new MyRemovalCache(instance);
+ 		}
+ 	};
     
     public MyObjectiveFunction( Instance instance ) 
     {   
     	MyObjectiveFunction.setInstance(instance);
      	lambda     = 0.5 * Math.sqrt(instance.getVehiclesNr() * instance.getCustomersNr());
+     	if (MyInsertionCache.fits(instance))
+     		cache = new MyInsertionCache(instance);
     }   // end constructor
 
     /**
@@ -27,64 +55,334 @@ public class MyObjectiveFunction implements ObjectiveFunction {
      * of moves.
      */
     public double[] evaluate(Solution solution, Move proposedMove) {
+    	double[] value = new double[6];
+    	evaluate(solution, proposedMove, value);
+    	return value;
+    }   // end evaluate
+
+    /**
+     * Same as evaluate(solution, proposedMove) but writes the result in value;
+     * evaluating a move allocates nothing
+     */
+    public void evaluate(Solution solution, Move proposedMove, double[] value) {
     	MyTSsolution sol = (MyTSsolution)solution;
     	double obj;
         // If move is null, calculate distance from scratch
         if( proposedMove == null ) {
         	evaluateAbsolutely(sol);
-        	obj = sol.getCost().total;
-        	     	
-        	return new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, sol.getCost().travelTime, sol.getCost().loadViol, sol.getCost().durationViol, sol.getCost().twViol};
+        	
+        	value[0] = Double.POSITIVE_INFINITY;
+        	value[1] = Double.POSITIVE_INFINITY;
+        	value[2] = sol.getCost().travelTime;
+        	value[3] = sol.getCost().loadViol;
+        	value[4] = sol.getCost().durationViol;
+        	value[5] = sol.getCost().twViol;
         	
         }   // end if: move == null
 
         // Else calculate incrementally
         else {
-        	MySwapMove move = ((MySwapMove)proposedMove);
-        	Route insertRoute = sol.getRoute(move.getInsertDepotNr(), move.getInsertRouteNr());	// route on which is performed the insertion
-        	Route deleteRoute = sol.getRoute(move.getDeleteDepotNr(), move.getDeleteRouteNr());
-        	Cost varInsertCost = new Cost();
-        	Cost varDeleteCost;
-        	Cost solCost;
+        	Cost solCost = buffers.get()[3];
         	double penalization = 0;
-        	
-        	varInsertCost.total = Double.POSITIVE_INFINITY;
-        	// evaluate each position of the route to find the best insertion of the getCustomer(); start from 0 and consider also the last position
-        	for (int i = 0; i <= insertRoute.getCustomersLength(); ++i) {
-        		// evaluate insertion of the customer in the list
-        		Cost varCost = evaluateInsertRoute(insertRoute, move.getCustomer(), i);
-        		varCost.calculateTotal(sol.getAlpha(), sol.getBeta(), sol.getGamma());
-        		// this case covers the situation in which the parameters are too large and the cost will exceed the MAX_VALUE
-        		if(varCost.total > Double.MAX_VALUE) {
-        			varCost.total = Double.MAX_VALUE;
-        		}
-        		// if a better insertion is found, set the position to insert in the move and update the minimum cost found
-        		if (varInsertCost.total > varCost.total) {
-        			move.setInsertPositionIndex(i);
-        			varInsertCost = new Cost(varCost);
-        		}
-        	} // end for
-        	
-        	varDeleteCost = evaluateDeleteRoute(deleteRoute, move.getCustomer(), move.getDeletePositionIndex());
-        	solCost = getTotalCostVariation(sol, move, varInsertCost, varDeleteCost);
+        	if (proposedMove instanceof MyTwoOptStarMove)
+        		evaluateTwoOptStar(sol, (MyTwoOptStarMove)proposedMove, solCost);
+        	else if (proposedMove instanceof MyOrOptMove)
+        		evaluateOrOpt(sol, (MyOrOptMove)proposedMove, solCost);
+        	else if (proposedMove instanceof MyCrossExchangeMove)
+        		evaluateCrossExchange(sol, (MyCrossExchangeMove)proposedMove, solCost);
+        	else if (proposedMove instanceof MyExchangeMove)
+        		evaluateExchange(sol, (MyExchangeMove)proposedMove, solCost);
+        	else if (proposedMove instanceof MyEjectionChainMove)
+        		evaluateEjectionChain(sol, (MyEjectionChainMove)proposedMove, solCost);
+        	else
+        		evaluateSwap(sol, (MySwapMove)proposedMove, solCost);
         	obj = solCost.total;
             //calculate the penalization
             if (sol.getObjectiveValue()[0] <= obj )
-            	penalization = lambda * solCost.total * sol.getBs(move);
-            
-            double[] returnArray = new double[]{obj + penalization, obj, solCost.travelTime, solCost.loadViol, solCost.durationViol, solCost.twViol};
+            	penalization = lambda * solCost.total * sol.getBs((KeyedComplexMove)proposedMove);
             
-            return returnArray;
+            value[0] = obj + penalization;
+            value[1] = obj;
+            value[2] = solCost.travelTime;
+            value[3] = solCost.loadViol;
+            value[4] = solCost.durationViol;
+            value[5] = solCost.twViol;
         }   // end else: calculate incremental
         
     }   // end evaluate
     
-    private Cost getTotalCostVariation(MyTSsolution sol, MySwapMove move,
-			Cost varInsertCost, Cost varDeleteCost) 
-    {
-    	Cost varCost = new Cost(sol.getCost());
-    	Route insertRoute = sol.getRoute(move.getInsertDepotNr(), move.getInsertRouteNr());
+    /**
+     * Evaluate the best insertion of the customer in the route proposed and its removal
+     * from its route
+     * @param sol
+     * @param move
+     * @param solCost the cost of the solution after the move, overwritten
+     */
+    private void evaluateSwap(MyTSsolution sol, MySwapMove move, Cost solCost) {
+    	Route insertRoute = sol.getRoute(move.getInsertDepotNr(), move.getInsertRouteNr());	// route on which is performed the insertion
     	Route deleteRoute = sol.getRoute(move.getDeleteDepotNr(), move.getDeleteRouteNr());
+    	Cost[] costs = buffers.get();
+    	Cost varCost = costs[0];
+    	Cost varInsertCost = costs[1];
+    	Cost varDeleteCost = costs[2];
+    	
+    	varInsertCost.total = Double.POSITIVE_INFINITY;
+    	int entry = -1;
+    	if (cache != null) {
+    		entry = cache.entry(move.getInsertDepotNr(), move.getInsertRouteNr(), move.getCustomer().getNumber());
+    		if (!cache.isValid(entry, insertRoute)) {
+    			// the route changed since the insertions were evaluated: evaluate them again
+    			cache.reset(entry, insertRoute);
+    			for (int i = 0; i <= insertRoute.getCustomersLength(); ++i) {
+    				evaluateInsertRoute(insertRoute, move.getCustomer(), i, varCost);
+    				cache.set(entry, i, varCost.travelTime, varCost.loadViol, varCost.durationViol, varCost.twViol);
+    			}
+    			cache.setDominant(entry, insertRoute.getCustomersLength() + 1);
+    		}
+    	}
+    	// evaluate each position of the route to find the best insertion of the getCustomer(); start from 0 and consider also the last position
+    	int first = move.getFirstInsertPositionIndex();
+    	int last = Math.min(move.getLastInsertPositionIndex(), insertRoute.getCustomersLength());
+    	if (cache != null && cache.getDominant(entry) >= 0 && first == 0 && last == insertRoute.getCustomersLength())
+    		// the insertion without violations is the best one whatever alpha, beta and gamma
+    		first = last = cache.getDominant(entry);
+    	for (int i = first; i <= last; ++i) {
+    		// evaluate insertion of the customer in the list
+    		if (cache != null) {
+    			varCost.travelTime = cache.getTravelTime(entry, i);
+    			varCost.loadViol = cache.getLoadViol(entry, i);
+    			varCost.durationViol = cache.getDurationViol(entry, i);
+    			varCost.twViol = cache.getTwViol(entry, i);
+    		} else
+    			evaluateInsertRoute(insertRoute, move.getCustomer(), i, varCost);
+    		varCost.calculateTotal(sol.getAlpha(), sol.getBeta(), sol.getGamma());
+    		// this case covers the situation in which the parameters are too large and the cost will exceed the MAX_VALUE
+    		if(varCost.total > Double.MAX_VALUE) {
+    			varCost.total = Double.MAX_VALUE;
+    		}
+    		// if a better insertion is found, set the position to insert in the move and update the minimum cost found
+    		if (varInsertCost.total > varCost.total) {
+    			move.setInsertPositionIndex(i);
+    			// keep it swapping the two costs, the worse one is overwritten
+    			Cost swap = varInsertCost;
+    			varInsertCost = varCost;
+    			varCost = swap;
+    		}
+    	} // end for
+    	
+    	// the removal is the same for all the routes the customer is tried against
+    	MyRemovalCache removal = removals.get();
+    	int origin = removal.entry(move.getDeleteDepotNr(), move.getDeleteRouteNr());
+    	int position = move.getDeletePositionIndex();
+    	if (removal.isValid(origin, position, deleteRoute)) {
+    		varDeleteCost.travelTime = removal.getTravelTime(origin, position);
+    		varDeleteCost.loadViol = removal.getLoadViol(origin, position);
+    		varDeleteCost.durationViol = removal.getDurationViol(origin, position);
+    		varDeleteCost.twViol = removal.getTwViol(origin, position);
+    	} else {
+    		evaluateDeleteRoute(deleteRoute, move.getCustomer(), position, varDeleteCost);
+    		removal.set(origin, position, deleteRoute, varDeleteCost.travelTime, varDeleteCost.loadViol, varDeleteCost.durationViol, varDeleteCost.twViol);
+    	}
+    	getTotalCostVariation(sol, insertRoute, deleteRoute, varInsertCost, varDeleteCost, solCost);
+    }   // end evaluateSwap
+    
+    /**
+     * Evaluate the exchange of the tails of the routes from the aggregates of the routes,
+     * without walking their customers
+     * @param sol
+     * @param move
+     * @param solCost the cost of the solution after the move, overwritten
+     */
+    private void evaluateTwoOptStar(MyTSsolution sol, MyTwoOptStarMove move, Cost solCost) {
+    	Route first = sol.getRoute(move.getDepotNr(), move.getFirstRouteNr());
+    	Route second = sol.getRoute(move.getDepotNr(), move.getSecondRouteNr());
+    	RouteAggregates firstAggregates = first.getAggregates(instance);
+    	RouteAggregates secondAggregates = second.getAggregates(instance);
+    	Cost[] costs = buffers.get();
+    	firstAggregates.join(move.getFirstPosition(), secondAggregates, move.getSecondPosition(), costs[0]);
+    	secondAggregates.join(move.getSecondPosition(), firstAggregates, move.getFirstPosition(), costs[1]);
+    	getTotalCostVariation(sol, first, second, costs[0], costs[1], solCost);
+    }   // end evaluateTwoOptStar
+    
+    /**
+     * Evaluate the relocation of a chain of customers inside its route
+     * @param sol
+     * @param move
+     * @param solCost the cost of the solution after the move, overwritten
+     */
+    private void evaluateOrOpt(MyTSsolution sol, MyOrOptMove move, Cost solCost) {
+    	Route route = sol.getRoute(move.getDepotNr(), move.getRouteNr());
+    	Cost varCost = buffers.get()[0];
+    	evaluateOrOptRoute(route, move, varCost);
+    	// the route is both the insert and the delete route: count its old cost once
+    	getTotalCostVariation(sol, route, route, varCost, route.getCost(), solCost);
+    }   // end evaluateOrOpt
+    
+    /**
+     * Evaluate the exchange of a segment of customers of a route with a segment of another route
+     * @param sol
+     * @param move
+     * @param solCost the cost of the solution after the move, overwritten
+     */
+    private void evaluateExchange(MyTSsolution sol, MyExchangeMove move, Cost solCost) {
+    	Route first = sol.getRoute(move.getFirstDepotNr(), move.getFirstRouteNr());
+    	Route second = sol.getRoute(move.getSecondDepotNr(), move.getSecondRouteNr());
+    	Cost[] costs = buffers.get();
+    	evaluateReplaceRoute(first, move.getFirstPosition(), move.getFirstLength(), second, move.getSecondPosition(), move.getSecondLength(), costs[0]);
+    	evaluateReplaceRoute(second, move.getSecondPosition(), move.getSecondLength(), first, move.getFirstPosition(), move.getFirstLength(), costs[1]);
+    	getTotalCostVariation(sol, first, second, costs[0], costs[1], solCost);
+    }   // end evaluateExchange
+    
+    /**
+     * Evaluate the exchange of segments of customers between two routes from the aggregates
+     * of the routes: each route is its head, the segment of the other route and its tail
+     * @param sol
+     * @param move
+     * @param solCost the cost of the solution after the move, overwritten
+     */
+    private void evaluateCrossExchange(MyTSsolution sol, MyCrossExchangeMove move, Cost solCost) {
+    	Route first = sol.getRoute(move.getFirstDepotNr(), move.getFirstRouteNr());
+    	Route second = sol.getRoute(move.getSecondDepotNr(), move.getSecondRouteNr());
+    	RouteAggregates firstAggregates = first.getAggregates(instance);
+    	RouteAggregates secondAggregates = second.getAggregates(instance);
+    	Cost[] costs = buffers.get();
+    	firstAggregates.join(move.getFirstPosition(), secondAggregates, move.getSecondPosition(), move.getSecondLength(),
+    			firstAggregates, move.getFirstPosition() + move.getFirstLength(), costs[0]);
+    	secondAggregates.join(move.getSecondPosition(), firstAggregates, move.getFirstPosition(), move.getFirstLength(),
+    			secondAggregates, move.getSecondPosition() + move.getSecondLength(), costs[1]);
+    	getTotalCostVariation(sol, first, second, costs[0], costs[1], solCost);
+    }   // end evaluateCrossExchange
+    
+    /**
+     * Evaluate the best ejection chain from the root of the move: the removal of its first
+     * customer and the replacement of the customer it ejects, then a depth first search of
+     * the rest of the chain over the nearest neighbors of each customer ejected.
+     * The chain found is set in the move; if every chain is pruned the cost is Double.MAX_VALUE
+     * @param sol
+     * @param move
+     * @param solCost the cost of the solution after the move, overwritten
+     */
+    private void evaluateEjectionChain(MyTSsolution sol, MyEjectionChainMove move, Cost solCost) {
+    	Cost[] costs = buffers.get();
+    	Cost varCost = costs[0];
+    	Cost bestCost = costs[1];
+    	Cost[] chain = chains.get();
+    	move.clearChain();
+    	bestCost.total = Double.POSITIVE_INFINITY;
+    	
+    	Route root = sol.getRoute(move.getTrialDepotNr(0), move.getTrialRouteNr(0));
+    	Route eject = sol.getRoute(move.getTrialDepotNr(1), move.getTrialRouteNr(1));
+    	RouteAggregates rootAggregates = root.getAggregates(instance);
+    	RouteAggregates ejectAggregates = eject.getAggregates(instance);
+    	Customer customer = root.getCustomer(move.getTrialPosition(0));
+    	if (ejectAggregates.admits(move.getTrialPosition(1), customer, true)) {
+    		chain[0].initialize();
+    		rootAggregates.join(move.getTrialPosition(0), rootAggregates, move.getTrialPosition(0) + 1, varCost);
+    		addRouteVariation(chain[0], root, varCost, chain[0]);
+    		ejectAggregates.replace(move.getTrialPosition(1), customer, varCost);
+    		addRouteVariation(chain[0], eject, varCost, chain[1]);
+    		extendEjectionChain(sol, move, 1, eject.getCustomer(move.getTrialPosition(1)), chain, varCost, bestCost);
+    	}
+    	
+    	solCost.copy(sol.getCost());
+    	if (move.getEjections() == 0) {
+    		solCost.total = Double.MAX_VALUE;
+    		return;
+    	}
+    	solCost.travelTime += bestCost.travelTime;
+    	solCost.loadViol += bestCost.loadViol;
+    	solCost.durationViol += bestCost.durationViol;
+    	solCost.twViol += bestCost.twViol;
+    	solCost.loadViol = Math.abs(solCost.loadViol) < instance.getPrecision() ? 0 : solCost.loadViol;
+    	solCost.durationViol = Math.abs(solCost.durationViol) < instance.getPrecision() ? 0 : solCost.durationViol;
+    	solCost.twViol = Math.abs(solCost.twViol) < instance.getPrecision() ? 0 : solCost.twViol;
+    	solCost.calculateTotal(sol.getAlpha(), sol.getBeta(), sol.getGamma());
+    	if (solCost.total > Double.MAX_VALUE)
+    		solCost.total = Double.MAX_VALUE;
+    }   // end evaluateEjectionChain
+    
+    /**
+     * Extend the chain of the move after k ejections: the customer ejected last is inserted
+     * next to one of its nearest neighbors, closing the chain, or takes the place of one of
+     * them, if the depth allows another ejection. Only the routes not yet in the chain are
+     * tried, and only where RouteAggregates.admits() does not prune them
+     * @param sol
+     * @param move
+     * @param k the customers ejected
+     * @param customer the customer ejected last
+     * @param chain the variations of the cost of the solution after each ejection
+     * @param varCost buffer for the cost of a route
+     * @param bestCost the variation of the cost of the best chain found, total included
+     */
+    private void extendEjectionChain(MyTSsolution sol, MyEjectionChainMove move, int k, Customer customer,
+    		Cost[] chain, Cost varCost, Cost bestCost)
+    {
+    	for (int neighbor : instance.getNeighbors(customer.getNumber())) {
+    		int depotNr = move.getDepotOf()[neighbor];
+    		int routeNr = move.getRouteOf()[neighbor];
+    		int position = move.getPositionOf()[neighbor];
+    		if (move.isTrialRoute(k + 1, depotNr, routeNr))
+    			continue;
+    		Route route = sol.getRoute(depotNr, routeNr);
+    		RouteAggregates aggregates = route.getAggregates(instance);
+    		
+    		// close the chain inserting the customer just before or just after the neighbor
+    		for (int i = position; i <= position + 1; ++i) {
+    			if (!aggregates.admits(i, customer, false))
+    				continue;
+    			aggregates.insert(i, customer, varCost);
+    			double travelTime = chain[k].travelTime + varCost.travelTime - route.getCost().travelTime;
+    			double loadViol = chain[k].loadViol + varCost.loadViol - route.getCost().loadViol;
+    			double durationViol = chain[k].durationViol + varCost.durationViol - route.getCost().durationViol;
+    			double twViol = chain[k].twViol + varCost.twViol - route.getCost().twViol;
+    			double total = travelTime + sol.getAlpha() * loadViol + sol.getBeta() * durationViol + sol.getGamma() * twViol;
+    			if (total < bestCost.total) {
+    				bestCost.travelTime = travelTime;
+    				bestCost.loadViol = loadViol;
+    				bestCost.durationViol = durationViol;
+    				bestCost.twViol = twViol;
+    				bestCost.total = total;
+    				move.setChain(k, depotNr, routeNr, i);
+    			}
+    		}
+    		
+    		// eject the neighbor
+    		if (k + 1 < chain.length && aggregates.admits(position, customer, true)) {
+    			aggregates.replace(position, customer, varCost);
+    			addRouteVariation(chain[k], route, varCost, chain[k + 1]);
+    			move.setTrial(k + 1, depotNr, routeNr, position);
+    			extendEjectionChain(sol, move, k + 1, route.getCustomer(position), chain, varCost, bestCost);
+    		}
+    	}
+    }   // end extendEjectionChain
+    
+    /**
+     * Add the variation of the cost of a route to the variation of the cost of the solution
+     * @param variation the variation of the cost of the solution
+     * @param route
+     * @param varCost the new cost of the route
+     * @param result the variation with the route, overwritten; it can be variation itself
+     */
+    private static void addRouteVariation(Cost variation, Route route, Cost varCost, Cost result) {
+    	result.travelTime = variation.travelTime + varCost.travelTime - route.getCost().travelTime;
+    	result.loadViol = variation.loadViol + varCost.loadViol - route.getCost().loadViol;
+    	result.durationViol = variation.durationViol + varCost.durationViol - route.getCost().durationViol;
+    	result.twViol = variation.twViol + varCost.twViol - route.getCost().twViol;
+    }
+    
+    /**
+     * Compute the cost of the solution when two of its routes get the given costs
+     * @param sol
+     * @param insertRoute
+     * @param deleteRoute
+     * @param varInsertCost the new cost of insertRoute
+     * @param varDeleteCost the new cost of deleteRoute
+     * @param varCost the cost of the solution, overwritten
+     */
+    private void getTotalCostVariation(MyTSsolution sol, Route insertRoute, Route deleteRoute,
+			Cost varInsertCost, Cost varDeleteCost, Cost varCost) 
+    {
+    	varCost.copy(sol.getCost());
     	varCost.travelTime += -  deleteRoute.getCost().travelTime - insertRoute.getCost().travelTime
     			              + varInsertCost.travelTime + varDeleteCost.travelTime;
     	varCost.loadViol += - deleteRoute.getCost().loadViol- insertRoute.getCost().loadViol
@@ -99,8 +397,6 @@ public class MyObjectiveFunction implements ObjectiveFunction {
     	varCost.twViol = Math.abs(varCost.twViol) < instance.getPrecision() ? 0 : varCost.twViol;
     	
 		varCost.calculateTotal(sol.getAlpha(), sol.getBeta(), sol.getGamma());
-		    	
-    	return varCost;
 	}
         
     
@@ -137,11 +433,13 @@ public class MyObjectiveFunction implements ObjectiveFunction {
 	 * this function calculates the cost of a route from scratch
 	 * @param route
 	 */
-	private void evaluateRoute(Route route) {
+	static void evaluateRoute(Route route) {
     	double totalTime = 0;
     	double waitingTime = 0;
     	double twViol = 0;
     	Customer customerK;
+    	// the customers are updated: the route may share them with snapshots
+    	route.copyOnWrite();
     	route.initializeTimes();
     	// do the math only if the route is not empty
 		if(!route.isEmpty()){
@@ -204,174 +502,177 @@ public class MyObjectiveFunction implements ObjectiveFunction {
     /**
      * This function simulate the insertion of the customer in the given route on the given position.
      * Computes the new cost and return it.
-     * It is an optimized version of the evaluate route. Calculates only for the customers affected
-     * by the insertion. Starts from the given position and could finish before reaching the end of
-     * the list if there is no modification in the arrive time at the customers.
+     * It uses the forward and backward aggregates of the route: the customers before the position
+     * and the waiting, the return to the depot and the load of the ones after it take constant time,
+     * as their time window violations while the delay of the insertion is within their forward
+     * slack; otherwise the customers after it are walked only until their arrive time is the same.
      * Does not alter the route or the customer
      * @param route
      * @param customer
      * @param position
-     * @return
+     * @param varCost the cost overwritten with the result
      */
-    private Cost evaluateInsertRoute(Route route, Customer customer, int position) {
-    	Cost varCost = new Cost(route.getCost());
-    	double arriveCustomer = 0;
-    	double arriveNextCustomer = 0;
-    	double waitingTimeCustomer = 0;
-    	double waitingTimeNextCustomer = 0;
-    	double twViolCustomer = 0;
-    	double twViolNextCustomer = 0;
+    private void evaluateInsertRoute(Route route, Customer customer, int position, Cost varCost) {
+    	route.getAggregates(instance).insert(position, customer, varCost);
+    } // end method evaluate insert route
+	
+	
+	/**
+	 * This function simulate the replacement of a segment of the route with a segment of another route.
+	 * Computes the new cost and return it.
+	 * Like evaluateInsertRoute calculates only for the customers affected: the customers of the
+	 * new segment, then the ones after it until their service starts at the same time as before.
+	 * Does not alter the routes.
+	 * @param route
+	 * @param position the first customer of the segment replaced
+	 * @param length the customers of the segment replaced
+	 * @param other the route of the new segment
+	 * @param otherPosition the first customer of the new segment
+	 * @param otherLength the customers of the new segment
+	 * @param varCost the cost overwritten with the result
+	 */
+	private void evaluateReplaceRoute(Route route, int position, int length, Route other, int otherPosition, int otherLength, Cost varCost) {
+		varCost.copy(route.getCost());
+		double time = route.getDepot().getStartTw();
+		int previous = route.getDepotNr();
+		if (position > 0) {
+			Customer customerBefore = route.getCustomer(position - 1);
+			time = Math.max(customerBefore.getStartTw(), customerBefore.getArriveTime())
+				 + customerBefore.getServiceDuration();
+			previous = customerBefore.getNumber();
+		}
 
-    	// if route is empty insert: depot - customer - depot
-    	if(route.isEmpty()) {
-    		varCost.initialize();
-    		// arrive time at the customer
-    		arriveCustomer = route.getDepot().getStartTw()
-    				       + instance.getTravelTime(route.getDepotNr(), customer.getNumber());
-        	// waiting time for the customer if any
-    		waitingTimeCustomer = Math.max(0, customer.getStartTw() - arriveCustomer);
-    		// time window violation of the customer if any
-    		twViolCustomer = Math.max(0, arriveCustomer - customer.getEndTw());
-    		// arrive time at the depot
-    		arriveNextCustomer = Math.max(customer.getStartTw(), arriveCustomer)
-    				           + customer.getServiceDuration()
-    				           + instance.getTravelTime(customer.getNumber(), route.getDepotNr());
-    		// time window violation of the depot if any
-    		twViolNextCustomer = Math.max(0, arriveNextCustomer - route.getDepot().getEndTw());
-    		//variation of the travel time
-    		varCost.travelTime = instance.getTravelTime(route.getDepotNr(), customer.getNumber())
-    						   + instance.getTravelTime(customer.getNumber(), route.getDepotNr());
-    		// variation of the capacity
-    		varCost.load = customer.getCapacity();
-    		// route service time
-    		varCost.serviceTime = customer.getServiceDuration();
-    		//variation of the waiting time
-    		varCost.waitingTime = waitingTimeCustomer;
-    		// variation of the time windows violation
-    		varCost.twViol = twViolCustomer + twViolNextCustomer;
-    		
-    	}else{    	
-    		// insertion at the end of the list: customer before - customer - depot
-	    	if(position == route.getCustomersLength()){
-	    		Customer customerBefore = route.getCustomer(position - 1);
-	    		arriveCustomer = Math.max(customerBefore.getStartTw(), customerBefore.getArriveTime())
-	    				       + customerBefore.getServiceDuration()
-	    				       + instance.getTravelTime(customerBefore.getNumber(), customer.getNumber());
-	        	// waiting time for the customer if any
-	    		waitingTimeCustomer = Math.max(0, customer.getStartTw() - arriveCustomer);
-	    		// time window violation of the customer if any
-	    		twViolCustomer = Math.max(0, arriveCustomer - customer.getEndTw());
-	    		// arrive time at the depot
-	    		arriveNextCustomer = Math.max(customer.getStartTw(), arriveCustomer)
-	    				           + customer.getServiceDuration()
-	    				           + instance.getTravelTime(customer.getNumber(), route.getDepotNr());
-	    		// time window violation of the depot if any
-	    		twViolNextCustomer = Math.max(0, arriveNextCustomer - route.getDepot().getEndTw());
-	    		//variation of the travel time
-	    		varCost.travelTime += - instance.getTravelTime(customerBefore.getNumber(), route.getDepotNr())
-	    				              + instance.getTravelTime(customerBefore.getNumber(), customer.getNumber())
-	    							  + instance.getTravelTime(customer.getNumber(), route.getDepotNr());
-	    		// variation of the capacity
-	    		varCost.load += customer.getCapacity();
-	    		// route service time
-	    		varCost.serviceTime += customer.getServiceDuration();
-	    		//variation of the waiting time
-	    		varCost.waitingTime += waitingTimeCustomer;
-	    		// variation of the time windows violation
-	    		varCost.twViol += - varCost.depotTwViol + twViolCustomer + twViolNextCustomer;
-	    	}else {
-	    		double variation = 0;
-	    		Customer customerAfter = route.getCustomer(position);
-	    		// insertion on the first position: depot - customer - customer after
-	    		if(position == 0){
-	    			// time before arrive at the customer
-		    		arriveCustomer = route.getDepot().getStartTw()
-		    				       + instance.getTravelTime(route.getDepotNr(), customer.getNumber());
-		    		//variation of the travel time
-		    		varCost.travelTime += - instance.getTravelTime(route.getDepotNr(), customerAfter.getNumber())
-		    				              + instance.getTravelTime(route.getDepotNr(), customer.getNumber())
-		    							  + instance.getTravelTime(customer.getNumber(), customerAfter.getNumber());
-	    	
-		    	// insertion in the middle of the list:  customer before - customer - customer after
-		    	}else {
-		    		Customer customerBefore = route.getCustomer(position - 1);
-		    		// time before arrive at the customer
-		    		arriveCustomer = Math.max(customerBefore.getStartTw(), customerBefore.getArriveTime())
-		    				       + customerBefore.getServiceDuration()
-		    				       + instance.getTravelTime(customerBefore.getNumber(), customer.getNumber());
-		    		//variation of the travel time
-		    		varCost.travelTime += - instance.getTravelTime(customerBefore.getNumber(), customerAfter.getNumber())
-		    				              + instance.getTravelTime(customerBefore.getNumber(), customer.getNumber())
-		    							  + instance.getTravelTime(customer.getNumber(), customerAfter.getNumber());
-		    	} // end if else beginning or middle
-	    		
-	    		// this code runs when inserting at the beginning or in the middle
-	        	// waiting time for the customer if any
-	    		waitingTimeCustomer = Math.max(0, customer.getStartTw() - arriveCustomer);
-	    		// time window violation of the customer if any
-	    		twViolCustomer = Math.max(0, arriveCustomer - customer.getEndTw());
-	    		// before arrive time at the customer after
-	    		arriveNextCustomer = Math.max(customer.getStartTw(), arriveCustomer)
-	    				           + customer.getServiceDuration()
-	    				           + instance.getTravelTime(customer.getNumber(), customerAfter.getNumber());
-	    		// waiting time for the customer after if any
-	    		waitingTimeNextCustomer = Math.max(0, customerAfter.getStartTw() - arriveNextCustomer);
-	    		// time window violation of the customer after if any
-	    		twViolNextCustomer = Math.max(0, arriveNextCustomer - customerAfter.getEndTw());
-	    		
-	    		// variation of the capacity
-	    		varCost.load += customer.getCapacity();
-	    		// route service time
-	    		varCost.serviceTime += customer.getServiceDuration();
-	    		//variation of the waiting time
-	    		varCost.waitingTime += - customerAfter.getWaitingTime() + waitingTimeCustomer + waitingTimeNextCustomer;
-	    		// variation of the time windows violation
-	    		varCost.twViol +=  - customerAfter.getTwViol() + twViolCustomer + twViolNextCustomer;
-	    		
-//	    		variation = Math.max(customerAfter.getStartTw(), arriveNextCustomer) - Math.max(customerAfter.getStartTw(), customerAfter.getArriveTime());
-	    		variation = arriveNextCustomer + waitingTimeNextCustomer - customerAfter.getArriveTime() - customerAfter.getWaitingTime();
-	    		variation = Math.abs(variation) < instance.getPrecision() ? 0 : variation;
+		// take out the segment replaced
+		int after = position + length;
+		int next = after < route.getCustomersLength() ? route.getCustomerNr(after) : route.getDepotNr();
+		for (int k = position; k < after; ++k) {
+			Customer customer = route.getCustomer(k);
+			varCost.travelTime -= instance.getTravelTime(k == position ? previous : route.getCustomerNr(k - 1), customer.getNumber());
+			varCost.load -= customer.getCapacity();
+			varCost.serviceTime -= customer.getServiceDuration();
+			varCost.waitingTime -= customer.getWaitingTime();
+			varCost.twViol -= customer.getTwViol();
+		}
+		varCost.travelTime -= instance.getTravelTime(route.getCustomerNr(after - 1), next);
 
-	    		// if there is a variation update the nodes after too
-	    		int i = position + 1;
-	    		while (variation != 0 && i < route.getCustomersLength()){	
-	    				customerAfter = route.getCustomer(i);
-	    				// arrive at the customer after
-	    				arriveNextCustomer = customerAfter.getArriveTime() + variation;
-	    			    waitingTimeNextCustomer = Math.max(0, customerAfter.getStartTw() - arriveNextCustomer);
-	    			    twViolNextCustomer = Math.max(0, arriveNextCustomer - customerAfter.getEndTw());
-	    			    //variation of the waiting time
-	    	    		varCost.waitingTime += - customerAfter.getWaitingTime() + waitingTimeNextCustomer;
-	    	    		// variation of the time windows violation
-	    	    		varCost.twViol += - customerAfter.getTwViol() + twViolNextCustomer;
-	    	    		
-//	    	    		variation = Math.max(customerAfter.getStartTw(), arriveNextCustomer) - Math.max(customerAfter.getStartTw(), customerAfter.getArriveTime());
-	    	    		variation = arriveNextCustomer + waitingTimeNextCustomer - customerAfter.getArriveTime() - customerAfter.getWaitingTime();
-	    	    		variation = Math.abs(variation) < instance.getPrecision() ? 0 : variation;
+		// put in the new segment
+		for (int k = otherPosition; k < otherPosition + otherLength; ++k) {
+			Customer customer = other.getCustomer(k);
+			double arriveCustomer = time + instance.getTravelTime(previous, customer.getNumber());
+			double waitingTimeCustomer = Math.max(0, customer.getStartTw() - arriveCustomer);
+			varCost.travelTime += instance.getTravelTime(previous, customer.getNumber());
+			varCost.load += customer.getCapacity();
+			varCost.serviceTime += customer.getServiceDuration();
+			varCost.waitingTime += waitingTimeCustomer;
+			varCost.twViol += Math.max(0, arriveCustomer - customer.getEndTw());
+			time = arriveCustomer + waitingTimeCustomer + customer.getServiceDuration();
+			previous = customer.getNumber();
+		}
+		varCost.travelTime += instance.getTravelTime(previous, next);
+
+		// the customers after it, until the service starts as before
+		int k = after;
+		for (; k < route.getCustomersLength(); ++k) {
+			Customer customer = route.getCustomer(k);
+			double arriveCustomer = time + instance.getTravelTime(previous, customer.getNumber());
+			double waitingTimeCustomer = Math.max(0, customer.getStartTw() - arriveCustomer);
+			//variation of the waiting time
+			varCost.waitingTime += - customer.getWaitingTime() + waitingTimeCustomer;
+			// variation of the time windows violation
+			varCost.twViol += - customer.getTwViol() + Math.max(0, arriveCustomer - customer.getEndTw());
+			double variation = arriveCustomer + waitingTimeCustomer - customer.getArriveTime() - customer.getWaitingTime();
+			if (Math.abs(variation) < instance.getPrecision())
+				break;
+			time = arriveCustomer + waitingTimeCustomer + customer.getServiceDuration();
+			previous = customer.getNumber();
+		}
+
+		if (k == route.getCustomersLength()) {
+			// update the return to the depot
+			double arriveDepot = time + instance.getTravelTime(previous, route.getDepotNr());
+			double twViolDepot = Math.max(0, arriveDepot - route.getDepot().getEndTw());
+			// variation of the time windows violation
+			varCost.twViol += - varCost.depotTwViol + twViolDepot;
+			varCost.returnToDepotTime = arriveDepot;
+			varCost.depotTwViol = twViolDepot;
+		}
 
-	    	    		i++;
-	    		}// end while
-	    			
-	    		if(i == route.getCustomersLength() && variation != 0 ){
-	    			// update the return to the depot
-	    			arriveNextCustomer = varCost.returnToDepotTime + variation;
-	    			twViolNextCustomer = Math.max(0, arriveNextCustomer - route.getDepot().getEndTw());
-	    			// variation of the time windows violation
-    	    		varCost.twViol += - varCost.depotTwViol + twViolNextCustomer;
-    	    		
-	    		}// end if return to depot
-	    		
-	    		} // end if else of position cases
-    	} // end if else route is empty
-    	
 		varCost.waitingTime = Math.abs(varCost.waitingTime) < instance.getPrecision() ? 0 : varCost.waitingTime;
 		varCost.twViol = Math.abs(varCost.twViol) < instance.getPrecision() ? 0 : varCost.twViol;
-    	
+
 		varCost.setLoadViol(Math.max(0, varCost.load - route.getLoadAdmited()));
 		varCost.setDurationViol(Math.max(0, varCost.getDuration() - route.getDurationAdmited()));
+	} // end method evaluate replace route
+	
+	
+	/**
+	 * This function simulate the relocation of a chain of customers inside the route.
+	 * Computes the new cost and return it.
+	 * Like evaluateInsertRoute calculates only for the customers affected: starts from the
+	 * first position changed by the move and finishes as soon as, after the last position
+	 * changed, the service of a customer starts at the same time as before.
+	 * Does not alter the route.
+	 * @param route
+	 * @param move
+	 * @param varCost the cost overwritten with the result
+	 */
+	private void evaluateOrOptRoute(Route route, MyOrOptMove move, Cost varCost) {
+		varCost.copy(route.getCost());
+		int start = move.getStart();
+		int end = move.getEnd();
+		double time = route.getDepot().getStartTw();
+		int previous = route.getDepotNr();
+		if (start > 0) {
+			Customer customerBefore = route.getCustomer(start - 1);
+			time = Math.max(customerBefore.getStartTw(), customerBefore.getArriveTime())
+				 + customerBefore.getServiceDuration();
+			previous = customerBefore.getNumber();
+		}
 
-		return varCost;
-    } // end method evaluate insert route
+		// variation of the travel time: the arcs between the positions changed
+		int last = route.getCustomersLength() - 1;
+		for (int p = start; p <= end; ++p) {
+			int from = p - 1 < 0 ? route.getDepotNr() : route.getCustomerNr(move.getCustomerIndex(p - 1));
+			int to = p > last ? route.getDepotNr() : route.getCustomerNr(move.getCustomerIndex(p));
+			int oldFrom = p - 1 < 0 ? route.getDepotNr() : route.getCustomerNr(p - 1);
+			int oldTo = p > last ? route.getDepotNr() : route.getCustomerNr(p);
+			varCost.travelTime += instance.getTravelTime(from, to) - instance.getTravelTime(oldFrom, oldTo);
+		}
+
+		int p = start;
+		for (; p <= last; ++p) {
+			Customer customer = route.getCustomer(move.getCustomerIndex(p));
+			double arriveCustomer = time + instance.getTravelTime(previous, customer.getNumber());
+			double waitingTimeCustomer = Math.max(0, customer.getStartTw() - arriveCustomer);
+			double twViolCustomer = Math.max(0, arriveCustomer - customer.getEndTw());
+			//variation of the waiting time
+			varCost.waitingTime += - customer.getWaitingTime() + waitingTimeCustomer;
+			// variation of the time windows violation
+			varCost.twViol += - customer.getTwViol() + twViolCustomer;
+			// after the positions changed, once the service starts as before the rest of the route is the same
+			double variation = arriveCustomer + waitingTimeCustomer - customer.getArriveTime() - customer.getWaitingTime();
+			if (p >= end && Math.abs(variation) < instance.getPrecision())
+				break;
+			time = arriveCustomer + waitingTimeCustomer + customer.getServiceDuration();
+			previous = customer.getNumber();
+		}
+
+		if (p > last) {
+			// update the return to the depot
+			double arriveDepot = time + instance.getTravelTime(previous, route.getDepotNr());
+			double twViolDepot = Math.max(0, arriveDepot - route.getDepot().getEndTw());
+			// variation of the time windows violation
+			varCost.twViol += - varCost.depotTwViol + twViolDepot;
+			varCost.returnToDepotTime = arriveDepot;
+			varCost.depotTwViol = twViolDepot;
+		}
+
+		varCost.waitingTime = Math.abs(varCost.waitingTime) < instance.getPrecision() ? 0 : varCost.waitingTime;
+		varCost.twViol = Math.abs(varCost.twViol) < instance.getPrecision() ? 0 : varCost.twViol;
+
+		varCost.setLoadViol(Math.max(0, varCost.load - route.getLoadAdmited()));
+		varCost.setDurationViol(Math.max(0, varCost.getDuration() - route.getDurationAdmited()));
+	} // end method evaluate or-opt route
 	
 	
 	/**
@@ -383,10 +684,10 @@ public class MyObjectiveFunction implements ObjectiveFunction {
      * Does not alter the route.
 	 * @param route
 	 * @param position
-	 * @return
+	 * @param varCost the cost overwritten with the result
 	 */
-    private Cost evaluateDeleteRoute(Route route, Customer customer, int position) {
-    	Cost varCost = new Cost(route.getCost());
+    private void evaluateDeleteRoute(Route route, Customer customer, int position, Cost varCost) {
+    	varCost.copy(route.getCost());
     	double arriveNextCustomer = 0;
     	double waitingTimeNextCustomer = 0;
     	double twViolNextCustomer = 0;
@@ -510,8 +811,6 @@ public class MyObjectiveFunction implements ObjectiveFunction {
 		
 		varCost.setLoadViol(Math.max(0, varCost.load - route.getLoadAdmited()));
 		varCost.setDurationViol(Math.max(0, varCost.getDuration() - route.getDurationAdmited()));
-		
-		return varCost;
     } // end method evaluate delete route
 	
 	
@@ -0,0 +1,216 @@
+package com.TabuSearch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.coinor.opents.*;
+
+import com.mdvrp.Cost;
+import com.mdvrp.Customer;
+import com.mdvrp.Instance;
+import com.mdvrp.Route;
+
+/**
+ * Or-opt move: relocate a chain of consecutive customers inside its route.
+ * The chain of length customers starting at position is taken out of the route
+ * and put back so that it starts at insertPosition of the resulting route.
+ * Only the positions between the old and the new place of the chain change,
+ * see getStart(), getEnd() and getCustomerIndex().
+ * The tabu attributes are those of the customer at the first position changed, before
+ * and after the move: the move leading back to the route, whichever chain it moves,
+ * starts from the same position and is tabu. The move does not change the routes
+ * the customers are in, so it does not count in the frequency memory.
+ */
+@SuppressWarnings("serial")
+public class MyOrOptMove implements KeyedComplexMove {
+	private Instance instance;
+	private int depotNr;
+	private int routeNr;
+	private int position;			// first customer of the chain
+	private int length;				// customers of the chain
+	private int insertPosition;		// first customer of the chain after the move
+	private int deleteCustomerNr;	// customer at the first position changed after the move
+	private int insertCustomerNr;	// customer at the first position changed before the move
+
+	/**
+	 * @param instance
+	 * @param solution the solution the move is made on
+	 * @param depotNr
+	 * @param routeNr
+	 * @param position the first customer of the chain
+	 * @param length the customers of the chain
+	 * @param insertPosition the position of the first customer of the chain after the move
+	 */
+	public MyOrOptMove(Instance instance, MyTSsolution solution, int depotNr, int routeNr, int position, int length, int insertPosition)
+	{
+		this.instance       = instance;
+		this.depotNr        = depotNr;
+		this.routeNr        = routeNr;
+		this.position       = position;
+		this.length         = length;
+		this.insertPosition = insertPosition;
+
+		Route route = solution.getRoute(depotNr, routeNr);
+		deleteCustomerNr = route.getCustomerNr(getCustomerIndex(getStart()));
+		insertCustomerNr = route.getCustomerNr(getStart());
+	}   // end constructor
+
+	/**
+	 * Move the chain and evaluate the route from scratch
+	 * @param solution
+	 */
+	public void operateOn( Solution solution )
+	{
+		MyTSsolution sol = (MyTSsolution)solution;
+		Route route = sol.getRoute(depotNr, routeNr);
+		// the route may share its customers with snapshots of the solution
+		route.copyOnWrite();
+		Cost initialCost = new Cost(route.getCost());
+		sol.xorHash(hashVariation(route));
+
+		ArrayList<Customer> customers = new ArrayList<>(route.getCustomers());
+		List<Customer> chain = customers.subList(position, position + length);
+		List<Customer> moved = new ArrayList<>(chain);
+		chain.clear();
+		customers.addAll(insertPosition, moved);
+		route.setCustomers(customers);
+		MyObjectiveFunction.evaluateRoute(route);
+
+		evaluateTotalCostVariation(sol, route, initialCost);
+	}   // end operateOn
+
+	/**
+	 * Compute, before the move is made, the variation of the solution hash:
+	 * the arcs between the positions that change are replaced
+	 * @param route
+	 * @return the xor of the hashes of the arcs removed and added
+	 */
+	private long hashVariation(Route route) {
+		long variation = 0;
+		for (int p = getStart(); p <= getEnd(); ++p) {
+			variation ^= MyTSsolution.arcHash(node(route, p - 1), node(route, p));
+			variation ^= MyTSsolution.arcHash(node(route, getCustomerIndex(p - 1)), node(route, getCustomerIndex(p)));
+		}
+		return variation;
+	}
+
+	// number of the customer at the given position of the route, the depot outside the route
+	private static int node(Route route, int position) {
+		if (position < 0 || position >= route.getCustomersLength())
+			return route.getDepotNr();
+		return route.getCustomerNr(position);
+	}
+
+	/**
+	 * @return the first position changed by the move
+	 */
+	public int getStart() {
+		return Math.min(position, insertPosition);
+	}
+
+	/**
+	 * @return the first position after the ones changed by the move
+	 */
+	public int getEnd() {
+		return Math.max(position, insertPosition) + length;
+	}
+
+	/**
+	 * @param p a position of the route after the move
+	 * @return the position of its customer before the move; positions outside the route are left as they are
+	 */
+	public int getCustomerIndex(int p) {
+		if (p < getStart() || p >= getEnd())
+			return p;
+		if (insertPosition < position) {
+			// the chain, then the customers it jumped over
+			if (p < insertPosition + length)
+				return position + p - insertPosition;
+			return p - length;
+		}
+		// the customers the chain jumped over, then the chain
+		if (p < insertPosition)
+			return p + length;
+		return position + p - insertPosition;
+	}
+
+	private void evaluateTotalCostVariation(MyTSsolution sol, Route route, Cost initialCost)
+	{
+		sol.addTravelTime( - initialCost.travelTime + route.getCost().travelTime);
+		sol.addWaitingTime( - initialCost.waitingTime + route.getCost().waitingTime);
+		sol.getCost().durationViol += - initialCost.durationViol + route.getCost().durationViol;
+		sol.getCost().twViol += - initialCost.twViol + route.getCost().twViol;
+
+		sol.getCost().waitingTime = Math.abs(sol.getCost().waitingTime) < instance.getPrecision() ? 0 : sol.getCost().waitingTime;
+		sol.getCost().durationViol = Math.abs(sol.getCost().durationViol) < instance.getPrecision() ? 0 : sol.getCost().durationViol;
+		sol.getCost().twViol = Math.abs(sol.getCost().twViol) < instance.getPrecision() ? 0 : sol.getCost().twViol;
+
+		sol.getCost().calculateTotal(sol.getAlpha(), sol.getBeta(), sol.getGamma());
+	}
+
+	@Override
+	public int[] attributesDelete() {
+		return new int[]{ depotNr, routeNr, deleteCustomerNr, 0, 0};
+	}
+
+	@Override
+	public int[] attributesInsert() {
+		return new int[]{ depotNr, routeNr, insertCustomerNr, 0, 0};
+	}
+
+	@Override
+	public long deleteKey() {
+		return MySwapMove.key(instance, depotNr, routeNr, deleteCustomerNr);
+	}
+
+	@Override
+	public long insertKey() {
+		return MySwapMove.key(instance, depotNr, routeNr, insertCustomerNr);
+	}
+
+	/**
+	 * This function returns a string containing the move information in readable format
+	 */
+	public String toString() {
+		StringBuffer print = new StringBuffer();
+		print.append("--- Or-opt Depot " + depotNr + " Route " + routeNr + "----------------------------");
+		print.append("\n" + "| Position=" + position + " Length=" + length + " InsertPosition=" + insertPosition);
+		print.append("\n" + "--------------------------------------------------");
+		return print.toString();
+	}
+
+	/**
+	 * @return the depotNr
+	 */
+	public int getDepotNr() {
+		return depotNr;
+	}
+
+	/**
+	 * @return the routeNr
+	 */
+	public int getRouteNr() {
+		return routeNr;
+	}
+
+	/**
+	 * @return the first customer of the chain
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return the customers of the chain
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the position of the first customer of the chain after the move
+	 */
+	public int getInsertPosition() {
+		return insertPosition;
+	}
+}   // end class MyOrOptMove
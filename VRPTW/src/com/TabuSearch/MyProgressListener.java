@@ -0,0 +1,77 @@
+package com.TabuSearch;
+
+import org.coinor.opents.AsynchronousTabuSearchEvent;
+import org.coinor.opents.TabuSearchEvent;
+import org.coinor.opents.TabuSearchListener;
+
+import com.mdvrp.MyLogger;
+
+/**
+ * Logs the progress of a search: every new best solution and, every
+ * progressInterval iterations, the current and best objective values with the
+ * count of improving, unimproving and no change in value moves.
+ * It does not touch the search, so it is registered through an
+ * AsynchronousTabuSearchListener and runs off the solver thread.
+ */
+@SuppressWarnings("serial")
+public class MyProgressListener implements TabuSearchListener {
+
+	private static String class_name = MyProgressListener.class.getName();
+	private static MyLogger MyLog = new MyLogger(class_name);
+
+	private String name;			// the search in the log
+	private int progressInterval;
+	private int improvingMoves;
+	private int unimprovingMoves;
+	private int noChangeMoves;
+
+	public MyProgressListener(String name, int progressInterval) {
+		this.name = name;
+		this.progressInterval = progressInterval;
+	}
+
+	@Override
+	public void newBestSolutionFound(TabuSearchEvent event) {
+		AsynchronousTabuSearchEvent e = (AsynchronousTabuSearchEvent)event;
+		MyLog.info(class_name, "newBestSolutionFound", name + " iteration " + e.getIterationsCompleted() + ": new best " + e.getBestValue()[1]);
+	}
+
+	@Override
+	public void newCurrentSolutionFound(TabuSearchEvent event) {
+		AsynchronousTabuSearchEvent e = (AsynchronousTabuSearchEvent)event;
+		int iteration = e.getIterationsCompleted() + 1;
+		// a coalesced event stands for the iterations since the last one delivered
+		if (iteration / progressInterval > (iteration - e.getCount()) / progressInterval)
+			MyLog.info(class_name, "newCurrentSolutionFound", name + " iteration " + iteration + ": current " + e.getCurrentValue()[1]
+					+ ", best " + e.getBestValue()[1] + ", moves improving " + improvingMoves
+					+ " unimproving " + unimprovingMoves + " no change " + noChangeMoves);
+	}
+
+	@Override
+	public void improvingMoveMade(TabuSearchEvent event) {
+		improvingMoves += ((AsynchronousTabuSearchEvent)event).getCount();
+	}
+
+	@Override
+	public void unimprovingMoveMade(TabuSearchEvent event) {
+		// coalesced events count for all the moves they stand for
+		unimprovingMoves += ((AsynchronousTabuSearchEvent)event).getCount();
+	}
+
+	@Override
+	public void noChangeInValueMoveMade(TabuSearchEvent event) {
+		noChangeMoves += ((AsynchronousTabuSearchEvent)event).getCount();
+	}
+
+	@Override
+	public void tabuSearchStarted(TabuSearchEvent event) {
+		MyLog.info(class_name, "tabuSearchStarted", name + " started");
+	}
+
+	@Override
+	public void tabuSearchStopped(TabuSearchEvent event) {
+		AsynchronousTabuSearchEvent e = (AsynchronousTabuSearchEvent)event;
+		MyLog.info(class_name, "tabuSearchStopped", name + " stopped after " + e.getIterationsCompleted() + " iterations, best " + e.getBestValue()[1]
+				+ ", moves improving " + improvingMoves + " unimproving " + unimprovingMoves + " no change " + noChangeMoves);
+	}
+}
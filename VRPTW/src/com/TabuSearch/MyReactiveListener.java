@@ -0,0 +1,101 @@
+package com.TabuSearch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
+import org.coinor.opents.TabuSearchEvent;
+import org.coinor.opents.TabuSearchListener;
+
+import com.mdvrp.Instance;
+import com.mdvrp.MyLogger;
+import com.mdvrp.Route;
+
+/**
+ * Escape of the reactive tabu search: when the MyReactiveTabuList detects that the
+ * search is trapped, the current solution is diversified relocating random customers
+ * to random routes, see MySearchProgram.diversify().
+ */
+@SuppressWarnings("serial")
+public class MyReactiveListener implements TabuSearchListener, MyDiversificationTarget {
+
+	private static String class_name = MyReactiveListener.class.getName();
+	private static MyLogger MyLog = new MyLogger(class_name);
+
+	private MySearchProgram program;
+	private MyReactiveTabuList tabuList;
+	private Random random;
+
+	public MyReactiveListener(MySearchProgram program, MyReactiveTabuList tabuList, Random random) {
+		this.program = program;
+		this.tabuList = tabuList;
+		this.random = random;
+	}
+
+	/**
+	 * Write the state of the random generator
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		MyCheckpoint.writeRandom(out, random);
+	}
+
+	/**
+	 * Restore the state written by write()
+	 * @param in
+	 * @throws IOException
+	 */
+	public void read(DataInput in) throws IOException {
+		random = MyCheckpoint.readRandom(in);
+	}
+
+	/**
+	 * Escape if requested by the tabu list
+	 */
+	@Override
+	public void newCurrentSolutionFound(TabuSearchEvent event) {
+		int moves = tabuList.takeEscapeMoves();
+		if (moves == 0)
+			return;
+
+		program.diversify(moves, random, this);
+		int iteration = event.getTabuSearch().getIterationsCompleted() + 1; // plus the current one
+		MyLog.info(class_name, "newCurrentSolutionFound", "iteration " + iteration + ": escape with " + moves + " random moves");
+	}
+
+	/**
+	 * Relocate the customer to a random different route
+	 */
+	@Override
+	public MySwapMove relocation(MyTSsolution sol, int depotNr, int routeNr, int position) {
+		Instance instance = MyTSsolution.getInstance();
+		Route[][] routes = sol.getRoutes();
+		int l, r;
+		do {
+			l = random.nextInt(routes.length);
+			r = random.nextInt(routes[l].length);
+		} while (l == depotNr && r == routeNr);
+
+		return new MySwapMove(instance, routes[depotNr][routeNr].getCustomer(position), depotNr, routeNr, position, l, r);
+	}
+
+	@Override
+	public void improvingMoveMade(TabuSearchEvent event) {}
+
+	@Override
+	public void newBestSolutionFound(TabuSearchEvent event) {}
+
+	@Override
+	public void noChangeInValueMoveMade(TabuSearchEvent event) {}
+
+	@Override
+	public void tabuSearchStarted(TabuSearchEvent event) {}
+
+	@Override
+	public void tabuSearchStopped(TabuSearchEvent event) {}
+
+	@Override
+	public void unimprovingMoveMade(TabuSearchEvent event) {}
+}
@@ -0,0 +1,133 @@
+package com.TabuSearch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.coinor.opents.HashedAttributeMemory;
+import org.coinor.opents.TabuSearch;
+import org.coinor.opents.TabuSearchEvent;
+
+/**
+ * Reactive tabu list (Battiti, Tecchiolli): the hash of each current solution is
+ * stored with the iteration it was last visited, so repetitions are detected.
+ * - on a repetition within CYCLE_MAX iterations the tenure grows
+ * - if no repetition occurs for longer than the average cycle length the tenure shrinks
+ * - when more than CHAOS solutions have been repeated more than REPETITIONS times
+ *   the search is trapped: an escape is requested, see MyReactiveListener
+ */
+@SuppressWarnings("serial")
+public class MyReactiveTabuList extends MyTabuList {
+	
+	private static final double INCREASE = 1.1;
+	private static final double DECREASE = 0.9;
+	private static final int CYCLE_MAX = 50;		// longer cycles are not considered repetitions
+	private static final int REPETITIONS = 3;		// visits making a solution often repeated
+	private static final int CHAOS = 3;			// often repeated solutions triggering an escape
+	
+	private HashedAttributeMemory visited;		// last iteration each solution was current
+	private HashedAttributeMemory repetitions;	// times each solution was current again
+	private double tenure;
+	private int minTenure;
+	private int maxTenure;
+	private int lastChange;						// iteration of the last tenure variation
+	private double averageCycle;				// moving average of the cycles length
+	private int chaotic;						// often repeated solutions since the last escape
+	private int escapeMoves;					// random moves requested to escape
+	
+	public MyReactiveTabuList(int tenure, int[] attrDim) {
+		super(tenure, attrDim);
+		this.tenure = tenure;
+		minTenure = 1;
+		// a customer tabu in every route can not be moved anymore
+		maxTenure = Math.max(tenure, attrDim[2]);
+		averageCycle = CYCLE_MAX;
+		visited = new HashedAttributeMemory();
+		repetitions = new HashedAttributeMemory();
+	}
+	
+	/**
+	 * the hash of the initial solution is computed from scratch, the moves keep it up to date
+	 */
+	@Override
+	public void tabuSearchStarted(TabuSearchEvent event) {
+		((MyTSsolution)event.getTabuSearch().getCurrentSolution()).updateHash();
+	}
+	
+	/**
+	 * Look for the current solution among the visited ones and react
+	 */
+	@Override
+	public void newCurrentSolutionFound(TabuSearchEvent event) {
+		TabuSearch tabuSearch = event.getTabuSearch();
+		int iteration = tabuSearch.getIterationsCompleted() + 1; // plus the current one
+		long key = ((MyTSsolution)tabuSearch.getCurrentSolution()).getHash() & Long.MAX_VALUE;
+		int lastVisit = visited.get(key);
+		
+		if (lastVisit > 0) {
+			int cycle = iteration - lastVisit;
+			if (repetitions.increment(key) > REPETITIONS && ++chaotic > CHAOS) {
+				// trapped: escape and forget the visited solutions
+				escapeMoves = 1 + (int)(averageCycle / 2);
+				chaotic = 0;
+				visited = new HashedAttributeMemory();
+				repetitions = new HashedAttributeMemory();
+			}
+			if (cycle < CYCLE_MAX) {
+				averageCycle = 0.1 * cycle + 0.9 * averageCycle;
+				tenure = Math.min(maxTenure, Math.max(tenure * INCREASE, tenure + 1));
+				lastChange = iteration;
+			}
+		}
+		else if (iteration - lastChange > averageCycle) {
+			tenure = Math.max(minTenure, Math.max(tenure * DECREASE, tenure - 1));
+			lastChange = iteration;
+		}
+		
+		visited.set(key, iteration);
+		setTenure((int)tenure);
+	}
+	
+	/**
+	 * Write the state of the list, the visited solutions included
+	 */
+	@Override
+	public void write(DataOutput out) throws IOException {
+		super.write(out);
+		visited.write(out);
+		repetitions.write(out);
+		out.writeDouble(tenure);
+		out.writeInt(minTenure);
+		out.writeInt(maxTenure);
+		out.writeInt(lastChange);
+		out.writeDouble(averageCycle);
+		out.writeInt(chaotic);
+		out.writeInt(escapeMoves);
+	}
+	
+	/**
+	 * Restore the state written by write()
+	 */
+	@Override
+	public void read(DataInput in) throws IOException {
+		super.read(in);
+		visited.read(in);
+		repetitions.read(in);
+		tenure = in.readDouble();
+		minTenure = in.readInt();
+		maxTenure = in.readInt();
+		lastChange = in.readInt();
+		averageCycle = in.readDouble();
+		chaotic = in.readInt();
+		escapeMoves = in.readInt();
+	}
+	
+	/**
+	 * @return the random moves requested to escape, zero if none; the request is cleared
+	 */
+	public int takeEscapeMoves() {
+		int moves = escapeMoves;
+		escapeMoves = 0;
+		return moves;
+	}
+}
@@ -0,0 +1,110 @@
+package com.TabuSearch;
+
+import com.mdvrp.Instance;
+import com.mdvrp.Route;
+
+/**
+ * Cache of the removals evaluated by the objective function: for each position
+ * of each route it keeps the travel time, load, duration and time window violations
+ * of the route without the customer in that position, so that the removal is
+ * evaluated once for all the routes the customer is tried against.
+ * A position is valid while the route has the version it was computed on.
+ * It is not thread safe: the objective function keeps one for each thread.
+ */
+public class MyRemovalCache {
+
+	private static final int COMPONENTS = 4;	// travel time, load, duration and time window violations
+
+	private int vehiclesNr;
+	private long[][] versions;		// version of the route each position was computed on, 0 if none
+	private double[][] entries;		// the components of each position, one after the other
+
+	/**
+	 * @param instance
+	 */
+	public MyRemovalCache(Instance instance) {
+		vehiclesNr = instance.getVehiclesNr();
+		versions = new long[instance.getDepotsNr() * vehiclesNr][];
+		entries = new double[instance.getDepotsNr() * vehiclesNr][];
+	}
+
+	/**
+	 * @param depot
+	 * @param route
+	 * @return the entry of the removals from the route
+	 */
+	public int entry(int depot, int route) {
+		return depot * vehiclesNr + route;
+	}
+
+	/**
+	 * @param entry
+	 * @param position
+	 * @param route the route the customer is removed from
+	 * @return true if the removal from the position has been computed on the current version of the route
+	 */
+	public boolean isValid(int entry, int position, Route route) {
+		return versions[entry] != null && position < versions[entry].length
+				&& versions[entry][position] == route.getVersion();
+	}
+
+	/**
+	 * Store the cost of the removal from a position of the current version of the route
+	 * @param entry
+	 * @param position
+	 * @param route
+	 * @param travelTime
+	 * @param loadViol
+	 * @param durationViol
+	 * @param twViol
+	 */
+	public void set(int entry, int position, Route route, double travelTime, double loadViol, double durationViol, double twViol) {
+		if (versions[entry] == null || versions[entry].length < route.getCustomersLength()) {
+			// leave room for the route to grow
+			int length = route.getCustomersLength() + 2;
+			long[] positions = new long[length];
+			double[] components = new double[length * COMPONENTS];
+			if (versions[entry] != null) {
+				System.arraycopy(versions[entry], 0, positions, 0, versions[entry].length);
+				System.arraycopy(entries[entry], 0, components, 0, entries[entry].length);
+			}
+			versions[entry] = positions;
+			entries[entry] = components;
+		}
+		double[] components = entries[entry];
+		int i = position * COMPONENTS;
+		components[i] = travelTime;
+		components[i + 1] = loadViol;
+		components[i + 2] = durationViol;
+		components[i + 3] = twViol;
+		versions[entry][position] = route.getVersion();
+	}
+
+	/**
+	 * @return the travel time of the route without the customer in the position
+	 */
+	public double getTravelTime(int entry, int position) {
+		return entries[entry][position * COMPONENTS];
+	}
+
+	/**
+	 * @return the load violation of the route without the customer in the position
+	 */
+	public double getLoadViol(int entry, int position) {
+		return entries[entry][position * COMPONENTS + 1];
+	}
+
+	/**
+	 * @return the duration violation of the route without the customer in the position
+	 */
+	public double getDurationViol(int entry, int position) {
+		return entries[entry][position * COMPONENTS + 2];
+	}
+
+	/**
+	 * @return the time window violation of the route without the customer in the position
+	 */
+	public double getTwViol(int entry, int position) {
+		return entries[entry][position * COMPONENTS + 3];
+	}
+}
@@ -1,15 +1,20 @@
 package com.TabuSearch;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.text.DecimalFormat;
+import java.util.Random;
+import java.util.concurrent.Future;
 
+import org.coinor.opents.AsynchronousTabuSearchListener;
 import org.coinor.opents.BestEverAspirationCriteria;
 import org.coinor.opents.MoveManager;
 import org.coinor.opents.MultiThreadedTabuSearch;
 import org.coinor.opents.ObjectiveFunction;
 import org.coinor.opents.Solution;
 import org.coinor.opents.TabuList;
-import org.coinor.opents.TabuSearch;
 import org.coinor.opents.TabuSearchEvent;
 import org.coinor.opents.TabuSearchListener;
 
@@ -20,8 +25,15 @@ import com.mdvrp.Route;
 @SuppressWarnings("serial")
 public class MySearchProgram implements TabuSearchListener{
 	
-	private static int iterationsDone;
-	private TabuSearch tabuSearch;
+	private int iterationsDone;
+	private MultiThreadedTabuSearch tabuSearch;
+	private ObjectiveFunction objFunc;
+	private MyTabuList tabuList;
+	private MyMoveManager moveManager;
+	private MyReactiveListener reactiveListener;		// null if the tenure is not reactive
+	private MyStagnationListener stagnationListener;	// null if stagnation is not detected
+	private MyCheckpoint checkpoint;					// null if the search is not saved
+	private boolean resumed;							// the state has been restored from a checkpoint
 	private MyTSsolution sol;
 	public Instance instance;
 	public Route[][] feasibleRoutes; // stores the routes of the feasible solution if any
@@ -32,24 +44,96 @@ public class MySearchProgram implements TabuSearchListener{
 	public Cost currentCost;		 // stores the total cost of current solution
 	public int feasibleIndex;
 	public int bestIndex;
+	private long deadline;				// time at which the search stops, 0 = none
+	private volatile Feasible feasible;	// the feasible solution as seen by the other threads, null if none
 	public DecimalFormat df = new DecimalFormat("#.##");
 	
 	public MySearchProgram(Instance instance, Solution initialSol, MoveManager moveManager, ObjectiveFunction objFunc, TabuList tabuList, boolean minmax, PrintStream outPrintStream)
 	{
 		tabuSearch = new MultiThreadedTabuSearch(initialSol, moveManager, objFunc,tabuList,	new BestEverAspirationCriteria(), minmax );
+		tabuSearch.setThreads(instance.getParameters().getThreads());
+		tabuSearch.setChooseFirstImprovingMove(instance.getParameters().isFirstImproving());
 		feasibleIndex = -1;
 		bestIndex = 0;
 		this.instance = instance;
-		MySearchProgram.setIterationsDone(0);
+		this.objFunc = objFunc;
+		this.tabuList = (MyTabuList)tabuList;
+		this.moveManager = (MyMoveManager)moveManager;
+		iterationsDone = 0;
 		tabuSearch.addTabuSearchListener( this );
 		tabuSearch.addTabuSearchListener((MyTabuList)tabuList);
+		if (instance.getParameters().isVariableTenure())
+			this.tabuList.setVariableTenure(new Random(instance.getRandom().nextLong()));
+		if (tabuList instanceof MyReactiveTabuList) {
+			reactiveListener = new MyReactiveListener(this, (MyReactiveTabuList)tabuList, new Random(instance.getRandom().nextLong()));
+			tabuSearch.addTabuSearchListener(reactiveListener);
+		}
+		tabuSearch.addTabuSearchListener((MyMoveManager)moveManager);
+		if (instance.getParameters().getStagnationIterations() > 0) {
+			stagnationListener = new MyStagnationListener(this, new Random(instance.getRandom().nextLong()),
+					instance.getParameters().getStagnationIterations(), instance.getParameters().isStagnationStop());
+			tabuSearch.addTabuSearchListener(stagnationListener);
+		}
 	}
 
-	public TabuSearch getTabuSearch() {
+	public MultiThreadedTabuSearch getTabuSearch() {
 		return tabuSearch;
 	}
 	
-	public void improvingMoveMade(TabuSearchEvent event) {}
+	/**
+	 * Log the progress of the search, if requested by the parameters, off the solver thread
+	 * @param name the search in the log
+	 */
+	public void addProgressListener(String name) {
+		int progressInterval = instance.getParameters().getProgressInterval();
+		if (progressInterval > 0)
+			tabuSearch.addTabuSearchListener(new AsynchronousTabuSearchListener(new MyProgressListener(name, progressInterval)));
+	}
+	
+	/**
+	 * Stop the search at the given time even if it has iterations left to go;
+	 * the iteration running at that time is completed
+	 * @param deadline the time as System.currentTimeMillis(), 0 for no deadline
+	 */
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
+	
+	/**
+	 * Save the state of the search to the checkpoint every interval iterations and when it stops
+	 * @param checkpoint null for no checkpoint
+	 */
+	public void setCheckpoint(MyCheckpoint checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+	
+	/**
+	 * Anytime access to the search: can be called by any thread while the search is running
+	 * @return a copy of the best feasible solution found so far, null if none has been found yet
+	 */
+	public MyTSsolution getFeasibleSolution() {
+		Feasible feasible = this.feasible;
+		if (feasible == null)
+			return null;
+		MyTSsolution solution = new MyTSsolution();
+		solution.setRoutes(cloneRoutes(feasible.routes));
+		solution.setCost(new Cost(feasible.cost));
+		return solution;
+	}
+	
+	/**
+	 * Starts the search in its own thread and returns immediately.
+	 * The returned future completes with the final MyTSsolution (the best
+	 * feasible one if any was found) and can be cancelled to stop the search.
+	 * @return the future of the search
+	 */
+	public Future<Solution> solve() {
+		return tabuSearch.solve();
+	}
+	
+	public void improvingMoveMade(TabuSearchEvent event) {
+		iterationDone();
+	}
 
 	/**
 	 * when a new best solution event occur save and print it
@@ -58,7 +142,7 @@ public class MySearchProgram implements TabuSearchListener{
 	public void newBestSolutionFound(TabuSearchEvent event) {
 		sol = ((MyTSsolution)tabuSearch.getBestSolution());
 		bestCost 	= getCostFromObjective(sol.getObjectiveValue());
-		bestRoutes 	= cloneRoutes(sol.getRoutes());
+		bestRoutes 	= snapshotRoutes(sol.getRoutes());
 		bestIndex 	= tabuSearch.getIterationsCompleted() + 1; // plus the current one
 	}
 
@@ -72,7 +156,7 @@ public class MySearchProgram implements TabuSearchListener{
 	public void newCurrentSolutionFound(TabuSearchEvent event) {
 		sol = ((MyTSsolution)tabuSearch.getCurrentSolution());
 		currentCost = getCostFromObjective(sol.getObjectiveValue());
-		MySearchProgram.iterationsDone += 1;
+		iterationsDone += 1;
 		
 		// Check to see if a new feasible solution is found
 		// Checking with the current solution admits new feasible solution
@@ -80,17 +164,93 @@ public class MySearchProgram implements TabuSearchListener{
 		if(currentCost.checkFeasible() && currentCost.total < feasibleCost.total - instance.getPrecision())
 		{
 			feasibleCost = currentCost;
-			feasibleRoutes = cloneRoutes(sol.getRoutes());
+			feasibleRoutes = snapshotRoutes(sol.getRoutes());
+			feasibleIndex = tabuSearch.getIterationsCompleted() + 1; // plus the current one
+			feasible = new Feasible(feasibleRoutes, feasibleCost);
 			// set the new best to the current one
 			tabuSearch.setBestSolution(sol);
 			//System.out.println("Iteration " + tabuSearch.getIterationsCompleted() +" - New solution " + sol.getCost().total);
 		}
 		
 		sol.updateParameters(sol.getObjectiveValue()[3], sol.getObjectiveValue()[4], sol.getObjectiveValue()[5]);
+		
+		if (deadline != 0 && System.currentTimeMillis() >= deadline)
+			tabuSearch.stopSolving();
+		
+		// let the frequency memory forget the old moves
+		int frequencyDecay = instance.getParameters().getFrequencyDecay();
+		if (frequencyDecay > 0 && (tabuSearch.getIterationsCompleted() + 1) % frequencyDecay == 0)
+			sol.decayBs(0.5);
+	}
+
+	/**
+	 * Restart the search from a copy of the given routes: the current solution
+	 * is evaluated from scratch and the tabu list is reset.
+	 * It has to be called by the thread of the search, i.e. from one of its listeners,
+	 * the routes passed are only read.
+	 * @param routes
+	 */
+	public void restartFrom(Route[][] routes) {
+		sol = ((MyTSsolution)tabuSearch.getCurrentSolution());
+		sol.setRoutes(cloneRoutes(routes));
+		double[] objective = objFunc.evaluate(sol, null);
+		// the moves compare against the weighted total of the current solution
+		sol.getCost().calculateTotal(sol.getAlpha(), sol.getBeta(), sol.getGamma());
+		objective[0] = sol.getCost().total;
+		objective[1] = sol.getCost().total;
+		sol.setObjectiveValue(objective);
+		currentCost = getCostFromObjective(objective);
+		tabuList.reset();
+		
+		if(currentCost.checkFeasible() && currentCost.total < feasibleCost.total - instance.getPrecision())
+		{
+			feasibleCost = currentCost;
+			feasibleRoutes = snapshotRoutes(sol.getRoutes());
+			feasibleIndex = tabuSearch.getIterationsCompleted() + 1;
+			feasible = new Feasible(feasibleRoutes, feasibleCost);
+			tabuSearch.setBestSolution(sol);
+		}
+	}
+
+	/**
+	 * Diversify the current solution relocating random customers to the routes chosen
+	 * by the target, each one inserted in the best position of its new route and made tabu.
+	 * It has to be called by the thread of the search, as restartFrom().
+	 * @param moves the customers to relocate
+	 * @param random chooses the customers
+	 * @param target chooses their routes
+	 * @return the customers relocated, less than moves if the target has found no route
+	 */
+	public int diversify(int moves, Random random, MyDiversificationTarget target) {
+		sol = ((MyTSsolution)tabuSearch.getCurrentSolution());
+		int iteration = tabuSearch.getIterationsCompleted() + 1; // plus the current one
+		int m;
+		for (m = 0; m < moves; ++m) {
+			Route[][] routes = sol.getRoutes();
+			int i, j;
+			do {
+				i = random.nextInt(routes.length);
+				j = random.nextInt(routes[i].length);
+			} while (routes[i][j].isEmpty());
+			MySwapMove move = target.relocation(sol, i, j, random.nextInt(routes[i][j].getCustomersLength()));
+			if (move == null)
+				break;
+			// the objective function finds the best insertion position
+			objFunc.evaluate(sol, move);
+			tabuList.setTabu(sol, move, iteration);
+			move.operateOn(sol);
+		}
+
+		// the moves keep the cost of the solution up to date
+		sol.setObjectiveValue(new double[]{ sol.getCost().total, sol.getCost().total, sol.getCost().travelTime,
+				sol.getCost().loadViol, sol.getCost().durationViol, sol.getCost().twViol });
+		return m;
 	}
 
 	@Override
-	public void noChangeInValueMoveMade(TabuSearchEvent event) {}
+	public void noChangeInValueMoveMade(TabuSearchEvent event) {
+		iterationDone();
+	}
 
 	/**
 	 * When tabu search starts initialize best cost and
@@ -100,6 +260,11 @@ public class MySearchProgram implements TabuSearchListener{
 	 */
 	@Override
 	public void tabuSearchStarted(TabuSearchEvent event) {
+		// a resumed search goes on from the restored state
+		if (resumed) {
+			resumed = false;
+			return;
+		}
 		sol = ((MyTSsolution)tabuSearch.getCurrentSolution());
 		// initialize the feasible and best cost with the initial solution objective value
 		bestCost = getCostFromObjective(sol.getObjectiveValue());
@@ -107,28 +272,111 @@ public class MySearchProgram implements TabuSearchListener{
 		if (!feasibleCost.checkFeasible()) {
 			feasibleCost.total = Double.POSITIVE_INFINITY;
 		}
-		feasibleRoutes = cloneRoutes(sol.getRoutes());
+		feasibleRoutes = snapshotRoutes(sol.getRoutes());
 		bestRoutes = feasibleRoutes;
+		feasible = feasibleCost.checkFeasible() ? new Feasible(feasibleRoutes, feasibleCost) : null;
 	}
 
 	@Override
 	public void tabuSearchStopped(TabuSearchEvent event) {
+		// save the state before the best solution is replaced by the feasible one
+		if (checkpoint != null)
+			checkpoint.save(tabuSearch.getIterationsCompleted());
 		sol    = ((MyTSsolution)tabuSearch.getBestSolution());
 		if (feasibleCost.total != Double.POSITIVE_INFINITY) {
 			sol.setCost(feasibleCost);
-			sol.setRoutes(feasibleRoutes);
+			// the snapshots are never modified, the solution gets its own routes
+			sol.setRoutes(cloneRoutes(feasibleRoutes));
 			sol.setFeasibleIndex(feasibleIndex);
 			tabuSearch.setBestSolution(sol);
 		}
-		
-		// wake up the main thread
-    	synchronized(instance){
-    		instance.notify();
-    	}
 	}
 
 	@Override
-	public void unimprovingMoveMade(TabuSearchEvent event) {}
+	public void unimprovingMoveMade(TabuSearchEvent event) {
+		iterationDone();
+	}
+	
+	// one of the move events closes each iteration, after the new current and new best ones
+	private void iterationDone() {
+		if (checkpoint != null)
+			checkpoint.iterationDone(tabuSearch.getIterationsCompleted() + 1); // plus the current one
+	}
+	
+	/**
+	 * Write the state of the search at the end of an iteration, see MyCheckpoint
+	 * @param out
+	 * @param iterationsCompleted the iterations completed, the current one included
+	 * @throws IOException
+	 */
+	public void write(DataOutput out, int iterationsCompleted) throws IOException {
+		MyTSsolution current = (MyTSsolution)tabuSearch.getCurrentSolution();
+		MyTSsolution best = (MyTSsolution)tabuSearch.getBestSolution();
+		out.writeInt(iterationsCompleted);
+		out.writeInt(iterationsDone);
+		out.writeBoolean(reactiveListener != null);
+		out.writeBoolean(stagnationListener != null);
+		current.write(out);
+		current.writeBs(out);
+		// a new feasible solution makes the current solution the best one, see newCurrentSolutionFound()
+		out.writeBoolean(best == current);
+		if (best != current)
+			best.write(out);
+		MyCheckpoint.writeCost(out, feasibleCost);
+		MyCheckpoint.writeRoutes(out, feasibleRoutes);
+		out.writeInt(feasibleIndex);
+		MyCheckpoint.writeCost(out, bestCost);
+		MyCheckpoint.writeRoutes(out, bestRoutes);
+		out.writeInt(bestIndex);
+		tabuList.write(out);
+		moveManager.write(out);
+		if (reactiveListener != null)
+			reactiveListener.write(out);
+		if (stagnationListener != null)
+			stagnationListener.write(out);
+	}
+	
+	/**
+	 * Restore the state written by write(); the search must not be running
+	 * and it resumes from this state when it is started
+	 * @param in
+	 * @throws IOException if the search has been created with other parameters
+	 */
+	public void read(DataInput in) throws IOException {
+		MyTSsolution current = (MyTSsolution)tabuSearch.getCurrentSolution();
+		tabuSearch.setIterationsCompleted(in.readInt());
+		iterationsDone = in.readInt();
+		if (in.readBoolean() != (reactiveListener != null))
+			throw new IOException("the checkpoint has been saved with another reactive tenure parameter");
+		if (in.readBoolean() != (stagnationListener != null))
+			throw new IOException("the checkpoint has been saved with another stagnation iterations parameter");
+		current.read(in);
+		current.readBs(in);
+		if (in.readBoolean())
+			tabuSearch.setBestSolution(current);
+		else {
+			// the best solution shares the frequency memory with the current one
+			MyTSsolution best = (MyTSsolution)current.clone();
+			best.read(in);
+			tabuSearch.setBestSolution(best);
+		}
+		feasibleCost = MyCheckpoint.readCost(in);
+		feasibleRoutes = MyCheckpoint.readRoutes(in, current.getRoutes());
+		feasibleIndex = in.readInt();
+		feasible = feasibleCost.total != Double.POSITIVE_INFINITY ? new Feasible(feasibleRoutes, feasibleCost) : null;
+		bestCost = MyCheckpoint.readCost(in);
+		bestRoutes = MyCheckpoint.readRoutes(in, current.getRoutes());
+		bestIndex = in.readInt();
+		sol = current;
+		currentCost = getCostFromObjective(current.getObjectiveValue());
+		tabuList.read(in);
+		moveManager.read(in);
+		if (reactiveListener != null)
+			reactiveListener.read(in);
+		if (stagnationListener != null)
+			stagnationListener.read(in);
+		resumed = true;
+	}
 	
 	// return a new created cost from the objective vector passed as parameter
 	private Cost getCostFromObjective(double[] objective) {
@@ -152,18 +400,48 @@ public class MySearchProgram implements TabuSearchListener{
         }
         return routescopy;
 	}
+    
+    /**
+     * Snapshot the routes passed as parameter: only the routes modified since
+     * their last snapshot are copied, and their customers are shared until
+     * the routes are modified again. The snapshots must not be modified.
+     * @param routes
+     * @return the snapshots of the routes
+     */
+    public Route[][] snapshotRoutes(Route[][] routes){
+		Route[][] snapshots = new Route[routes.length][];
+        for (int i = 0; i < routes.length; ++i) {
+        	snapshots[i] = new Route[routes[i].length];
+        	for (int j = 0; j < routes[i].length; ++j)
+        		snapshots[i][j] = routes[i][j].snapshot();
+        }
+        return snapshots;
+	}
+
+	/**
+	 * Feasible routes and their cost, published together to the other threads
+	 */
+	private static final class Feasible {
+		private final Route[][] routes;	// snapshots, never modified
+		private final Cost cost;
+
+		private Feasible(Route[][] routes, Cost cost) {
+			this.routes = routes;
+			this.cost = new Cost(cost);
+		}
+	}
 
 	/**
 	 * @return the iterationsDone
 	 */
-	public static int getIterationsDone() {
+	public int getIterationsDone() {
 		return iterationsDone;
 	}
 
 	/**
 	 * @param iterationsDone the iterationsDone to set
 	 */
-	public static void setIterationsDone(int iterationsDone) {
-		MySearchProgram.iterationsDone = iterationsDone;
+	public void setIterationsDone(int iterationsDone) {
+		this.iterationsDone = iterationsDone;
 	}
 }
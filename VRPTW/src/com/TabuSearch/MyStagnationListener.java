@@ -0,0 +1,155 @@
+package com.TabuSearch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
+import org.coinor.opents.TabuSearch;
+import org.coinor.opents.TabuSearchEvent;
+import org.coinor.opents.TabuSearchListener;
+
+import com.mdvrp.Instance;
+import com.mdvrp.MyLogger;
+import com.mdvrp.Route;
+
+/**
+ * Stagnation detector: once a feasible solution has been found, when neither the best
+ * nor the best feasible solution improved for a number of iterations, the search is
+ * either stopped or restarted.
+ * The restart goes back to the best feasible solution with the penalty parameters
+ * and the tabu list reset, then diversifies it
+ * relocating some random customers to the routes they have been in less often
+ * according to the long term frequency memory, see MySearchProgram.diversify().
+ */
+@SuppressWarnings("serial")
+public class MyStagnationListener implements TabuSearchListener, MyDiversificationTarget {
+
+	private static String class_name = MyStagnationListener.class.getName();
+	private static MyLogger MyLog = new MyLogger(class_name);
+
+	private MySearchProgram program;
+	private Random random;
+	private int stagnationIterations;	// iterations without improvement before reacting
+	private boolean stop;				// stop instead of restarting
+	private int restartIndex;			// iteration of the last restart
+	private int restarts;
+
+	/**
+	 * @param program the search to watch
+	 * @param random used to choose the customers relocated by the restart
+	 * @param stagnationIterations the iterations without improvement before reacting
+	 * @param stop true to stop the search, false to restart it
+	 */
+	public MyStagnationListener(MySearchProgram program, Random random, int stagnationIterations, boolean stop) {
+		this.program = program;
+		this.random = random;
+		this.stagnationIterations = stagnationIterations;
+		this.stop = stop;
+	}
+
+	/**
+	 * React if the search is stagnating
+	 */
+	@Override
+	public void newCurrentSolutionFound(TabuSearchEvent event) {
+		// until a feasible solution is found the search is not stagnating but repairing
+		if (program.feasibleCost.total == Double.POSITIVE_INFINITY)
+			return;
+		TabuSearch tabuSearch = event.getTabuSearch();
+		int iteration = tabuSearch.getIterationsCompleted() + 1; // plus the current one
+		int lastImprovement = Math.max(restartIndex, Math.max(program.bestIndex, program.feasibleIndex));
+		if (iteration - lastImprovement < stagnationIterations)
+			return;
+
+		if (stop) {
+			MyLog.info(class_name, "newCurrentSolutionFound", "iteration " + iteration + ": no improvement since iteration " + lastImprovement + ", stop");
+			tabuSearch.stopSolving();
+			return;
+		}
+
+		MyTSsolution sol = (MyTSsolution)tabuSearch.getCurrentSolution();
+		sol.resetParameters();
+		program.restartFrom(program.feasibleRoutes);
+		int moves = Math.max(1, MyTSsolution.getInstance().getCustomersNr() / 10);
+		moves = program.diversify(moves, random, this);
+		restartIndex = iteration;
+		restarts++;
+		MyLog.info(class_name, "newCurrentSolutionFound", "iteration " + iteration + ": no improvement since iteration " + lastImprovement + ", restart " + restarts + " with " + moves + " diversification moves");
+	}
+
+	/**
+	 * Relocate the customer to the route it has been in less often, null if there is no other route
+	 */
+	@Override
+	public MySwapMove relocation(MyTSsolution sol, int depotNr, int routeNr, int position) {
+		Instance instance = MyTSsolution.getInstance();
+		Route[][] routes = sol.getRoutes();
+		MySwapMove best = null;
+		int bestFrequency = Integer.MAX_VALUE;
+		int ties = 0;
+		for (int l = 0; l < routes.length; ++l)
+			for (int r = 0; r < routes[l].length; ++r) {
+				if (l == depotNr && r == routeNr)
+					continue;
+				MySwapMove move = new MySwapMove(instance, routes[depotNr][routeNr].getCustomer(position), depotNr, routeNr, position, l, r);
+				int frequency = sol.getBsOfMove(move);
+				if (frequency < bestFrequency) {
+					best = move;
+					bestFrequency = frequency;
+					ties = 1;
+				} else if (frequency == bestFrequency && random.nextInt(++ties) == 0) {
+					// the ties are chosen uniformly
+					best = move;
+				}
+			}
+		return best;
+	}
+
+	/**
+	 * @return the number of restarts done
+	 */
+	public int getRestarts() {
+		return restarts;
+	}
+
+	/**
+	 * Write the state of the detector
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		MyCheckpoint.writeRandom(out, random);
+		out.writeInt(restartIndex);
+		out.writeInt(restarts);
+	}
+
+	/**
+	 * Restore the state written by write()
+	 * @param in
+	 * @throws IOException
+	 */
+	public void read(DataInput in) throws IOException {
+		random = MyCheckpoint.readRandom(in);
+		restartIndex = in.readInt();
+		restarts = in.readInt();
+	}
+
+	@Override
+	public void improvingMoveMade(TabuSearchEvent event) {}
+
+	@Override
+	public void newBestSolutionFound(TabuSearchEvent event) {}
+
+	@Override
+	public void noChangeInValueMoveMade(TabuSearchEvent event) {}
+
+	@Override
+	public void tabuSearchStarted(TabuSearchEvent event) {}
+
+	@Override
+	public void tabuSearchStopped(TabuSearchEvent event) {}
+
+	@Override
+	public void unimprovingMoveMade(TabuSearchEvent event) {}
+}
@@ -8,7 +8,7 @@ import com.mdvrp.Instance;
 import com.mdvrp.Route;
 
 @SuppressWarnings("serial")
-public class MySwapMove implements ComplexMove {
+public class MySwapMove implements KeyedComplexMove {
 	private Instance instance;
 	private Customer customer;
     private int deleteDepotNr;
@@ -17,6 +17,8 @@ public class MySwapMove implements ComplexMove {
     private int insertDepotNr;
     private int insertRouteNr;
     private int insertPositionIndex;
+    private int firstInsertPositionIndex = 0;	// insertion positions the objective function tries
+    private int lastInsertPositionIndex = Integer.MAX_VALUE;
     
     
     public MySwapMove( Instance instance, Customer customer, int deleteDepotNr, int deleteRouteNr, int deletePositionIndex, int insertDepotNr , int insertRouteNr)
@@ -30,6 +32,45 @@ public class MySwapMove implements ComplexMove {
         this.insertRouteNr       = insertRouteNr;
     }   // end constructor
     
+    /**
+     * Move whose customer is inserted only between the given positions, both included,
+     * instead of the best position of the whole route
+     */
+    public MySwapMove( Instance instance, Customer customer, int deleteDepotNr, int deleteRouteNr, int deletePositionIndex, int insertDepotNr , int insertRouteNr,
+    		int firstInsertPositionIndex, int lastInsertPositionIndex)
+    {
+        this(instance, customer, deleteDepotNr, deleteRouteNr, deletePositionIndex, insertDepotNr, insertRouteNr);
+        this.firstInsertPositionIndex = firstInsertPositionIndex;
+        this.lastInsertPositionIndex  = lastInsertPositionIndex;
+    }   // end constructor
+    
+    /**
+     * Move to be set, see set(): the move manager keeps the swap moves from an iteration
+     * to the next instead of creating them again
+     */
+    MySwapMove( Instance instance )
+    {
+        this.instance = instance;
+    }   // end constructor
+    
+    /**
+     * Make this move another swap move, as if it had been just created;
+     * positions from firstInsertPositionIndex to lastInsertPositionIndex are tried
+     */
+    void set( Customer customer, int deleteDepotNr, int deleteRouteNr, int deletePositionIndex, int insertDepotNr , int insertRouteNr,
+    		int firstInsertPositionIndex, int lastInsertPositionIndex)
+    {
+        this.customer                 = customer;
+        this.deleteDepotNr            = deleteDepotNr;
+        this.deleteRouteNr            = deleteRouteNr;
+        this.deletePositionIndex      = deletePositionIndex;
+        this.insertDepotNr            = insertDepotNr;
+        this.insertRouteNr            = insertRouteNr;
+        this.insertPositionIndex      = 0;
+        this.firstInsertPositionIndex = firstInsertPositionIndex;
+        this.lastInsertPositionIndex  = lastInsertPositionIndex;
+    }   // end set
+    
     /**
      * This function make the move on the solution and updates the originalPosition to be able to undo quickly
      * @param solution
@@ -39,14 +80,49 @@ public class MySwapMove implements ComplexMove {
     	MyTSsolution sol = (MyTSsolution)solution;
     	Route insertRoute = sol.getRoute(insertDepotNr, insertRouteNr);
     	Route deleteRoute = sol.getRoute(deleteDepotNr, deleteRouteNr);
+    	// the routes may share their customers with snapshots of the solution
+    	insertRoute.copyOnWrite();
+    	deleteRoute.copyOnWrite();
+    	customer = deleteRoute.getCustomer(deletePositionIndex);
     	Cost initialInsertCost = new Cost(insertRoute.getCost());
     	Cost initialDeleteCost = new Cost(deleteRoute.getCost());
+    	sol.xorHash(hashVariation(deleteRoute, insertRoute));
     	evaluateDeleteRoute(deleteRoute, customer, deletePositionIndex);
     	evaluateInsertRoute(insertRoute, customer, insertPositionIndex);
     	evaluateTotalCostVariation(sol, this, initialInsertCost, initialDeleteCost);
     	sol.incrementBs(this);
+    	// bring the aggregates of the routes up to date before the moves of the next iteration are evaluated
+    	insertRoute.getAggregates(instance);
+    	deleteRoute.getAggregates(instance);
     }   // end operateOn
     
+    /**
+     * Compute, before the move is made, the variation of the solution hash:
+     * the arcs around the customer are replaced by the arc joining its neighbours
+     * in the delete route, the arc where it is inserted is replaced by the two arcs
+     * through it in the insert route
+     * @param deleteRoute
+     * @param insertRoute
+     * @return the xor of the hashes of the arcs removed and added
+     */
+    private long hashVariation(Route deleteRoute, Route insertRoute) {
+    	int c = customer.getNumber();
+    	int before = node(deleteRoute, deletePositionIndex - 1);
+    	int after = node(deleteRoute, deletePositionIndex + 1);
+    	long variation = MyTSsolution.arcHash(before, c) ^ MyTSsolution.arcHash(c, after) ^ MyTSsolution.arcHash(before, after);
+    	before = node(insertRoute, insertPositionIndex - 1);
+    	after = node(insertRoute, insertPositionIndex);
+    	variation ^= MyTSsolution.arcHash(before, after) ^ MyTSsolution.arcHash(before, c) ^ MyTSsolution.arcHash(c, after);
+    	return variation;
+    }
+    
+    // number of the customer at the given position of the route, the depot outside the route
+    private static int node(Route route, int position) {
+    	if (position < 0 || position >= route.getCustomersLength())
+    		return route.getDepotNr();
+    	return route.getCustomerNr(position);
+    }
+    
     /**
      * Set the insert position index of the move
      * (is done in objective function, for performance factor)
@@ -67,6 +143,29 @@ public class MySwapMove implements ComplexMove {
 		return new int[]{ insertDepotNr, insertRouteNr, customer.getNumber(), 0, 0};
 	}
 	
+	@Override
+	public long deleteKey() {
+		return key(instance, deleteDepotNr, deleteRouteNr, customer.getNumber());
+	}
+	
+	@Override
+	public long insertKey() {
+		return key(instance, insertDepotNr, insertRouteNr, customer.getNumber());
+	}
+	
+	/**
+	 * Key of the attributes {depot, route, customer, 0, 0} over the dimensions
+	 * {depots, vehicles, customers, 1, 1} of the tabu list and of the frequency memory
+	 * @param instance
+	 * @param depot
+	 * @param route
+	 * @param customer
+	 * @return
+	 */
+	public static long key(Instance instance, int depot, int route, int customer) {
+		return ((long)depot * instance.getVehiclesNr() + route) * instance.getCustomersNr() + customer;
+	}
+	
     private void evaluateTotalCostVariation(MyTSsolution sol, MySwapMove move,
 			Cost initialInsertCost, Cost initialDeleteCost) 
     {
@@ -552,4 +651,18 @@ public class MySwapMove implements ComplexMove {
 	public int getInsertPositionIndex() {
 		return insertPositionIndex;
 	}
+
+	/**
+	 * @return the first insertion position the objective function tries
+	 */
+	public int getFirstInsertPositionIndex() {
+		return firstInsertPositionIndex;
+	}
+
+	/**
+	 * @return the last insertion position the objective function tries, beyond the route for all
+	 */
+	public int getLastInsertPositionIndex() {
+		return lastInsertPositionIndex;
+	}
 }   // end class MySwapMove
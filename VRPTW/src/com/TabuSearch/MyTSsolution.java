@@ -1,8 +1,14 @@
 package com.TabuSearch;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
+import org.coinor.opents.AttributeMemory;
+import org.coinor.opents.KeyedComplexMove;
 import org.coinor.opents.SolutionAdapter;
 
 import com.mdvrp.Cost;
@@ -27,7 +33,8 @@ public class MyTSsolution extends SolutionAdapter{
 	private double upLimit;
 	private double resetValue;
 	private int feasibleIndex;
-	private int[][][] Bs;
+	private AttributeMemory Bs;		// long term frequency of each (customer, route) attribute, shared by the clones
+	private long hash;				// Zobrist hash of the arcs of the routes, see updateHash()
 	private List<MySwapMove> moves = new ArrayList<MySwapMove>();
 	private List<Cost> costs = new ArrayList<Cost>();
 	private Customer GACustArray[];
@@ -52,7 +59,19 @@ public class MyTSsolution extends SolutionAdapter{
     	resetValue = 0.1;
     	feasibleIndex = 0;
     	MyTSsolution.setIterationsDone(0);
-    	Bs = new int[instance.getCustomersNr()][instance.getVehiclesNr()][instance.getDepotsNr()];		
+    	Bs = AttributeMemory.create((long)instance.getDepotsNr() * instance.getVehiclesNr() * instance.getCustomersNr());
+	}
+	
+	/**
+	 * Build a solution whose start customers are drawn from the given generator;
+	 * used by the multi-start search, so the routes are detached from the instance
+	 * @param instance
+	 * @param random
+	 */
+	public MyTSsolution(Instance instance, Random random) {
+		this(instance, false);
+		buildInitialRoutes1(instance, random);
+		detachRoutes();
 	}
 	
 	public Object clone()
@@ -62,7 +81,7 @@ public class MyTSsolution extends SolutionAdapter{
         for (int i = 0; i < this.routes.length; ++i) {
         	routescopy[i] = new Route[this.routes[i].length];
         	for (int j = 0; j < this.routes[i].length; ++j)
-        		routescopy[i][j] = new Route(this.routes[i][j]);
+        		routescopy[i][j] = this.routes[i][j].share();	// customers copied on write
         }
         copy.routes        = routescopy;
         copy.cost          = new Cost(this.cost);
@@ -83,12 +102,92 @@ public class MyTSsolution extends SolutionAdapter{
 		this.upLimit = upLimit;
 		this.resetValue = resetValue;
 	}
-	public void incrementBs(MySwapMove move){
-		Bs[move.getCustomerNr()][move.getDeleteRouteNr()][move.getDeleteDepotNr()]++;
+	/**
+	 * Reset the penalty parameters alpha, beta and gamma to their initial value
+	 */
+	public void resetParameters(){
+		alpha = 1;
+		beta  = 1;
+		gamma = 1;
+	}
+	
+	public void incrementBs(KeyedComplexMove move){
+		Bs.increment(move.deleteKey());
+	}
+	
+	public int getBs(KeyedComplexMove move){
+		return Bs.get(move.deleteKey());
+	}
+	
+	/**
+	 * Let the long term frequency memory forget: multiply each frequency by factor
+	 * @param factor
+	 */
+	public void decayBs(double factor){
+		Bs.scale(factor);
+	}
+	
+	/**
+	 * Write the frequency memory, shared by the clones
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeBs(DataOutput out) throws IOException {
+		Bs.write(out);
+	}
+	
+	/**
+	 * Restore the frequency memory written by writeBs()
+	 * @param in
+	 * @throws IOException
+	 */
+	public void readBs(DataInput in) throws IOException {
+		Bs.read(in);
+	}
+	
+	/**
+	 * Write the state of the solution: routes, cost, objective value, penalty parameters
+	 * and hash; the frequency memory is written by writeBs()
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		MyCheckpoint.writeRoutes(out, routes);
+		MyCheckpoint.writeCost(out, cost);
+		double[] objective = getObjectiveValue();
+		out.writeInt(objective.length);
+		for (int i = 0; i < objective.length; ++i)
+			out.writeDouble(objective[i]);
+		out.writeDouble(alpha);
+		out.writeDouble(beta);
+		out.writeDouble(gamma);
+		out.writeDouble(delta);
+		out.writeDouble(upLimit);
+		out.writeDouble(resetValue);
+		out.writeInt(feasibleIndex);
+		out.writeLong(hash);
 	}
 	
-	public int getBs(MySwapMove move){
-		return Bs[move.getCustomerNr()][move.getDeleteRouteNr()][move.getDeleteDepotNr()];
+	/**
+	 * Restore the state written by write(), the solution gets new routes
+	 * @param in
+	 * @throws IOException
+	 */
+	public void read(DataInput in) throws IOException {
+		routes = MyCheckpoint.readRoutes(in, routes);
+		cost = MyCheckpoint.readCost(in);
+		double[] objective = new double[in.readInt()];
+		for (int i = 0; i < objective.length; ++i)
+			objective[i] = in.readDouble();
+		setObjectiveValue(objective);
+		alpha = in.readDouble();
+		beta = in.readDouble();
+		gamma = in.readDouble();
+		delta = in.readDouble();
+		upLimit = in.readDouble();
+		resetValue = in.readDouble();
+		feasibleIndex = in.readInt();
+		hash = in.readLong();
 	}
 	
 	public void addMove(MySwapMove move){
@@ -104,7 +203,7 @@ public class MyTSsolution extends SolutionAdapter{
 	}
 	
 	public int getBsOfMove(MySwapMove move) {
-		return Bs[move.getCustomerNr()][move.getInsertRouteNr()][move.getInsertDepotNr()];
+		return Bs.get(move.insertKey());
 	}
 
 	public void updateParameters(double a, double b, double g) {
@@ -173,16 +272,11 @@ public class MyTSsolution extends SolutionAdapter{
 	 * Build the initial routes
 	 */
 	public void buildInitialRoutes1(Instance instance) {
-		Route route; // stores the pointer to the current route
-		Customer customerChosenPtr; // stores the pointer to the customer chosen from depots list assigned customers
-		StringBuffer debug = new StringBuffer();
 		int assignedCustomersNr;
 		int startCustomer;
-		int customerChosen; // serve to cycle j, j+1, ... assignedcustomersnr, 0, ... j-1
 
 		// cycle the list of depots
 		for( int i = 0; i < instance.getDepotsNr(); ++i) {
-			debug.append("\n");
 			assignedCustomersNr = instance.getDepot(i).getAssignedCustomersNr();
 			if(instance.getParameters().getStartClient() != -1) {
 				startCustomer = instance.getParameters().getStartClient();
@@ -190,37 +284,75 @@ public class MyTSsolution extends SolutionAdapter{
 				startCustomer = instance.getRandom().nextInt(assignedCustomersNr);
 				instance.getParameters().setStartClient(startCustomer);
 			}
-			// cycle the entire list of customers starting from the randomly chosen one
-			for (int j = startCustomer; j < assignedCustomersNr + startCustomer; ++j) {
-				// serve to cycle j, j+1, ... assignedcustomersnr, 0, ... j-1
-				customerChosen = j % assignedCustomersNr;
-
-				// stores the pointer to the customer chosen from depots list assigned customers
-				customerChosenPtr = instance.getDepot(i).getAssignedCustomer(customerChosen);
-				// cycle the routes until the last one
-				int k;
-				for(k= 0; k < instance.getVehiclesNr() - 1; ++k){
-					// stores the pointer to the current route
-					route = routes[i][k];
-
-					// accept on the route only if satisfy the load and duration
-					if (customerChosenPtr.getCapacity() + route.getCost().load <= route.getLoadAdmited()
-					 && customerChosenPtr.getServiceDuration() + route.getDuration()  <= route.getDurationAdmited()){
-						insertBestTravel(instance, route, customerChosenPtr);
-						evaluateRoute(route);
-						break;
-					}
-				} // end for routes
-				// if the customer was not inserted and we reach the last route
-				// insert it anyway
-				if(k == instance.getVehiclesNr() - 1){
-					insertBestTravel(instance, routes[i][k], customerChosenPtr);
-					evaluateRoute(routes[i][k]);
-				}
-			} // end for customer list
+			buildDepotRoutes(instance, i, startCustomer);
+		}
+	}
+	
+	/**
+	 * Build the initial routes starting each depot from a customer drawn from random;
+	 * the start client of the parameters is neither used nor updated
+	 * @param instance
+	 * @param random
+	 */
+	public void buildInitialRoutes1(Instance instance, Random random) {
+		// cycle the list of depots
+		for( int i = 0; i < instance.getDepotsNr(); ++i) {
+			buildDepotRoutes(instance, i, random.nextInt(instance.getDepot(i).getAssignedCustomersNr()));
 		}
 	}
 	
+	/**
+	 * Build the routes of depot i inserting its customers starting from startCustomer
+	 * @param instance
+	 * @param i
+	 * @param startCustomer
+	 */
+	private void buildDepotRoutes(Instance instance, int i, int startCustomer) {
+		Route route; // stores the pointer to the current route
+		Customer customerChosenPtr; // stores the pointer to the customer chosen from depots list assigned customers
+		int assignedCustomersNr = instance.getDepot(i).getAssignedCustomersNr();
+		int customerChosen; // serve to cycle j, j+1, ... assignedcustomersnr, 0, ... j-1
+
+		// cycle the entire list of customers starting from the randomly chosen one
+		for (int j = startCustomer; j < assignedCustomersNr + startCustomer; ++j) {
+			// serve to cycle j, j+1, ... assignedcustomersnr, 0, ... j-1
+			customerChosen = j % assignedCustomersNr;
+
+			// stores the pointer to the customer chosen from depots list assigned customers
+			customerChosenPtr = instance.getDepot(i).getAssignedCustomer(customerChosen);
+			// cycle the routes until the last one
+			int k;
+			for(k= 0; k < instance.getVehiclesNr() - 1; ++k){
+				// stores the pointer to the current route
+				route = routes[i][k];
+
+				// accept on the route only if satisfy the load and duration
+				if (customerChosenPtr.getCapacity() + route.getCost().load <= route.getLoadAdmited()
+				 && customerChosenPtr.getServiceDuration() + route.getDuration()  <= route.getDurationAdmited()){
+					insertBestTravel(instance, route, customerChosenPtr);
+					evaluateRoute(route);
+					break;
+				}
+			} // end for routes
+			// if the customer was not inserted and we reach the last route
+			// insert it anyway
+			if(k == instance.getVehiclesNr() - 1){
+				insertBestTravel(instance, routes[i][k], customerChosenPtr);
+				evaluateRoute(routes[i][k]);
+			}
+		} // end for customer list
+	}
+	
+	/**
+	 * Replace each route with a copy of it, so that the customers of this
+	 * solution are no longer shared with the instance (or with other solutions)
+	 */
+	public void detachRoutes() {
+		for (int i = 0; i < routes.length; ++i)
+			for (int j = 0; j < routes[i].length; ++j)
+				routes[i][j] = new Route(routes[i][j]);
+	}
+	
 	
 	private void insertBestTravel(Instance instance, Route route, Customer customerChosenPtr) {
 		double minCost = Double.MAX_VALUE;
@@ -458,7 +590,57 @@ public class MyTSsolution extends SolutionAdapter{
 
 	public void setRoutes(Route[][] routes) {
 		this.routes = routes;
-		
+		updateHash();
+	}
+
+	/**
+	 * Compute from scratch the hash of the solution: the xor of the hashes of the arcs
+	 * of its routes. It does not depend on which vehicle runs a route, and empty routes
+	 * do not count. The moves keep it up to date in O(1) with xorHash().
+	 */
+	public void updateHash() {
+		hash = 0;
+		for (int i = 0; i < routes.length; ++i)
+			for (int j = 0; j < routes[i].length; ++j) {
+				Route route = routes[i][j];
+				int previous = route.getDepotNr();
+				for (int k = 0; k < route.getCustomersLength(); ++k) {
+					hash ^= arcHash(previous, route.getCustomerNr(k));
+					previous = route.getCustomerNr(k);
+				}
+				hash ^= arcHash(previous, route.getDepotNr());
+			}
+	}
+
+	/**
+	 * Hash of the arc between two nodes (customers or depots), zero for the
+	 * depot - depot arc of an empty route
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	public static long arcHash(int from, int to) {
+		if (from == to)
+			return 0;
+		// mix the arc with the finalizer of splitmix64: no table to store
+		long z = ((long)from << 32 | to) + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @param variation the xor of the hashes of the arcs added and removed by a move
+	 */
+	public void xorHash(long variation) {
+		hash ^= variation;
+	}
+
+	/**
+	 * @return the hash of the solution
+	 */
+	public long getHash() {
+		return hash;
 	}
 
 	public void setFeasibleIndex(int feasibleIndex) {
@@ -1,22 +1,87 @@
 package com.TabuSearch;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
 import org.coinor.opents.*;
 
+/**
+ * Tabu list of the swap moves.
+ * With a variable tenure, every 2 * maxTenure iterations the tenure is drawn
+ * at random in [minTenure, maxTenure], half and one and a half the base tenure.
+ */
 @SuppressWarnings("serial")
 public class MyTabuList extends ComplexTabuList implements TabuSearchListener{
 	
+	private Random random;			// null if the tenure is fixed
+	private int minTenure;
+	private int maxTenure;
+	private int tenureIterations;	// iterations left before drawing the next tenure
+	
 	public MyTabuList ( int tenure, int[] attrDim ) {
 		super(tenure, attrDim);
 	}
 	
+	/**
+	 * Make the tenure vary around the current one
+	 * @param random the generator drawing the tenures
+	 */
+	public void setVariableTenure(Random random) {
+		this.random = random;
+		minTenure = Math.max(1, getTenure() / 2);
+		maxTenure = Math.max(minTenure, getTenure() * 3 / 2);
+		tenureIterations = 0;
+	}
+	
+	/**
+	 * Write the state of the list, the variable tenure included
+	 */
+	@Override
+	public void write(DataOutput out) throws IOException {
+		super.write(out);
+		out.writeBoolean(random != null);
+		if (random != null) {
+			MyCheckpoint.writeRandom(out, random);
+			out.writeInt(minTenure);
+			out.writeInt(maxTenure);
+			out.writeInt(tenureIterations);
+		}
+	}
+	
+	/**
+	 * Restore the state written by write()
+	 */
+	@Override
+	public void read(DataInput in) throws IOException {
+		super.read(in);
+		if (in.readBoolean()) {
+			random = MyCheckpoint.readRandom(in);
+			minTenure = in.readInt();
+			maxTenure = in.readInt();
+			tenureIterations = in.readInt();
+		}
+		else
+			random = null;
+	}
+	
 	@Override
 	public void improvingMoveMade(TabuSearchEvent arg0) {}
 
 	@Override
 	public void newBestSolutionFound(TabuSearchEvent arg0) {}
 
+	/**
+	 * Draw the next tenure if it is variable and the current one expired
+	 */
 	@Override
-	public void newCurrentSolutionFound(TabuSearchEvent arg0) {}
+	public void newCurrentSolutionFound(TabuSearchEvent arg0) {
+		if (random != null && --tenureIterations <= 0) {
+			setTenure(minTenure + random.nextInt(maxTenure - minTenure + 1));
+			tenureIterations = 2 * maxTenure;
+		}
+	}
 
 	@Override
 	public void noChangeInValueMoveMade(TabuSearchEvent arg0) {}
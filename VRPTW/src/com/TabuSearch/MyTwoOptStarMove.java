@@ -0,0 +1,214 @@
+package com.TabuSearch;
+
+import java.util.ArrayList;
+
+import org.coinor.opents.*;
+
+import com.mdvrp.Cost;
+import com.mdvrp.Customer;
+import com.mdvrp.Instance;
+import com.mdvrp.Route;
+
+/**
+ * 2-opt* move: exchange the tails of two routes of the same depot.
+ * The first route keeps its first firstPosition customers followed by the customers
+ * of the second route from secondPosition on, the second route keeps its first
+ * secondPosition customers followed by the customers of the first route from
+ * firstPosition on. An empty tail is allowed, so the move can also empty a route.
+ * The tabu attributes are those of the customer starting the tail of the first route
+ * leaving it, and of the customer starting the tail of the second route entering it
+ * (the other route if the tail is empty), as for the swap move.
+ */
+@SuppressWarnings("serial")
+public class MyTwoOptStarMove implements KeyedComplexMove {
+	private Instance instance;
+	private int depotNr;
+	private int firstRouteNr;
+	private int firstPosition;
+	private int secondRouteNr;
+	private int secondPosition;
+	private int deleteRouteNr;		// route left by the customer of the tabu attributes
+	private int deleteCustomerNr;
+	private int insertRouteNr;		// route entered by the customer of the tabu attributes
+	private int insertCustomerNr;
+
+	/**
+	 * @param instance
+	 * @param solution the solution the move is made on
+	 * @param depotNr
+	 * @param firstRouteNr
+	 * @param firstPosition the first customer of the tail of the first route
+	 * @param secondRouteNr
+	 * @param secondPosition the first customer of the tail of the second route
+	 */
+	public MyTwoOptStarMove(Instance instance, MyTSsolution solution, int depotNr, int firstRouteNr, int firstPosition, int secondRouteNr, int secondPosition)
+	{
+		this.instance       = instance;
+		this.depotNr        = depotNr;
+		this.firstRouteNr   = firstRouteNr;
+		this.firstPosition  = firstPosition;
+		this.secondRouteNr  = secondRouteNr;
+		this.secondPosition = secondPosition;
+
+		Route first = solution.getRoute(depotNr, firstRouteNr);
+		Route second = solution.getRoute(depotNr, secondRouteNr);
+		if (firstPosition < first.getCustomersLength()) {
+			deleteRouteNr = firstRouteNr;
+			deleteCustomerNr = first.getCustomerNr(firstPosition);
+		} else {
+			deleteRouteNr = secondRouteNr;
+			deleteCustomerNr = second.getCustomerNr(secondPosition);
+		}
+		if (secondPosition < second.getCustomersLength()) {
+			insertRouteNr = firstRouteNr;
+			insertCustomerNr = second.getCustomerNr(secondPosition);
+		} else {
+			insertRouteNr = secondRouteNr;
+			insertCustomerNr = first.getCustomerNr(firstPosition);
+		}
+	}   // end constructor
+
+	/**
+	 * Exchange the tails of the routes and evaluate them from scratch
+	 * @param solution
+	 */
+	public void operateOn( Solution solution )
+	{
+		MyTSsolution sol = (MyTSsolution)solution;
+		Route first = sol.getRoute(depotNr, firstRouteNr);
+		Route second = sol.getRoute(depotNr, secondRouteNr);
+		// the routes may share their customers with snapshots of the solution
+		first.copyOnWrite();
+		second.copyOnWrite();
+		Cost initialFirstCost = new Cost(first.getCost());
+		Cost initialSecondCost = new Cost(second.getCost());
+		sol.xorHash(hashVariation(first, second));
+
+		ArrayList<Customer> firstCustomers = new ArrayList<>(first.getCustomers().subList(0, firstPosition));
+		firstCustomers.addAll(second.getCustomers().subList(secondPosition, second.getCustomersLength()));
+		ArrayList<Customer> secondCustomers = new ArrayList<>(second.getCustomers().subList(0, secondPosition));
+		secondCustomers.addAll(first.getCustomers().subList(firstPosition, first.getCustomersLength()));
+		first.setCustomers(firstCustomers);
+		second.setCustomers(secondCustomers);
+		MyObjectiveFunction.evaluateRoute(first);
+		MyObjectiveFunction.evaluateRoute(second);
+
+		evaluateTotalCostVariation(sol, first, second, initialFirstCost, initialSecondCost);
+		sol.incrementBs(this);
+	}   // end operateOn
+
+	/**
+	 * Compute, before the move is made, the variation of the solution hash:
+	 * the arcs entering the tails are replaced by the arcs joining each head
+	 * to the tail of the other route
+	 * @param first
+	 * @param second
+	 * @return the xor of the hashes of the arcs removed and added
+	 */
+	private long hashVariation(Route first, Route second) {
+		int firstBefore = node(first, firstPosition - 1);
+		int firstAfter = node(first, firstPosition);
+		int secondBefore = node(second, secondPosition - 1);
+		int secondAfter = node(second, secondPosition);
+		return MyTSsolution.arcHash(firstBefore, firstAfter) ^ MyTSsolution.arcHash(secondBefore, secondAfter)
+				^ MyTSsolution.arcHash(firstBefore, secondAfter) ^ MyTSsolution.arcHash(secondBefore, firstAfter);
+	}
+
+	// number of the customer at the given position of the route, the depot outside the route
+	private static int node(Route route, int position) {
+		if (position < 0 || position >= route.getCustomersLength())
+			return route.getDepotNr();
+		return route.getCustomerNr(position);
+	}
+
+	private void evaluateTotalCostVariation(MyTSsolution sol, Route first, Route second,
+			Cost initialFirstCost, Cost initialSecondCost)
+	{
+		sol.addTravelTime( - initialFirstCost.travelTime - initialSecondCost.travelTime
+		                   + first.getCost().travelTime + second.getCost().travelTime);
+		sol.addServiceTime( - initialFirstCost.serviceTime - initialSecondCost.serviceTime
+		                    + first.getCost().serviceTime + second.getCost().serviceTime);
+		sol.addWaitingTime( - initialFirstCost.waitingTime - initialSecondCost.waitingTime
+		                    + first.getCost().waitingTime + second.getCost().waitingTime);
+		sol.getCost().loadViol += - initialFirstCost.loadViol - initialSecondCost.loadViol
+		                          + first.getCost().loadViol + second.getCost().loadViol;
+		sol.getCost().durationViol += - initialFirstCost.durationViol - initialSecondCost.durationViol
+		                              + first.getCost().durationViol + second.getCost().durationViol;
+		sol.getCost().twViol += - initialFirstCost.twViol - initialSecondCost.twViol
+		                        + first.getCost().twViol + second.getCost().twViol;
+
+		sol.getCost().waitingTime = Math.abs(sol.getCost().waitingTime) < instance.getPrecision() ? 0 : sol.getCost().waitingTime;
+		sol.getCost().loadViol = Math.abs(sol.getCost().loadViol) < instance.getPrecision() ? 0 : sol.getCost().loadViol;
+		sol.getCost().durationViol = Math.abs(sol.getCost().durationViol) < instance.getPrecision() ? 0 : sol.getCost().durationViol;
+		sol.getCost().twViol = Math.abs(sol.getCost().twViol) < instance.getPrecision() ? 0 : sol.getCost().twViol;
+
+		sol.getCost().calculateTotal(sol.getAlpha(), sol.getBeta(), sol.getGamma());
+	}
+
+	@Override
+	public int[] attributesDelete() {
+		return new int[]{ depotNr, deleteRouteNr, deleteCustomerNr, 0, 0};
+	}
+
+	@Override
+	public int[] attributesInsert() {
+		return new int[]{ depotNr, insertRouteNr, insertCustomerNr, 0, 0};
+	}
+
+	@Override
+	public long deleteKey() {
+		return MySwapMove.key(instance, depotNr, deleteRouteNr, deleteCustomerNr);
+	}
+
+	@Override
+	public long insertKey() {
+		return MySwapMove.key(instance, depotNr, insertRouteNr, insertCustomerNr);
+	}
+
+	/**
+	 * This function returns a string containing the move information in readable format
+	 */
+	public String toString() {
+		StringBuffer print = new StringBuffer();
+		print.append("--- 2-opt* Depot " + depotNr + "-------------------------------------");
+		print.append("\n" + "| FirstRoute=" + firstRouteNr + " FirstPosition=" + firstPosition);
+		print.append("\n" + "| SecondRoute=" + secondRouteNr + " SecondPosition=" + secondPosition);
+		print.append("\n" + "--------------------------------------------------");
+		return print.toString();
+	}
+
+	/**
+	 * @return the depotNr
+	 */
+	public int getDepotNr() {
+		return depotNr;
+	}
+
+	/**
+	 * @return the firstRouteNr
+	 */
+	public int getFirstRouteNr() {
+		return firstRouteNr;
+	}
+
+	/**
+	 * @return the first customer of the tail of the first route
+	 */
+	public int getFirstPosition() {
+		return firstPosition;
+	}
+
+	/**
+	 * @return the secondRouteNr
+	 */
+	public int getSecondRouteNr() {
+		return secondRouteNr;
+	}
+
+	/**
+	 * @return the first customer of the tail of the second route
+	 */
+	public int getSecondPosition() {
+		return secondPosition;
+	}
+}   // end class MyTwoOptStarMove
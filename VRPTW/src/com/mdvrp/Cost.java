@@ -50,6 +50,22 @@ public class Cost {
 		this.depotTwViol       = new Double(cost.depotTwViol);		
 	}
 
+	// copy the cost passed as parameter into this one, without allocating a new cost
+	public void copy(Cost cost) {
+		this.total             = cost.total;
+		this.travelTime        = cost.travelTime;
+		this.load              = cost.load;
+		this.serviceTime       = cost.serviceTime;
+		this.waitingTime       = cost.waitingTime;
+		
+		this.loadViol          = cost.loadViol;
+		this.durationViol      = cost.durationViol;
+		this.twViol            = cost.twViol;
+		
+		this.returnToDepotTime = cost.returnToDepotTime;
+		this.depotTwViol       = cost.depotTwViol;
+	}
+
 	
 	public String toString() {
 		StringBuffer print = new StringBuffer();
@@ -26,6 +26,7 @@ public class Instance {
 	private double[][] durations;
 	private double[][] capacities;
 	private double[][] distances;
+	private int[][] neighbors;		// nearest customers of each customer, nearest first
 	private Route[][] routes;
 	private Random random 					= new Random();
 	private Parameters parameters;
@@ -120,6 +121,7 @@ public class Instance {
 				parameters.setTabuTenure((int)(Math.sqrt(getCustomersNr())));
 			
 			calculateDistances();
+			calculateNeighbors(parameters.getNeighborsNr());
 			assignCustomersToDepots();			
 			calculateAngles();
 			sortAssignedCustomers();
@@ -294,6 +296,141 @@ public class Instance {
 			}		
 	}
 	
+	/**
+	 * Calculate for each customer its nearest customers, sorted by distance.
+	 * The customers are put in a square grid of about two customers per cell, and the cells
+	 * around each customer are searched ring by ring until no farther cell can hold a nearer
+	 * customer, so the rows of the distances matrix are not sorted
+	 * @param neighborsNr the neighbors of each customer, at most all the other customers
+	 */
+	public void calculateNeighbors(int neighborsNr) {
+		int k = Math.max(0, Math.min(neighborsNr, customersNr - 1));
+		neighbors = new int[customersNr][];
+		if (customersNr == 0)
+			return;
+		
+		// the grid over the bounding box of the customers
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (Customer customer : customers) {
+			minX = Math.min(minX, customer.getXCoordinate());
+			minY = Math.min(minY, customer.getYCoordinate());
+			maxX = Math.max(maxX, customer.getXCoordinate());
+			maxY = Math.max(maxY, customer.getYCoordinate());
+		}
+		int side = Math.max(1, (int)Math.ceil(Math.sqrt(customersNr / 2.0)));
+		double cellSize = Math.max(maxX - minX, maxY - minY) / side;
+		if (cellSize == 0)
+			cellSize = 1;
+		// customers of each cell: cellCustomers[cellStart[c]] to cellCustomers[cellStart[c + 1] - 1]
+		int[] cellOf = new int[customersNr];
+		int[] cellStart = new int[side * side + 1];
+		for (int i = 0; i < customersNr; ++i) {
+			cellOf[i] = cell(customers.get(i).getXCoordinate(), minX, cellSize, side) * side
+			          + cell(customers.get(i).getYCoordinate(), minY, cellSize, side);
+			cellStart[cellOf[i] + 1]++;
+		}
+		for (int c = 0; c < side * side; ++c)
+			cellStart[c + 1] += cellStart[c];
+		int[] cellCustomers = new int[customersNr];
+		int[] next = cellStart.clone();
+		for (int i = 0; i < customersNr; ++i)
+			cellCustomers[next[cellOf[i]]++] = i;
+		
+		// the k nearest customers found so far, in a heap with the farthest on top
+		int[] heapCustomers = new int[k];
+		double[] heapDistances = new double[k];
+		for (int i = 0; i < customersNr; ++i) {
+			int size = 0;
+			int x = cellOf[i] / side;
+			int y = cellOf[i] % side;
+			for (int ring = 0; ring < side; ++ring) {
+				for (int cx = Math.max(0, x - ring); cx <= Math.min(side - 1, x + ring); ++cx)
+					for (int cy = Math.max(0, y - ring); cy <= Math.min(side - 1, y + ring); ++cy) {
+						if (Math.max(Math.abs(cx - x), Math.abs(cy - y)) != ring)
+							continue;
+						int c = cx * side + cy;
+						for (int m = cellStart[c]; m < cellStart[c + 1]; ++m) {
+							int j = cellCustomers[m];
+							if (j == i || k == 0)
+								continue;
+							double distance = Math.hypot(customers.get(i).getXCoordinate() - customers.get(j).getXCoordinate(),
+									customers.get(i).getYCoordinate() - customers.get(j).getYCoordinate());
+							if (size < k) {
+								heapCustomers[size] = j;
+								heapDistances[size] = distance;
+								siftUp(heapCustomers, heapDistances, size++);
+							} else if (farther(heapDistances[0], heapCustomers[0], distance, j)) {
+								heapCustomers[0] = j;
+								heapDistances[0] = distance;
+								siftDown(heapCustomers, heapDistances, 0, size);
+							}
+						}
+					}
+				// the cells of the next rings are at least ring * cellSize far
+				if (size == k && heapDistances[0] < ring * cellSize)
+					break;
+			}
+			// empty the heap, the farthest first
+			neighbors[i] = new int[size];
+			while (size > 0) {
+				neighbors[i][size - 1] = heapCustomers[0];
+				heapCustomers[0] = heapCustomers[size - 1];
+				heapDistances[0] = heapDistances[size - 1];
+				siftDown(heapCustomers, heapDistances, 0, --size);
+			}
+		}
+	}
+	
+	// cell of the grid holding the coordinate
+	private static int cell(double coordinate, double min, double cellSize, int side) {
+		return Math.min(side - 1, (int)((coordinate - min) / cellSize));
+	}
+	
+	// true if the first customer is farther than the second one, the ties broken by number
+	private static boolean farther(double distance1, int customer1, double distance2, int customer2) {
+		return distance1 > distance2 || (distance1 == distance2 && customer1 > customer2);
+	}
+	
+	private static void siftUp(int[] heapCustomers, double[] heapDistances, int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (!farther(heapDistances[i], heapCustomers[i], heapDistances[parent], heapCustomers[parent]))
+				return;
+			swap(heapCustomers, heapDistances, i, parent);
+			i = parent;
+		}
+	}
+	
+	private static void siftDown(int[] heapCustomers, double[] heapDistances, int i, int size) {
+		while (2 * i + 1 < size) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && farther(heapDistances[child + 1], heapCustomers[child + 1], heapDistances[child], heapCustomers[child]))
+				child++;
+			if (!farther(heapDistances[child], heapCustomers[child], heapDistances[i], heapCustomers[i]))
+				return;
+			swap(heapCustomers, heapDistances, i, child);
+			i = child;
+		}
+	}
+	
+	private static void swap(int[] heapCustomers, double[] heapDistances, int i, int j) {
+		int customer = heapCustomers[i];
+		heapCustomers[i] = heapCustomers[j];
+		heapCustomers[j] = customer;
+		double distance = heapDistances[i];
+		heapDistances[i] = heapDistances[j];
+		heapDistances[j] = distance;
+	}
+	
+	/**
+	 * @param customer the number of the customer
+	 * @return the numbers of its nearest customers, nearest first
+	 */
+	public int[] getNeighbors(int customer) {
+		return neighbors[customer];
+	}
+	
 	/**
 	 * Calculates the angles between customers and depots
 	 */
@@ -2,11 +2,16 @@
 
 import java.io.FileWriter;
 import java.io.PrintStream;
+import java.util.concurrent.Future;
 
+import org.coinor.opents.Solution;
 import org.coinor.opents.TabuList;
 
+import com.TabuSearch.MyCheckpoint;
 import com.TabuSearch.MyMoveManager;
+import com.TabuSearch.MyMultiStartSearch;
 import com.TabuSearch.MyObjectiveFunction;
+import com.TabuSearch.MyReactiveTabuList;
 import com.TabuSearch.MySearchProgram;
 import com.TabuSearch.MyTSsolution;
 import com.TabuSearch.MyTabuList;
@@ -24,10 +29,12 @@ public class MDVRPTW {
 		Instance instance; 							// holds all the problem data extracted from the input file
 		Duration duration = new Duration(); 		// used to calculate the elapsed time
 		PrintStream outPrintSream = null; 			// used to redirect the output
+		long deadline = 0;							// time at which the search has to stop, 0 = none
 
 		// Tabu search variables
 		MySearchProgram TSsearch;
 		MyTSsolution initial_TS_sol;
+		MyTSsolution best_TS_sol;
 		MyObjectiveFunction objFunc;
 		MyMoveManager moveManager;
 		TabuList tabuList;
@@ -52,6 +59,10 @@ public class MDVRPTW {
 
 			duration.start();
 			MyLog.info(class_name, "main", "time counting started");
+			if (parameters.getTimeLimit() > 0) {
+				deadline = System.currentTimeMillis() + (long)(parameters.getTimeLimit() * 1000);
+				MyLog.info(class_name, "main", "the search stops within " + parameters.getTimeLimit() + " seconds");
+			}
 
 			// get the instance from the file
 			instance = new Instance(parameters);
@@ -66,6 +77,9 @@ public class MDVRPTW {
 				MyLog.info(class_name, "main", "creating required GA data structure");
 				GAsearch = new GARoute(parameters, instance);
 				MyLog.info(class_name, "main", "new GARoute(parameters, instance) => GA search program created");			
+				if (deadline != 0)
+					// the GA gets its share of the time left, the rest is for the TS
+					GAsearch.setDeadline(System.currentTimeMillis() + (long)((deadline - System.currentTimeMillis()) * parameters.getGaTimeShare()));
 				
 				MyLog.info(class_name, "main", "GAThread.start(); => START");
 				GAsearch.evolve();				 				
@@ -81,53 +95,76 @@ public class MDVRPTW {
 				MyLog.info(class_name, "main", "new MyTSsolution(instance) => initial solution instance created\n" + initial_TS_sol.toString());
 			}
 
-			objFunc = new MyObjectiveFunction(instance);
-			MyLog.info(class_name, "main", "new MyObjectiveFunction(instance) => objective function instance created and initialized with MyInitilaSolution");
-
-			moveManager = new MyMoveManager(instance);
-			MyLog.info(class_name, "main", "new MyMoveManager(instance) => move manager instance created");
-
-			moveManager.setMovesType(parameters.getMovesType());
-			MyLog.info(class_name, "main",
-					"moveManager.setMovesType(parameters.getMovesType()) => move type set to "
-							+ parameters.getMovesType());
-
-			// Tabu list
-			int dimension[] = {instance.getDepotsNr(), instance.getVehiclesNr(), instance.getCustomersNr(), 1, 1 };
-			MyLog.info(class_name, "main", "number of Depots: " + instance.getDepotsNr());
-			MyLog.info(class_name, "main", "number of Vehicles: " + instance.getVehiclesNr());
-			MyLog.info(class_name, "main", "number of Customers: " + instance.getCustomersNr());
-
-			tabuList = new MyTabuList(parameters.getTabuTenure(), dimension);
-			MyLog.info(class_name, "main", "new MyTabuList(parameters.getTabuTenure(), dimension) =>  Tabu List created");
-
-			// Create Tabu Search object
-			TSsearch = new MySearchProgram(instance, initial_TS_sol, moveManager, objFunc, tabuList, false, outPrintSream);
-			MyLog.info(class_name, "main", "new MySearchProgram(instance, initialSol, moveManager, objFunc, tabuList, false, outPrintSream) => TS search program created");
+			if (parameters.getStarts() > 1) {
+				// Independent searches from different initial solutions
+				MyMultiStartSearch multiStart = new MyMultiStartSearch(instance, initial_TS_sol);
+				MyLog.info(class_name, "main", "new MyMultiStartSearch(instance, initial_TS_sol) => " + parameters.getStarts() + " TS search programs created");
+				multiStart.setDeadline(deadline);
+				if (parameters.getCheckpointFile() != null || parameters.getResumeFile() != null)
+					MyLog.warning(class_name, "main", "checkpoints are supported by the single search only, ignored");
+
+				TSsearch = multiStart.solve();
+				best_TS_sol = (MyTSsolution) TSsearch.getTabuSearch().getBestSolution();
+				MyLog.info(class_name, "main", "multiStart.solve(); => STOP");
+			}
+			else {
+				objFunc = new MyObjectiveFunction(instance);
+				MyLog.info(class_name, "main", "new MyObjectiveFunction(instance) => objective function instance created and initialized with MyInitilaSolution");
+
+				moveManager = new MyMoveManager(instance);
+				MyLog.info(class_name, "main", "new MyMoveManager(instance) => move manager instance created");
+
+				moveManager.setMovesType(parameters.getMovesType());
+				MyLog.info(class_name, "main",
+						"moveManager.setMovesType(parameters.getMovesType()) => move type set to "
+								+ parameters.getMovesType());
+
+				// Tabu list
+				int dimension[] = {instance.getDepotsNr(), instance.getVehiclesNr(), instance.getCustomersNr(), 1, 1 };
+				MyLog.info(class_name, "main", "number of Depots: " + instance.getDepotsNr());
+				MyLog.info(class_name, "main", "number of Vehicles: " + instance.getVehiclesNr());
+				MyLog.info(class_name, "main", "number of Customers: " + instance.getCustomersNr());
+
+				if (parameters.isReactiveTenure())
+					tabuList = new MyReactiveTabuList(parameters.getTabuTenure(), dimension);
+				else
+					tabuList = new MyTabuList(parameters.getTabuTenure(), dimension);
+				MyLog.info(class_name, "main", "new MyTabuList(parameters.getTabuTenure(), dimension) =>  Tabu List created");
+
+				// Create Tabu Search object
+				TSsearch = new MySearchProgram(instance, initial_TS_sol, moveManager, objFunc, tabuList, false, outPrintSream);
+				MyLog.info(class_name, "main", "new MySearchProgram(instance, initialSol, moveManager, objFunc, tabuList, false, outPrintSream) => TS search program created");
+				TSsearch.addProgressListener("TS");
+				TSsearch.setDeadline(deadline);
+				if (parameters.getCheckpointFile() != null) {
+					MyCheckpoint checkpoint = new MyCheckpoint(TSsearch, parameters.getCheckpointFile(), parameters.getCheckpointInterval());
+					TSsearch.setCheckpoint(checkpoint);
+					checkpoint.addShutdownHook();
+					MyLog.info(class_name, "main", "the search is saved to " + parameters.getCheckpointFile());
+				}
 
-			// Start solving
-			TSsearch.getTabuSearch().setIterationsToGo(parameters.getIterations());
-			MyLog.info( class_name, "main", "search.tabuSearch.setIterationsToGo(parameters.getIterations()) => number of iterations = " + parameters.getIterations());
+				// Start solving
+				TSsearch.getTabuSearch().setIterationsToGo(parameters.getIterations());
+				MyLog.info( class_name, "main", "search.tabuSearch.setIterationsToGo(parameters.getIterations()) => number of iterations = " + parameters.getIterations());
+				if (parameters.getResumeFile() != null) {
+					MyCheckpoint.restore(TSsearch, parameters.getResumeFile());
+					// the iterations of the parameters are the total of the resumed search
+					TSsearch.getTabuSearch().setIterationsToGo(parameters.getIterations() - TSsearch.getTabuSearch().getIterationsCompleted());
+				}
 
-			TSsearch.getTabuSearch().startSolving();
-			MyLog.info(class_name, "main", "search.tabuSearch.startSolving(); => START");
+				Future<Solution> TSresult = TSsearch.solve();
+				MyLog.info(class_name, "main", "TSsearch.solve(); => START");
 
-			// wait for the search thread to finish
-			try {
-				// in order to apply wait on an object synchronization must be done
-				synchronized (instance) {
-					instance.wait();
-				}
-			} catch (InterruptedException e1) {
-				e1.printStackTrace();
-				MyLog.err(class_name, "main", e1.getMessage());
+				// wait for the search thread to finish
+				best_TS_sol = (MyTSsolution) TSresult.get();
+				MyLog.info(class_name, "main", "TSresult.get(); => STOP");
 			}
 
 			duration.stop();
 			MyLog.info(class_name, "main", "time counting stopped");
 			MyLog.info(class_name, "main", "total execution time = " + duration.toString());
 
-			MyLog.info(class_name, "main", "final solution = \n" + ((MyTSsolution)TSsearch.getTabuSearch().getBestSolution()).toString());
+			MyLog.info(class_name, "main", "final solution = \n" + best_TS_sol.toString());
 			// Count routes
 			int routesNr = 0;
 			for (int i = 0; i < TSsearch.feasibleRoutes.length; ++i)
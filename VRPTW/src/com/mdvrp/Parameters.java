@@ -13,6 +13,7 @@ public class Parameters {
 	private String outputFileName;
 	private String mode;
 	private boolean help;
+	private double timeLimit;		// seconds the solver may run (0 = no limit)
 	
 	// GA specific parameters 
 	private int chromosomeDim;
@@ -24,6 +25,7 @@ public class Parameters {
 	private int crossoverType;
 	private boolean computeStatistics;
     private double greedyRatio;    //ratio of greedy initial population (1 = all greedy, 0 = all random)
+	private double gaTimeShare;		// share of the time limit given to the GA in the gats mode
 
 	// TS specific parameters
 	private MovesType movesType;
@@ -33,6 +35,22 @@ public class Parameters {
 	private int randomSeed;
 	private int tabuTenure;
 	private boolean variableTenure;
+	private boolean reactiveTenure;	// reactive tabu search: tenure driven by the repetitions of the solutions
+	private int frequencyDecay;		// iterations between two halvings of the long term frequency memory (0 = no decay)
+	private int threads;			// threads evaluating the neighborhood
+	private int starts;				// independent searches of the multi-start mode
+	private int progressInterval;	// iterations between two progress logs (0 = no progress log)
+	private int exchangeInterval;	// iterations between two exchanges with the elite pool (0 = no exchange)
+	private int stagnationIterations;	// iterations without improvement before stopping or restarting (0 = never)
+	private boolean stagnationStop;	// stop the search when it stagnates instead of restarting it
+	private String checkpointFile;	// file the state of the search is saved to (null = no checkpoint)
+	private int checkpointInterval;	// iterations between two checkpoints (0 = only when the search stops)
+	private String resumeFile;		// checkpoint the search resumes from (null = new search)
+	private double sampleFraction;	// fraction of the neighborhood evaluated by the candidate list moves
+	private boolean adaptiveSample;	// adapt the sample fraction to the progress of the search
+	private boolean firstImproving;	// take the first improving non tabu move instead of the best one
+	private int neighborsNr;		// nearest neighbors of each customer in the granular neighborhood
+	private int ejectionDepth;		// customers ejected at most by an ejection chain move
 	private String currDir;	
 
 	
@@ -43,6 +61,7 @@ public class Parameters {
 		currDir 				= System.getProperty("user.dir");
 		outputFileName    		= currDir + "/output/solutions.csv";
 		help 					= false;
+		timeLimit				= 0;
 		
 		// GA specific parameters
 		chromosomeDim 			= 0; // depends on the number of clients + number of vehicles
@@ -54,6 +73,7 @@ public class Parameters {
 		mutationProb 			= 0.06;
 		computeStatistics 		= true;
 		greedyRatio 			= 0.3;
+		gaTimeShare				= 0.3;
 
 		// TS specific parameters
 		movesType         		= MovesType.SWAP;
@@ -63,6 +83,22 @@ public class Parameters {
 		tabuTenure        		= -1;
 		randomSeed		  		= -1;
 		variableTenure    		= false;
+		reactiveTenure			= false;
+		frequencyDecay			= 0;
+		threads					= Runtime.getRuntime().availableProcessors();
+		starts					= 1;
+		exchangeInterval		= 0;
+		stagnationIterations	= 0;
+		stagnationStop			= false;
+		checkpointFile			= null;
+		checkpointInterval		= 1000;
+		resumeFile				= null;
+		progressInterval		= 0;
+		sampleFraction			= 0.3;
+		adaptiveSample			= false;
+		firstImproving			= false;
+		neighborsNr				= 15;
+		ejectionDepth			= 2;
 						
 		
 	}
@@ -88,7 +124,79 @@ public class Parameters {
 					case "-of":
 						outputFileName = args[i+1];
 						break;
+					case "-tl":
+						timeLimit = Double.parseDouble(args[i+1]);
+						if (timeLimit < 0) {
+							String msg = "Time limit argument must be a non negative number!";
+							throw new Exception(msg);
+						}
+						break;
 				// TS specific parameters
+					case "-mt":
+						if(args[i+1].equalsIgnoreCase("swap")){
+							setMovesType(MovesType.SWAP);
+						}else if(args[i+1].equalsIgnoreCase("candidate")){
+							setMovesType(MovesType.CANDIDATE_LIST);
+						}else if(args[i+1].equalsIgnoreCase("twoopt")){
+							setMovesType(MovesType.TWO_OPT_STAR);
+						}else if(args[i+1].equalsIgnoreCase("oropt")){
+							setMovesType(MovesType.OR_OPT);
+						}else if(args[i+1].equalsIgnoreCase("exchange")){
+							setMovesType(MovesType.EXCHANGE);
+						}else if(args[i+1].equalsIgnoreCase("cross")){
+							setMovesType(MovesType.CROSS_EXCHANGE);
+						}else if(args[i+1].equalsIgnoreCase("granular")){
+							setMovesType(MovesType.GRANULAR);
+						}else if(args[i+1].equalsIgnoreCase("adaptive")){
+							setMovesType(MovesType.ADAPTIVE);
+						}else if(args[i+1].equalsIgnoreCase("ejection")){
+							setMovesType(MovesType.EJECTION_CHAIN);
+						}else {
+							String msg = "Moves type argument must be \"swap\", \"candidate\", \"twoopt\", \"oropt\", \"exchange\", \"cross\", \"granular\", \"adaptive\" or \"ejection\". Set to default \"swap\"!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-sf":
+						sampleFraction = Double.parseDouble(args[i+1]);
+						if (sampleFraction <= 0 || sampleFraction > 1) {
+							String msg = "Sample fraction argument must be in (0, 1]!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-nn":
+						neighborsNr = Integer.parseInt(args[i+1]);
+						if (neighborsNr < 1) {
+							String msg = "Neighbors number argument must be a positive integer!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-ed":
+						ejectionDepth = Integer.parseInt(args[i+1]);
+						if (ejectionDepth < 1) {
+							String msg = "Ejection depth argument must be a positive integer!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-as":
+						if(args[i+1].equalsIgnoreCase("true")){
+							setAdaptiveSample(true);
+						}else if(args[i+1].equalsIgnoreCase("false")){
+							setAdaptiveSample(false);
+						}else {
+							String msg = "Adaptive sample argument must be true of false. Set to default false!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-fi":
+						if(args[i+1].equalsIgnoreCase("true")){
+							setFirstImproving(true);
+						}else if(args[i+1].equalsIgnoreCase("false")){
+							setFirstImproving(false);
+						}else {
+							String msg = "First improving argument must be true of false. Set to default false!";
+							throw new Exception(msg);
+						}
+						break;
 					case "-p":
 						precision = Double.parseDouble(args[i+1]);
 						break;
@@ -114,6 +222,81 @@ public class Parameters {
 							throw new Exception(msg);
 						}
 						break;
+					case "-rt":
+						if(args[i+1].equalsIgnoreCase("true")){
+							setReactiveTenure(true);
+						}else if(args[i+1].equalsIgnoreCase("false")){
+							setReactiveTenure(false);
+						}else {
+							String msg = "Reactive tenure argument must be true of false. Set to default false!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-fd":
+						frequencyDecay = Integer.parseInt(args[i+1]);
+						if (frequencyDecay < 0) {
+							String msg = "Frequency decay argument must be a non negative number!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-th":
+						threads = Integer.parseInt(args[i+1]);
+						if (threads < 1) {
+							String msg = "Threads argument must be a positive number!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-ms":
+						starts = Integer.parseInt(args[i+1]);
+						if (starts < 1) {
+							String msg = "Multi-start argument must be a positive number!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-pi":
+						progressInterval = Integer.parseInt(args[i+1]);
+						if (progressInterval < 0) {
+							String msg = "Progress interval argument must be a non negative number!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-si":
+						stagnationIterations = Integer.parseInt(args[i+1]);
+						if (stagnationIterations < 0) {
+							String msg = "Stagnation iterations argument must be a non negative number!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-sa":
+						if(args[i+1].equalsIgnoreCase("restart")){
+							setStagnationStop(false);
+						}else if(args[i+1].equalsIgnoreCase("stop")){
+							setStagnationStop(true);
+						}else {
+							String msg = "Stagnation action argument must be \"restart\" or \"stop\". Set to default \"restart\"!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-cf":
+						checkpointFile = args[i+1];
+						break;
+					case "-ci":
+						checkpointInterval = Integer.parseInt(args[i+1]);
+						if (checkpointInterval < 0) {
+							String msg = "Checkpoint interval argument must be a non negative number!";
+							throw new Exception(msg);
+						}
+						break;
+					case "-rf":
+						resumeFile = args[i+1];
+						break;
+					case "-ei":
+						exchangeInterval = Integer.parseInt(args[i+1]);
+						if (exchangeInterval < 0) {
+							String msg = "Exchange interval argument must be a non negative number!";
+							throw new Exception(msg);
+						}
+						break;
 				// GA specific parameters
 					case "-pd":
 						populationDim = Integer.parseInt(args[i+1]);
@@ -143,6 +326,13 @@ public class Parameters {
 					case "-gr":
 						greedyRatio = Double.parseDouble(args[i+1]);
 						break;
+					case "-gs":
+						gaTimeShare = Double.parseDouble(args[i+1]);
+						if (gaTimeShare <= 0 || gaTimeShare >= 1) {
+							String msg = "GA time share argument must be in (0, 1)!";
+							throw new Exception(msg);
+						}
+						break;
 					case "-h":
 						printHelp();
 						help = true;
@@ -171,6 +361,7 @@ public class Parameters {
 		print.append("\n" + "--- General Parameters: -------------------------------------");
 		print.append("\n" + "| Input File Name= " + inputFileName);
 		print.append("\n" + "| Output File Name= " + outputFileName);
+		print.append("\n" + "| Time Limit: " + timeLimit);
 		print.append("\n" + "--- GA-specific Parameters: ---------------------------------");
 		print.append("\n" + "| Chromosome Dim = " + chromosomeDim);
 		print.append("\n" + "| Population Dim: " + populationDim);
@@ -180,6 +371,7 @@ public class Parameters {
 		print.append("\n" + "| Max Generations: " + maxGenerations);
 		print.append("\n" + "| Mutation Probability = " + mutationProb);
 		print.append("\n" + "| Greedy Ratio = " + greedyRatio);
+		print.append("\n" + "| GA Time Share = " + gaTimeShare);
 		print.append("\n" + "--- TS-specific Parameters: ---------------------------------");
 		print.append("\n" + "| Moves Type= " + movesType);
 		print.append("\n" + "| Precision: " + precision);
@@ -188,6 +380,22 @@ public class Parameters {
 		print.append("\n" + "| Random Seed: " + randomSeed);
 		print.append("\n" + "| Tabu Tenure: " + tabuTenure);
 		print.append("\n" + "| Variable Tenure: " + variableTenure);
+		print.append("\n" + "| Reactive Tenure: " + reactiveTenure);
+		print.append("\n" + "| Frequency Decay: " + frequencyDecay);
+		print.append("\n" + "| Threads: " + threads);
+		print.append("\n" + "| Starts: " + starts);
+		print.append("\n" + "| Exchange Interval: " + exchangeInterval);
+		print.append("\n" + "| Stagnation Iterations: " + stagnationIterations);
+		print.append("\n" + "| Stagnation Stop: " + stagnationStop);
+		print.append("\n" + "| Checkpoint File: " + checkpointFile);
+		print.append("\n" + "| Checkpoint Interval: " + checkpointInterval);
+		print.append("\n" + "| Resume File: " + resumeFile);
+		print.append("\n" + "| Progress Interval: " + progressInterval);
+		print.append("\n" + "| Sample Fraction: " + sampleFraction);
+		print.append("\n" + "| Adaptive Sample: " + adaptiveSample);
+		print.append("\n" + "| First Improving: " + firstImproving);
+		print.append("\n" + "| Neighbors Number: " + neighborsNr);
+		print.append("\n" + "| Ejection Depth: " + ejectionDepth);
 		print.append("\n" + "------------------------------------------------------");
 		return print.toString();	
 	}
@@ -205,14 +413,33 @@ public class Parameters {
 		buff.append("                    Optional\n");
 		buff.append("-of output_file\n");
 		buff.append("-m mode [gats | onlyts]\n");
+		buff.append("-tl time_limit (seconds, the search stops at the limit or after its iterations, default 0 = none)\n");
 		buff.append("-pd population_dim\n");
 		buff.append("-mg max_generations\n");
 		buff.append("-cp crossover_prob\n");
 		buff.append("-rsc random_selection_chance\n");
 		buff.append("-gr greedy_ratio\n");
+		buff.append("-gs GA_time_share (share of the time limit given to the GA, default 0.3)\n");
 		buff.append("-it TS_iterations\n");
+		buff.append("-mt moves_type [swap | candidate | twoopt | oropt | exchange | cross | granular | adaptive | ejection]\n");
+		buff.append("-sf sample_fraction (candidate and cross moves, default 0.3)\n");
+		buff.append("-nn neighbors_number (nearest neighbors of the granular moves, default 15)\n");
+		buff.append("-ed ejection_depth (customers ejected at most by the ejection chain moves, default 2)\n");
+		buff.append("-as adaptive_sample [true | false]\n");
+		buff.append("-fi first_improving [true | false]\n");
 		buff.append("-vt variable_tenure [true | false]\n");
+		buff.append("-rt reactive_tenure [true | false]\n");
 		buff.append("-t tabu_tenure\n");
+		buff.append("-fd frequency_decay (iterations between two halvings of the move frequencies, default 0 = none)\n");
+		buff.append("-th threads (default: available processors)\n");
+		buff.append("-ms independent_searches (multi-start, default 1)\n");
+		buff.append("-pi progress_interval (iterations between two progress logs, default 0 = none)\n");
+		buff.append("-ei exchange_interval (iterations between elite pool exchanges of the multi-start searches, default 0 = none)\n");
+		buff.append("-si stagnation_iterations (iterations without improvement before reacting, default 0 = never)\n");
+		buff.append("-sa stagnation_action [restart | stop]\n");
+		buff.append("-cf checkpoint_file (save the state of the search, single search only)\n");
+		buff.append("-ci checkpoint_interval (iterations between two checkpoints, default 1000, 0 = only when the search stops)\n");
+		buff.append("-rf resume_file (resume the search from a checkpoint up to TS_iterations in total)\n");
 		
 		System.out.println(buff.toString());
 	}
@@ -328,6 +555,258 @@ public class Parameters {
 		this.variableTenure = variableTenure;
 	}
 
+	/**
+	 * @return true if the tenure reacts to the repetitions of the solutions
+	 */
+	public boolean isReactiveTenure() {
+		return reactiveTenure;
+	}
+
+	/**
+	 * @param reactiveTenure true to make the tenure react to the repetitions of the solutions
+	 */
+	public void setReactiveTenure(boolean reactiveTenure) {
+		this.reactiveTenure = reactiveTenure;
+	}
+
+	/**
+	 * @return the iterations between two halvings of the long term frequency memory
+	 */
+	public int getFrequencyDecay() {
+		return frequencyDecay;
+	}
+
+	/**
+	 * @param frequencyDecay the iterations between two halvings of the long term frequency memory
+	 */
+	public void setFrequencyDecay(int frequencyDecay) {
+		this.frequencyDecay = frequencyDecay;
+	}
+
+	/**
+	 * @return the number of threads evaluating the neighborhood
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @param threads the number of threads evaluating the neighborhood
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * @return the number of independent searches of the multi-start mode
+	 */
+	public int getStarts() {
+		return starts;
+	}
+
+	/**
+	 * @param starts the number of independent searches of the multi-start mode
+	 */
+	public void setStarts(int starts) {
+		this.starts = starts;
+	}
+
+	/**
+	 * @return the iterations between two progress logs
+	 */
+	public int getProgressInterval() {
+		return progressInterval;
+	}
+
+	/**
+	 * @param progressInterval the iterations between two progress logs
+	 */
+	public void setProgressInterval(int progressInterval) {
+		this.progressInterval = progressInterval;
+	}
+
+	/**
+	 * @return the seconds the solver may run, 0 if there is no limit
+	 */
+	public double getTimeLimit() {
+		return timeLimit;
+	}
+
+	/**
+	 * @param timeLimit the seconds the solver may run, 0 for no limit
+	 */
+	public void setTimeLimit(double timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * @return the share of the time limit given to the GA in the gats mode
+	 */
+	public double getGaTimeShare() {
+		return gaTimeShare;
+	}
+
+	/**
+	 * @param gaTimeShare the share of the time limit given to the GA in the gats mode
+	 */
+	public void setGaTimeShare(double gaTimeShare) {
+		this.gaTimeShare = gaTimeShare;
+	}
+
+	/**
+	 * @return the iterations between two exchanges with the elite pool
+	 */
+	public int getExchangeInterval() {
+		return exchangeInterval;
+	}
+
+	/**
+	 * @param exchangeInterval the iterations between two exchanges with the elite pool
+	 */
+	public void setExchangeInterval(int exchangeInterval) {
+		this.exchangeInterval = exchangeInterval;
+	}
+
+	/**
+	 * @return the iterations without improvement before stopping or restarting the search, 0 for never
+	 */
+	public int getStagnationIterations() {
+		return stagnationIterations;
+	}
+
+	/**
+	 * @param stagnationIterations the iterations without improvement before stopping or restarting the search
+	 */
+	public void setStagnationIterations(int stagnationIterations) {
+		this.stagnationIterations = stagnationIterations;
+	}
+
+	/**
+	 * @return true if the search stops when it stagnates, false if it restarts
+	 */
+	public boolean isStagnationStop() {
+		return stagnationStop;
+	}
+
+	/**
+	 * @param stagnationStop true to stop the search when it stagnates, false to restart it
+	 */
+	public void setStagnationStop(boolean stagnationStop) {
+		this.stagnationStop = stagnationStop;
+	}
+
+	/**
+	 * @return the file the state of the search is saved to, null if there is no checkpoint
+	 */
+	public String getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	/**
+	 * @param checkpointFile the file the state of the search is saved to, null for no checkpoint
+	 */
+	public void setCheckpointFile(String checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	/**
+	 * @return the iterations between two checkpoints, 0 if the state is saved only when the search stops
+	 */
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	/**
+	 * @param checkpointInterval the iterations between two checkpoints, 0 to save the state only when the search stops
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/**
+	 * @return the checkpoint the search resumes from, null for a new search
+	 */
+	public String getResumeFile() {
+		return resumeFile;
+	}
+
+	/**
+	 * @param resumeFile the checkpoint the search resumes from, null for a new search
+	 */
+	public void setResumeFile(String resumeFile) {
+		this.resumeFile = resumeFile;
+	}
+
+	/**
+	 * @return the fraction of the neighborhood evaluated by the candidate list moves
+	 */
+	public double getSampleFraction() {
+		return sampleFraction;
+	}
+
+	/**
+	 * @param sampleFraction the fraction of the neighborhood evaluated by the candidate list moves
+	 */
+	public void setSampleFraction(double sampleFraction) {
+		this.sampleFraction = sampleFraction;
+	}
+
+	/**
+	 * @return true if the sample fraction adapts to the progress of the search
+	 */
+	public boolean isAdaptiveSample() {
+		return adaptiveSample;
+	}
+
+	/**
+	 * @param adaptiveSample true to adapt the sample fraction to the progress of the search
+	 */
+	public void setAdaptiveSample(boolean adaptiveSample) {
+		this.adaptiveSample = adaptiveSample;
+	}
+
+	/**
+	 * @return true if the first improving non tabu move is taken instead of the best one
+	 */
+	public boolean isFirstImproving() {
+		return firstImproving;
+	}
+
+	/**
+	 * @param firstImproving true to take the first improving non tabu move instead of the best one
+	 */
+	public void setFirstImproving(boolean firstImproving) {
+		this.firstImproving = firstImproving;
+	}
+
+	/**
+	 * @return the nearest neighbors of each customer in the granular neighborhood
+	 */
+	public int getNeighborsNr() {
+		return neighborsNr;
+	}
+
+	/**
+	 * @param neighborsNr the nearest neighbors of each customer in the granular neighborhood
+	 */
+	public void setNeighborsNr(int neighborsNr) {
+		this.neighborsNr = neighborsNr;
+	}
+
+	/**
+	 * @return the customers ejected at most by an ejection chain move
+	 */
+	public int getEjectionDepth() {
+		return ejectionDepth;
+	}
+
+	/**
+	 * @param ejectionDepth the customers ejected at most by an ejection chain move
+	 */
+	public void setEjectionDepth(int ejectionDepth) {
+		this.ejectionDepth = ejectionDepth;
+	}
+
 	public double getPrecision() {
 		return precision;
 	}
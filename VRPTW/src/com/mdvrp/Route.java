@@ -2,13 +2,19 @@ package com.mdvrp;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Route {
+	private static final AtomicLong versions = new AtomicLong(); // source of the versions of the routes
 	private int index; // Number of the route
 	private Cost cost; // cost of the route
 	private Vehicle assignedVehicle; // vehicle assigned to the route
 	private Depot depot; // depot the route starts from
 	private List<Customer> customers; // list of customers served in the route
+	private boolean shared; // customers and cost may be referenced by other routes, see copyOnWrite()
+	private Route snapshot; // last snapshot taken, null if the route has been modified since
+	private long version = versions.incrementAndGet(); // routes with the same version have the same content
+	private volatile RouteAggregates aggregates; // aggregates of the customers, null until requested
 
 	/**
 	 * Constructor of the route
@@ -19,10 +25,24 @@ public class Route {
 
 	}
 
+	// route with the same customers and cost objects of route, to be shared
+	private Route(Route route, Cost cost) {
+		this.index = route.index;
+		this.cost = cost;
+		this.assignedVehicle = route.assignedVehicle;
+		this.depot = route.depot;
+		this.customers = route.customers;
+		this.version = route.version;
+		this.aggregates = route.aggregates;
+		this.shared = true;
+	}
+
 	public Route(Route route) {
 
 		this.index = new Integer(route.index);
 		this.cost = new Cost(route.cost);
+		this.version = route.version;
+		this.aggregates = route.aggregates;
 		this.assignedVehicle = route.assignedVehicle;
 		this.depot = route.depot;
 		this.customers = new ArrayList<>();
@@ -31,6 +51,90 @@ public class Route {
 		}
 	}
 
+	/**
+	 * Take a snapshot of the route in O(1): the snapshot shares the customers with
+	 * the route, which copies them on its next modification. As long as the route
+	 * is not modified the same snapshot is returned, so a snapshot of a whole solution
+	 * only allocates for the routes modified since the previous one.
+	 * The copies of a route keep its version until they are modified.
+	 * A snapshot must never be modified: use share() to get a modifiable copy of it.
+	 * 
+	 * @return the snapshot
+	 */
+	public Route snapshot() {
+		if (snapshot == null) {
+			snapshot = new Route(this, new Cost(cost));
+			snapshot.snapshot = snapshot;
+			shared = true;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Copy the route in O(1) sharing its customers and cost: both routes copy
+	 * them on their next modification
+	 * 
+	 * @return the copy
+	 */
+	public Route share() {
+		Route copy = new Route(this, cost);
+		copy.snapshot = snapshot;
+		shared = true;
+		return copy;
+	}
+
+	/**
+	 * Make the customers and the cost of the route its own, if they are shared
+	 * with other routes. It has to be called before modifying them: the methods
+	 * changing the route call it, the callers changing a customer or the cost
+	 * returned by the getters call it themselves. The route gets a new version.
+	 */
+	public void copyOnWrite() {
+		modified();
+		if (shared) {
+			List<Customer> copy = new ArrayList<>(customers.size() + 1);
+			for (int i = 0; i < customers.size(); ++i) {
+				copy.add(new Customer(customers.get(i)));
+			}
+			customers = copy;
+			cost = new Cost(cost);
+			shared = false;
+		}
+	}
+
+	/**
+	 * The route is going to be modified: the snapshot is no longer valid
+	 * and a new version is assigned
+	 */
+	private void modified() {
+		snapshot = null;
+		version = versions.incrementAndGet();
+	}
+
+	/**
+	 * @return the version: routes with the same version have the same customers,
+	 *         timings, depot and vehicle
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Get the forward and backward aggregates of the customers of the route; they
+	 * are computed on the first request after each modification, by any thread
+	 * 
+	 * @param instance
+	 * @return the aggregates of the current version of the route
+	 */
+	public RouteAggregates getAggregates(Instance instance) {
+		RouteAggregates aggregates = this.aggregates;
+		if (aggregates == null || aggregates.getVersion() != version) {
+			aggregates = new RouteAggregates(this, instance);
+			this.aggregates = aggregates;
+		}
+		return aggregates;
+	}
+
 	public double getDuration() {
 		return cost.serviceTime + cost.waitingTime;
 	}
@@ -40,10 +144,12 @@ public class Route {
 	}
 
 	public void setDepot(Depot depot) {
+		modified();
 		this.depot = depot;
 	}
 
 	public void removeCustomer(int index) {
+		copyOnWrite();
 		this.customers.remove(index);
 	}
 
@@ -109,11 +215,25 @@ public class Route {
 	}
 
 	/**
+	 * If the route shares its customers and cost, the customers set and the cost
+	 * are copied, as copyOnWrite() does: the list may hold the shared customers
+	 * 
 	 * @param customers
 	 *            list to set, edited to clone the input ArrayList
 	 */
 	@SuppressWarnings("unchecked")
 	public void setCustomers(ArrayList<Customer> customers) {
+		modified();
+		if (shared) {
+			List<Customer> copy = new ArrayList<>(customers.size() + 1);
+			for (int i = 0; i < customers.size(); ++i) {
+				copy.add(new Customer(customers.get(i)));
+			}
+			this.customers = copy;
+			cost = new Cost(cost);
+			shared = false;
+			return;
+		}
 		this.customers = (List<Customer>) customers.clone();
 	}
 
@@ -123,6 +243,7 @@ public class Route {
 	 * @param customer
 	 */
 	public void addCustomer(Customer customer) {
+		copyOnWrite();
 		this.customers.add(customer);
 	}
 
@@ -132,6 +253,7 @@ public class Route {
 	 * @param node
 	 */
 	public void addCustomer(Customer customer, int index) {
+		copyOnWrite();
 		this.customers.add(index, customer);
 	}
 
@@ -141,6 +263,7 @@ public class Route {
 	 * @param index
 	 */
 	public void setIndex(int index) {
+		modified();
 		this.index = index;
 	}
 
@@ -149,6 +272,7 @@ public class Route {
 	 *            the capacity to set
 	 */
 	public void setCapacity(double capacity) {
+		copyOnWrite();
 		this.cost.load = capacity;
 	}
 
@@ -157,6 +281,7 @@ public class Route {
 	 *            the cost to set
 	 */
 	public void setCost(Cost cost) {
+		copyOnWrite();
 		this.cost = cost;
 	}
 
@@ -165,6 +290,7 @@ public class Route {
 	 *            the assignedvehicle to set
 	 */
 	public void setAssignedVehicle(Vehicle assignedvehicle) {
+		modified();
 		this.assignedVehicle = assignedvehicle;
 	}
 
@@ -209,6 +335,7 @@ public class Route {
 	}
 
 	public void initializeTimes() {
+		copyOnWrite();
 		cost.initialize();
 
 	}
@@ -225,6 +352,7 @@ public class Route {
 	 *            the depotTwViol to set
 	 */
 	public void setDepotTwViol(double depotTwViol) {
+		copyOnWrite();
 		this.cost.depotTwViol = depotTwViol;
 	}
 
@@ -240,6 +368,7 @@ public class Route {
 	 *            the returnToDepotTime to set
 	 */
 	public void setReturnToDepotTime(double returnToDepotTime) {
+		copyOnWrite();
 		this.cost.returnToDepotTime = returnToDepotTime;
 	}
 
@@ -0,0 +1,323 @@
+package com.mdvrp;
+
+/**
+ * Forward and backward aggregates of the customers of a route, used to evaluate
+ * the route made of the head of a route followed by the tail of another one
+ * (2-opt* move), or by a short segment of another route and then its own tail
+ * (CROSS-exchange move), or a route with a customer inserted (swap move) or put in
+ * place of another one (ejection chain move), without walking the customers of the
+ * head and of the tail.
+ * Position k of the forward aggregates covers the head up to customer k included,
+ * position k of the backward ones the tail from customer k on.
+ * A tail reached at time t returns to the depot at max(t + tailDuration, tailReturn),
+ * so its return time, waiting time, travel time, service time and load are exact
+ * whatever the arrival. Its time window violations are exact in constant time while
+ * the arrival does not change them: a delay within the forward slack or an earlier
+ * arrival at a tail without violations; otherwise they are computed again up to the
+ * first customer whose arrival does not change.
+ * The aggregates never change: they belong to a version of the route, see Route.getAggregates().
+ */
+public class RouteAggregates {
+
+	private Instance instance;
+	private long version;				// version of the route they have been computed on
+	private int depotNr;
+	private double depotStartTw;
+	private double depotEndTw;
+	private double loadAdmited;
+	private double durationAdmited;
+	private Customer[] customers;
+	// forward aggregates, up to customer k included
+	private double[] arrive;			// arrive time at the customer
+	private double[] departure;			// time the service of the customer ends
+	private double[] load;
+	private double[] travelTime;		// from the depot to the customer
+	private double[] serviceTime;
+	private double[] waitingTime;
+	private double[] twViol;
+	// backward aggregates, from customer k on; position customersNr is the empty tail
+	private double[] tailLoad;
+	private double[] tailTravelTime;	// from the customer to the depot
+	private double[] tailServiceTime;
+	private double[] tailDuration;		// travel and service time from the arrival at the customer to the depot
+	private double[] tailReturn;		// earliest return to the depot, whatever the arrival at the customer
+	private double[] tailTwViol;		// time window violations of the customers
+	private double[] slack;				// delay of the arrival at the customer not increasing the violations
+
+	/**
+	 * Compute the aggregates of the current version of the route
+	 * @param route
+	 * @param instance
+	 */
+	public RouteAggregates(Route route, Instance instance) {
+		int customersNr = route.getCustomersLength();
+		this.instance   = instance;
+		version         = route.getVersion();
+		depotNr         = route.getDepotNr();
+		depotStartTw    = route.getDepot().getStartTw();
+		depotEndTw      = route.getDepot().getEndTw();
+		loadAdmited     = route.getLoadAdmited();
+		durationAdmited = route.getDurationAdmited();
+		customers       = new Customer[customersNr];
+		arrive          = new double[customersNr];
+		departure       = new double[customersNr];
+		load            = new double[customersNr];
+		travelTime      = new double[customersNr];
+		serviceTime     = new double[customersNr];
+		waitingTime     = new double[customersNr];
+		twViol          = new double[customersNr];
+		tailLoad        = new double[customersNr + 1];
+		tailTravelTime  = new double[customersNr + 1];
+		tailServiceTime = new double[customersNr + 1];
+		tailDuration    = new double[customersNr + 1];
+		tailReturn      = new double[customersNr + 1];
+		tailTwViol      = new double[customersNr + 1];
+		slack           = new double[customersNr + 1];
+
+		// forward: the timings of the customers as the route is
+		double[] customerWaiting = new double[customersNr];
+		double[] customerTwViol = new double[customersNr];
+		double time = depotStartTw;
+		int previous = depotNr;
+		for (int k = 0; k < customersNr; ++k) {
+			Customer customer = route.getCustomer(k);
+			double travel = instance.getTravelTime(previous, customer.getNumber());
+			customers[k] = customer;
+			time += travel;
+			arrive[k] = time;
+			customerWaiting[k] = Math.max(0, customer.getStartTw() - time);
+			time = Math.max(customer.getStartTw(), time);
+			customerTwViol[k] = Math.max(0, time - customer.getEndTw());
+			time += customer.getServiceDuration();
+			departure[k] = time;
+			load[k]        = (k == 0 ? 0 : load[k - 1]) + customer.getCapacity();
+			travelTime[k]  = (k == 0 ? 0 : travelTime[k - 1]) + travel;
+			serviceTime[k] = (k == 0 ? 0 : serviceTime[k - 1]) + customer.getServiceDuration();
+			waitingTime[k] = (k == 0 ? 0 : waitingTime[k - 1]) + customerWaiting[k];
+			twViol[k]      = (k == 0 ? 0 : twViol[k - 1]) + customerTwViol[k];
+			previous = customer.getNumber();
+		}
+
+		// backward: the empty tail arrives at the depot when it is reached
+		tailReturn[customersNr] = Double.NEGATIVE_INFINITY;
+		slack[customersNr] = Double.POSITIVE_INFINITY;
+		int next = depotNr;
+		for (int k = customersNr - 1; k >= 0; --k) {
+			Customer customer = customers[k];
+			double travel = instance.getTravelTime(customer.getNumber(), next);
+			double toNext = customer.getServiceDuration() + travel;
+			tailLoad[k]        = tailLoad[k + 1] + customer.getCapacity();
+			tailTravelTime[k]  = tailTravelTime[k + 1] + travel;
+			tailServiceTime[k] = tailServiceTime[k + 1] + customer.getServiceDuration();
+			tailDuration[k]    = tailDuration[k + 1] + toNext;
+			tailReturn[k]      = Math.max(customer.getStartTw() + toNext + tailDuration[k + 1], tailReturn[k + 1]);
+			tailTwViol[k]      = tailTwViol[k + 1] + customerTwViol[k];
+			// a delay is absorbed by the waiting at the customer, the violation of a late customer grows at once
+			slack[k]           = Math.min(customerTwViol[k] > 0 ? 0 : customer.getEndTw() - arrive[k], customerWaiting[k] + slack[k + 1]);
+			next = customer.getNumber();
+		}
+	}
+
+	/**
+	 * Evaluate the route made of the first head customers of this route followed by the
+	 * customers of tail from position from on; the route keeps the depot and the vehicle
+	 * of this route, the tail must come from a route of the same depot
+	 * @param head the customers of this route kept
+	 * @param tail
+	 * @param from the first customer of the tail
+	 * @param cost the cost of the route, overwritten
+	 */
+	public void join(int head, RouteAggregates tail, int from, Cost cost) {
+		join(head, null, 0, 0, tail, from, cost);
+	}
+
+	/**
+	 * Evaluate the route made of the first head customers of this route, the segment of
+	 * length customers of segment from position segmentFrom, then the customers of tail
+	 * from position from on; the route keeps the depot and the vehicle of this route,
+	 * the tail must come from a route of the same depot.
+	 * The customers of the segment are walked, so it should be short
+	 * @param head the customers of this route kept
+	 * @param segment the route of the segment, null if length is 0
+	 * @param segmentFrom the first customer of the segment
+	 * @param length the customers of the segment
+	 * @param tail
+	 * @param from the first customer of the tail
+	 * @param cost the cost of the route, overwritten
+	 */
+	public void join(int head, RouteAggregates segment, int segmentFrom, int length, RouteAggregates tail, int from, Cost cost) {
+		cost.initialize();
+		if (head == 0 && length == 0 && from == tail.customers.length)
+			// the empty route costs nothing
+			return;
+
+		double time = joinHead(head, cost);
+		int previous = head > 0 ? customers[head - 1].getNumber() : depotNr;
+		for (int k = segmentFrom; k < segmentFrom + length; ++k) {
+			time = joinCustomer(previous, time, segment.customers[k], cost);
+			previous = segment.customers[k].getNumber();
+		}
+		joinTail(previous, time, tail, from, cost);
+	}
+
+	/**
+	 * Evaluate the insertion of a customer in this route: the first position customers,
+	 * the customer, then the rest of the route. The time window violations of the customers
+	 * after it are computed in constant time while the delay is within their forward slack
+	 * @param position the position of the customer inserted
+	 * @param customer
+	 * @param cost the cost of the route, overwritten
+	 */
+	public void insert(int position, Customer customer, Cost cost) {
+		cost.initialize();
+		double time = joinHead(position, cost);
+		time = joinCustomer(position > 0 ? customers[position - 1].getNumber() : depotNr, time, customer, cost);
+		joinTail(customer.getNumber(), time, this, position, cost);
+	}
+
+	/**
+	 * Evaluate the route with a customer in place of the one at position: the first
+	 * position customers, the customer, then the rest of the route after the one replaced
+	 * @param position the position of the customer replaced
+	 * @param customer
+	 * @param cost the cost of the route, overwritten
+	 */
+	public void replace(int position, Customer customer, Cost cost) {
+		cost.initialize();
+		double time = joinHead(position, cost);
+		time = joinCustomer(position > 0 ? customers[position - 1].getNumber() : depotNr, time, customer, cost);
+		joinTail(customer.getNumber(), time, this, position + 1, cost);
+	}
+
+	/**
+	 * Bound the route with a customer put at position, inserted or in place of the customer
+	 * there: the load must not exceed the larger of the capacity and the current load, the
+	 * customer must be reached within its time window and the customer after it within its
+	 * forward slack, so that the time window violations of the route do not grow.
+	 * It is checked in constant time, before evaluating the route
+	 * @param position the position of the customer
+	 * @param customer
+	 * @param replace true if the customer at position is replaced, false if the customer is inserted
+	 * @return false if the route surely has more violations
+	 */
+	public boolean admits(int position, Customer customer, boolean replace) {
+		double routeLoad = tailLoad[0];
+		double newLoad = routeLoad + customer.getCapacity() - (replace ? customers[position].getCapacity() : 0);
+		if (newLoad > Math.max(loadAdmited, routeLoad) + instance.getPrecision())
+			return false;
+
+		int previous = position > 0 ? customers[position - 1].getNumber() : depotNr;
+		double arriveCustomer = (position > 0 ? departure[position - 1] : depotStartTw) + instance.getTravelTime(previous, customer.getNumber());
+		if (arriveCustomer > customer.getEndTw() + instance.getPrecision())
+			return false;
+
+		int next = replace ? position + 1 : position;
+		if (next == customers.length)
+			return true;
+		double arriveNext = Math.max(customer.getStartTw(), arriveCustomer) + customer.getServiceDuration()
+				+ instance.getTravelTime(customer.getNumber(), customers[next].getNumber());
+		return arriveNext <= getLatestArriveTime(next) + instance.getPrecision();
+	}
+
+	// start the cost with the first head customers, return the time the service of the last one ends
+	private double joinHead(int head, Cost cost) {
+		if (head == 0)
+			return depotStartTw;
+		cost.travelTime  = travelTime[head - 1];
+		cost.load        = load[head - 1];
+		cost.serviceTime = serviceTime[head - 1];
+		cost.waitingTime = waitingTime[head - 1];
+		cost.twViol      = twViol[head - 1];
+		return departure[head - 1];
+	}
+
+	// add the customer visited after previous, left at time; return the time its service ends
+	private double joinCustomer(int previous, double time, Customer customer, Cost cost) {
+		double travel = instance.getTravelTime(previous, customer.getNumber());
+		double arriveCustomer = time + travel;
+		cost.travelTime  += travel;
+		cost.load        += customer.getCapacity();
+		cost.serviceTime += customer.getServiceDuration();
+		cost.waitingTime += Math.max(0, customer.getStartTw() - arriveCustomer);
+		cost.twViol      += Math.max(0, arriveCustomer - customer.getEndTw());
+		return Math.max(customer.getStartTw(), arriveCustomer) + customer.getServiceDuration();
+	}
+
+	// add the customers of tail from position from on, reached from previous left at time, and the return to the depot
+	private void joinTail(int previous, double time, RouteAggregates tail, int from, Cost cost) {
+		double returnTime;
+		if (from == tail.customers.length) {
+			returnTime = time + instance.getTravelTime(previous, depotNr);
+			cost.travelTime += instance.getTravelTime(previous, depotNr);
+		} else {
+			double travel = instance.getTravelTime(previous, tail.customers[from].getNumber());
+			double arriveTail = time + travel;
+			returnTime = Math.max(arriveTail + tail.tailDuration[from], tail.tailReturn[from]);
+			cost.travelTime  += travel + tail.tailTravelTime[from];
+			cost.load        += tail.tailLoad[from];
+			cost.serviceTime += tail.tailServiceTime[from];
+			// the time spent in the tail is waiting, travel or service
+			cost.waitingTime += returnTime - arriveTail - tail.tailDuration[from];
+			cost.twViol      += tail.getTailTwViol(from, arriveTail);
+		}
+		cost.returnToDepotTime = returnTime;
+		cost.depotTwViol = Math.max(0, returnTime - depotEndTw);
+		cost.twViol += cost.depotTwViol;
+
+		// be careful about precision; there are subtractions
+		cost.waitingTime = Math.abs(cost.waitingTime) < instance.getPrecision() ? 0 : cost.waitingTime;
+		cost.twViol = Math.abs(cost.twViol) < instance.getPrecision() ? 0 : cost.twViol;
+		cost.setLoadViol(Math.max(0, cost.load - loadAdmited));
+		cost.setDurationViol(Math.max(0, cost.getDuration() - durationAdmited));
+	}
+
+	/**
+	 * @param from the first customer of the tail
+	 * @param arriveTail the arrive time at the first customer
+	 * @return the time window violations of the customers of the tail
+	 */
+	private double getTailTwViol(int from, double arriveTail) {
+		double delay = arriveTail - arrive[from];
+		if (Math.abs(delay) < instance.getPrecision()
+				|| (delay > 0 && delay <= slack[from])
+				|| (delay < 0 && tailTwViol[from] == 0))
+			return tailTwViol[from];
+
+		// the arrival changes the violations: follow it until it is the same as in the route
+		double violations = 0;
+		double time = arriveTail;
+		for (int k = from; k < customers.length; ++k) {
+			if (k > from)
+				time += instance.getTravelTime(customers[k - 1].getNumber(), customers[k].getNumber());
+			if (Math.abs(time - arrive[k]) < instance.getPrecision())
+				return violations + tailTwViol[k];
+			violations += Math.max(0, time - customers[k].getEndTw());
+			time = Math.max(customers[k].getStartTw(), time) + customers[k].getServiceDuration();
+		}
+		return violations;
+	}
+
+	/**
+	 * @param k a position of the route
+	 * @return the arrive time at the customer
+	 */
+	public double getArriveTime(int k) {
+		return arrive[k];
+	}
+
+	/**
+	 * @param k a position of the route
+	 * @return the latest arrive time at the customer not increasing the time window
+	 * violations of the route, the arrive time itself if the customer is late
+	 */
+	public double getLatestArriveTime(int k) {
+		return arrive[k] + slack[k];
+	}
+
+	/**
+	 * @return the version of the route the aggregates have been computed on
+	 */
+	public long getVersion() {
+		return version;
+	}
+}
@@ -53,6 +53,9 @@ public abstract class GA
     /** maximum generations to evolve */
     int maxGenerations; 
 
+    /** time (as System.currentTimeMillis()) at which the evolution stops even before maxGenerations, 0 = none */
+    long deadline;
+
     /** 1-100 (e.g. 10 = 10% chance of random selection--not based on fitness). 
      * Setting nonzero randomSelectionChance helps maintain genetic diversity during evolution
      */ 
@@ -191,6 +194,25 @@ public abstract class GA
         return maxGenerations;
     }
 
+    /**
+     * Gets the time at which the evolution stops even before the maximum number of generations
+     * @return long, 0 if there is no deadline
+     */
+    public long getDeadline()
+    {
+        return deadline;
+    }
+
+    /**
+     * Sets the time (as System.currentTimeMillis()) at which the evolution stops
+     * even before the maximum number of generations
+     * @param deadline 0 for no deadline
+     */
+    public void setDeadline(long deadline)
+    {
+        this.deadline = deadline;
+    }
+
     /**
      * Gets the random selection probability
      * @return int
@@ -321,6 +343,12 @@ public abstract class GA
 //            MyLog.info(class_name, "evolve()", this.chromosomes[this.bestFitnessChromIndex].getGenesAsStr());
 //            System.out.println("Gneration " + (iGen+1) + " completed");
             iGen++;
+
+            if (deadline != 0 && System.currentTimeMillis() >= deadline)
+            {
+                MyLog.info(class_name, "evolve()", "deadline reached after " + iGen + " generations");
+                break;
+            }
         }
 
 //        MyLog.info(class_name, "evolve()", "GEN " + (iGen + 1) + " AVG FITNESS = " + this.genAvgFitness[iGen-1] + " AVG DEV = " + this.genAvgDeviation[iGen-1]);
@@ -0,0 +1,108 @@
+package org.coinor.opents;
+
+
+/**
+ * <p>
+ *  Event delivered by an {@link AsynchronousTabuSearchListener}. Since it
+ *  reaches the listener after the tabu search has moved on, it carries a
+ *  snapshot of the search taken when the event was fired: the iterations
+ *  completed and the objective values of the current and best solutions.
+ * </p>
+ * <p>
+ *  The new current solution and move events are coalesced while waiting:
+ *  {@link #getCount getCount()} tells how many events this one stands for,
+ *  the snapshot being the one of the last of them.
+ * </p>
+ * <p>
+ *  The dispatcher reuses the same event object: a listener must copy what
+ *  it wants to keep.
+ * </p>
+ *
+ * <p><em>This code is licensed for public use under the Common Public License version 0.5.</em><br/>
+ * The Common Public License, developed by IBM and modeled after their industry-friendly IBM Public License,
+ * differs from other common open source licenses in several important ways:
+ * <ul>
+ *  <li>You may include this software with other software that uses a different (even non-open source) license.</li>
+ *  <li>You may use this software to make for-profit software.</li>
+ *  <li>Your patent rights, should you generate patents, are protected.</li>
+ * </ul>
+ * </p>
+ *
+ * @see AsynchronousTabuSearchListener
+ */
+@SuppressWarnings("serial")
+public class AsynchronousTabuSearchEvent extends TabuSearchEvent
+{
+    private int      count;
+    private int      iterationsCompleted;
+    private double[] currentValue;
+    private double[] bestValue;
+    
+    
+    /**
+     * Constructs an event whose content is set by the dispatcher.
+     *
+     * @param source the tabu search
+     */
+    public AsynchronousTabuSearchEvent( Object source )
+    {   super( source );
+    }   // end constructor
+    
+    
+    /**
+     * Sets the content of the event before it is delivered.
+     */
+    void set( TabuSearch source, int count, int iterationsCompleted, 
+    double[] currentValue, double[] bestValue )
+    {
+        this.source              = source;
+        this.count               = count;
+        this.iterationsCompleted = iterationsCompleted;
+        this.currentValue        = currentValue;
+        this.bestValue           = bestValue;
+    }   // end set
+    
+    
+    /**
+     * Returns the number of events coalesced into this one.
+     *
+     * @return the number of events
+     */
+    public int getCount()
+    {   return count;
+    }   // end getCount
+    
+    
+    /**
+     * Returns the iterations completed when the event was fired.
+     *
+     * @return the iterations completed
+     */
+    public int getIterationsCompleted()
+    {   return iterationsCompleted;
+    }   // end getIterationsCompleted
+    
+    
+    /**
+     * Returns the objective value of the current solution when the
+     * event was fired, <tt>null</tt> if there was none.
+     *
+     * @return the objective value of the current solution
+     */
+    public double[] getCurrentValue()
+    {   return currentValue;
+    }   // end getCurrentValue
+    
+    
+    /**
+     * Returns the objective value of the best solution when the
+     * event was fired, <tt>null</tt> if there was none.
+     *
+     * @return the objective value of the best solution
+     */
+    public double[] getBestValue()
+    {   return bestValue;
+    }   // end getBestValue
+    
+    
+}   // end class AsynchronousTabuSearchEvent
@@ -0,0 +1,359 @@
+package org.coinor.opents;
+
+
+/**
+ * <p>
+ *  Wraps a {@link TabuSearchListener} that does not change the state of the
+ *  search, such as a logging, progress or statistics listener, so that it
+ *  receives the events on its own thread instead of the solver's.
+ *  The events are recorded in a bounded ring buffer of preallocated slots
+ *  and delivered in batches by a daemon thread, started with the first event,
+ *  as {@link AsynchronousTabuSearchEvent}s carrying a snapshot of the search:
+ *  the thread takes every event waiting in the buffer at once and delivers
+ *  them out of the lock. It ends once it has delivered
+ *  <tt>tabuSearchStopped</tt> with no event left, and a new one is started
+ *  if the events come again.
+ * </p>
+ * <p>
+ *  The new current solution, improving, unimproving and no-change-in-value
+ *  events are coalesced: while one of them is waiting in the buffer, the next
+ *  ones of the same type and search only count on it and update its snapshot,
+ *  so it is delivered in its place with the snapshot of the latest. They are
+ *  dropped if the buffer is full, so a slow listener never holds the solver
+ *  back on them. The new best solution and start and stop events are never
+ *  lost: they wait for room in the buffer, and <tt>tabuSearchStopped</tt>
+ *  returns only once every event has been delivered.
+ * </p>
+ * <p>
+ *  Listeners changing the search, like the ones updating the penalties or
+ *  the tabu tenure, must stay synchronous: register them directly.
+ * </p>
+ *
+ * <p><em>This code is licensed for public use under the Common Public License version 0.5.</em><br/>
+ * The Common Public License, developed by IBM and modeled after their industry-friendly IBM Public License,
+ * differs from other common open source licenses in several important ways:
+ * <ul>
+ *  <li>You may include this software with other software that uses a different (even non-open source) license.</li>
+ *  <li>You may use this software to make for-profit software.</li>
+ *  <li>Your patent rights, should you generate patents, are protected.</li>
+ * </ul>
+ * </p>
+ *
+ * @see AsynchronousTabuSearchEvent
+ */
+@SuppressWarnings("serial")
+public class AsynchronousTabuSearchListener implements TabuSearchListener
+{
+    /**
+     * Number of slots of the buffer if not specified.
+     */
+    public final static int DEFAULT_CAPACITY = 1024;
+    
+    private final static int NEW_BEST_SOLUTION     = 0;
+    private final static int NEW_CURRENT_SOLUTION  = 1;
+    private final static int UNIMPROVING_MOVE      = 2;
+    private final static int IMPROVING_MOVE        = 3;
+    private final static int NO_CHANGE_IN_VALUE    = 4;
+    private final static int TABU_SEARCH_STARTED   = 5;
+    private final static int TABU_SEARCH_STOPPED   = 6;
+    
+    private final TabuSearchListener listener;
+    private final Slot[]              slots;
+    private long                      head;         // next slot to deliver
+    private long                      tail;         // next slot to fill
+    private long                      delivered;    // events delivered
+    private long                      dropped;      // events dropped with the buffer full
+    private final long[]              pending = new long[ TABU_SEARCH_STOPPED + 1 ];  // last slot filled with each type
+    private Thread                    dispatcher;   // null until the next event
+    
+    
+    /**
+     * Wraps the listener with a buffer of {@link #DEFAULT_CAPACITY} slots.
+     *
+     * @param listener the listener receiving the events
+     */
+    public AsynchronousTabuSearchListener( TabuSearchListener listener )
+    {   this( listener, DEFAULT_CAPACITY );
+    }   // end constructor
+    
+    
+    /**
+     * Wraps the listener with a buffer of the given number of slots.
+     *
+     * @param listener the listener receiving the events
+     * @param capacity the number of slots of the buffer
+     */
+    public AsynchronousTabuSearchListener( TabuSearchListener listener, int capacity )
+    {
+        if( capacity < 1 )
+            throw new IllegalArgumentException( "Capacity must be positive: " + capacity );
+        this.listener = listener;
+        this.slots = new Slot[ capacity ];
+        for( int i = 0; i < capacity; i++ )
+            slots[i] = new Slot();
+    }   // end constructor
+    
+    
+    public void newBestSolutionFound( TabuSearchEvent e )
+    {   publish( NEW_BEST_SOLUTION, e );
+    }   // end newBestSolutionFound
+    
+    public void newCurrentSolutionFound( TabuSearchEvent e )
+    {   publish( NEW_CURRENT_SOLUTION, e );
+    }   // end newCurrentSolutionFound
+    
+    public void unimprovingMoveMade( TabuSearchEvent e )
+    {   publish( UNIMPROVING_MOVE, e );
+    }   // end unimprovingMoveMade
+    
+    public void improvingMoveMade( TabuSearchEvent e )
+    {   publish( IMPROVING_MOVE, e );
+    }   // end improvingMoveMade
+    
+    public void noChangeInValueMoveMade( TabuSearchEvent e )
+    {   publish( NO_CHANGE_IN_VALUE, e );
+    }   // end noChangeInValueMoveMade
+    
+    public void tabuSearchStarted( TabuSearchEvent e )
+    {   publish( TABU_SEARCH_STARTED, e );
+    }   // end tabuSearchStarted
+    
+    public void tabuSearchStopped( TabuSearchEvent e )
+    {   publish( TABU_SEARCH_STOPPED, e );
+        flush();
+    }   // end tabuSearchStopped
+    
+    
+    /**
+     * Waits until every event published so far has been delivered.
+     */
+    public synchronized void flush()
+    {
+        try
+        {   while( delivered < tail )
+                wait();
+        }   // end try
+        catch( InterruptedException e )
+        {   Thread.currentThread().interrupt();
+        }   // end catch
+    }   // end flush
+    
+    
+    /**
+     * Returns the number of coalescable events dropped because the buffer was full.
+     *
+     * @return the events dropped
+     */
+    public synchronized long getDroppedEvents()
+    {   return dropped;
+    }   // end getDroppedEvents
+    
+    
+    /**
+     * Returns the wrapped listener.
+     *
+     * @return the listener receiving the events
+     */
+    public TabuSearchListener getListener()
+    {   return listener;
+    }   // end getListener
+    
+    
+    /**
+     * Records the event in the buffer. Runs on the solver thread.
+     */
+    private synchronized void publish( int type, TabuSearchEvent e )
+    {
+        final boolean coalescable = type == NEW_CURRENT_SOLUTION || type == IMPROVING_MOVE
+                                 || type == UNIMPROVING_MOVE || type == NO_CHANGE_IN_VALUE;
+        final TabuSearch tabuSearch = e.getTabuSearch();
+        
+        // Coalesce with the same event if still waiting
+        if( coalescable )
+        {   Slot same = waiting( type, tabuSearch );
+            if( same != null )
+            {   same.count++;
+                same.snapshot( tabuSearch );
+                return;
+            }   // end if: same event
+        }   // end if: coalesce
+        
+        // Wait for room, unless the event can be lost
+        if( tail - head == slots.length )
+        {   if( coalescable )
+            {   dropped++;
+                return;
+            }   // end if: drop
+            try
+            {   while( tail - head == slots.length )
+                    wait();
+            }   // end try
+            catch( InterruptedException ex )
+            {   Thread.currentThread().interrupt();
+                return;
+            }   // end catch
+        }   // end if: buffer full
+        
+        Slot slot = slots[ (int)(tail % slots.length) ];
+        slot.type = type;
+        slot.count = 1;
+        slot.tabuSearch = tabuSearch;
+        slot.snapshot( tabuSearch );
+        pending[ type ] = tail;
+        if( tail++ == head )
+            notifyAll();    // the dispatcher may be waiting
+        
+        if( dispatcher == null )
+        {   dispatcher = new Thread( new Runnable()
+            {   public void run()
+                {   dispatch();
+                }   // end run
+            }, "TabuSearch-Listener-Dispatcher" );
+            dispatcher.setDaemon( true );
+            dispatcher.start();
+        }   // end if: first event
+    }   // end publish
+    
+    
+    /**
+     * Returns the slot of the event of the given type and search waiting in
+     * the buffer, null if none. The last slot filled with the type is looked
+     * at first: there are others only if several searches share the listener.
+     */
+    private Slot waiting( int type, TabuSearch tabuSearch )
+    {
+        if( pending[ type ] >= head && pending[ type ] < tail )
+        {   Slot slot = slots[ (int)(pending[ type ] % slots.length) ];
+            if( slot.type == type && slot.tabuSearch == tabuSearch )
+                return slot;
+        }   // end if: last slot of the type waiting
+        for( long i = tail - 1; i >= head; i-- )
+        {   Slot slot = slots[ (int)(i % slots.length) ];
+            if( slot.type == type && slot.tabuSearch == tabuSearch )
+                return slot;
+        }   // end for: each event waiting
+        return null;
+    }   // end waiting
+    
+    
+    /**
+     * Delivers the events in batches: every event waiting is taken under the
+     * lock, freeing its slot, and the batch is delivered out of the lock.
+     * Runs on the dispatcher thread, which ends after the search stops.
+     */
+    private void dispatch()
+    {
+        final AsynchronousTabuSearchEvent event = new AsynchronousTabuSearchEvent( this );
+        final Slot[] batch = new Slot[ slots.length ];
+        for( int i = 0; i < batch.length; i++ )
+            batch[i] = new Slot();
+        
+        while( true )
+        {
+            // Take every event waiting
+            int size;
+            synchronized( this )
+            {   try
+                {   while( head == tail )
+                        wait();
+                }   // end try
+                catch( InterruptedException e )
+                {   dispatcher = null;
+                    return;
+                }   // end catch
+                
+                final boolean full = tail - head == slots.length;
+                for( size = 0; head < tail; size++, head++ )
+                {   Slot slot = slots[ (int)(head % slots.length) ];
+                    batch[size].take( slot );
+                    slot.tabuSearch = null;
+                }   // end for: each event
+                if( full )
+                    notifyAll();    // the solver may be waiting for room
+            }   // end synchronized
+            
+            // Deliver them out of the lock
+            boolean stopped = false;
+            for( int i = 0; i < size; i++ )
+            {   Slot slot = batch[i];
+                event.set( slot.tabuSearch, slot.count, slot.iterationsCompleted, slot.currentValue, slot.bestValue );
+                try
+                {   switch( slot.type )
+                    {   case NEW_BEST_SOLUTION:    listener.newBestSolutionFound( event );    break;
+                        case NEW_CURRENT_SOLUTION: listener.newCurrentSolutionFound( event ); break;
+                        case UNIMPROVING_MOVE:     listener.unimprovingMoveMade( event );     break;
+                        case IMPROVING_MOVE:       listener.improvingMoveMade( event );       break;
+                        case NO_CHANGE_IN_VALUE:   listener.noChangeInValueMoveMade( event ); break;
+                        case TABU_SEARCH_STARTED:  listener.tabuSearchStarted( event );       break;
+                        case TABU_SEARCH_STOPPED:  listener.tabuSearchStopped( event );       break;
+                    }   // end switch
+                }   // end try
+                catch( RuntimeException e )
+                {   e.printStackTrace();
+                }   // end catch
+                stopped = slot.type == TABU_SEARCH_STOPPED;
+                slot.tabuSearch = null;
+            }   // end for: each event
+            
+            synchronized( this )
+            {   delivered += size;
+                if( delivered == tail )
+                    notifyAll();    // someone may be flushing
+                if( stopped && head == tail )
+                {   // the search is over: the next event starts a new thread
+                    dispatcher = null;
+                    return;
+                }   // end if: stopped
+            }   // end synchronized
+        }   // end while
+    }   // end dispatch
+    
+    
+    /**
+     * Copies the values into the array, allocated only if missing or of the wrong size.
+     */
+    private static double[] copy( double[] values, double[] into )
+    {
+        if( values == null )
+            return null;
+        if( into == null || into.length != values.length )
+            into = new double[ values.length ];
+        System.arraycopy( values, 0, into, 0, values.length );
+        return into;
+    }   // end copy
+    
+    
+    /**
+     * A slot of the buffer, reused for the whole run.
+     */
+    private static class Slot
+    {
+        private int        type;
+        private int        count;
+        private int        iterationsCompleted;
+        private double[]   currentValue;
+        private double[]   bestValue;
+        private TabuSearch tabuSearch;
+        
+        private void take( Slot slot )
+        {
+            type = slot.type;
+            count = slot.count;
+            iterationsCompleted = slot.iterationsCompleted;
+            currentValue = copy( slot.currentValue, currentValue );
+            bestValue = copy( slot.bestValue, bestValue );
+            tabuSearch = slot.tabuSearch;
+        }   // end take
+        
+        private void snapshot( TabuSearch tabuSearch )
+        {
+            Solution current = tabuSearch.getCurrentSolution();
+            Solution best = tabuSearch.getBestSolution();
+            iterationsCompleted = tabuSearch.getIterationsCompleted();
+            currentValue = copy( current == null ? null : current.getObjectiveValue(), currentValue );
+            bestValue = copy( best == null ? null : best.getObjectiveValue(), bestValue );
+        }   // end snapshot
+    }   // end inner class Slot
+    
+    
+}   // end class AsynchronousTabuSearchListener
@@ -0,0 +1,122 @@
+package org.coinor.opents;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * <p>
+ *  Memory of an <tt>int</tt> value for each move attribute, the attribute
+ *  being encoded as a <tt>long</tt> key in <tt>[0, size)</tt>. It is used by
+ *  the {@link ComplexTabuList} to store the iteration at which each attribute
+ *  became tabu and can be used to store long term frequencies.
+ *  An attribute never set has value zero.
+ * </p>
+ * <p>
+ *  Use {@link #create create(...)} to get the backend fitting the number of keys:
+ *  a flat array ({@link DenseAttributeMemory}) when it is small enough,
+ *  otherwise an open addressing hash table ({@link HashedAttributeMemory})
+ *  whose size grows with the attributes actually set.
+ * </p>
+ * <p>
+ *  Reads may run concurrently, as long as no thread is writing.
+ * </p>
+ *
+ * <p><em>This code is licensed for public use under the Common Public License version 0.5.</em><br/>
+ * The Common Public License, developed by IBM and modeled after their industry-friendly IBM Public License,
+ * differs from other common open source licenses in several important ways:
+ * <ul>
+ *  <li>You may include this software with other software that uses a different (even non-open source) license.</li>
+ *  <li>You may use this software to make for-profit software.</li>
+ *  <li>Your patent rights, should you generate patents, are protected.</li>
+ * </ul>
+ * </p>
+ *
+ * @see ComplexTabuList
+ */
+@SuppressWarnings("serial")
+public abstract class AttributeMemory implements java.io.Serializable
+{
+    /**
+     * Largest number of keys stored in a flat array (16MB of <tt>int</tt>s).
+     */
+    public final static long MAX_DENSE_SIZE = 1L << 22;
+    
+    
+    
+    /**
+     * Creates the memory for the keys in <tt>[0, size)</tt>: a
+     * {@link DenseAttributeMemory} up to {@link #MAX_DENSE_SIZE} keys,
+     * a {@link HashedAttributeMemory} beyond.
+     *
+     * @param size the number of keys
+     * @return the new memory
+     */
+    public static AttributeMemory create( long size )
+    {
+        if( size <= MAX_DENSE_SIZE )
+            return new DenseAttributeMemory( (int)size );
+        else return new HashedAttributeMemory();
+    }   // end create
+    
+    
+    
+    /**
+     * Returns the value of the attribute.
+     *
+     * @param key the attribute
+     * @return its value, zero if never set
+     */
+    public abstract int get( long key );
+    
+    
+    /**
+     * Sets the value of the attribute.
+     *
+     * @param key the attribute
+     * @param value its new value
+     */
+    public abstract void set( long key, int value );
+    
+    
+    /**
+     * Adds one to the value of the attribute.
+     *
+     * @param key the attribute
+     * @return its new value
+     */
+    public abstract int increment( long key );
+    
+    
+    /**
+     * Multiplies the value of every attribute by <var>factor</var>,
+     * truncating the result. Used to let a frequency memory forget.
+     *
+     * @param factor the factor, usually in <tt>[0, 1]</tt>
+     */
+    public abstract void scale( double factor );
+    
+    
+    /**
+     * Writes the attributes whose value is not zero: their number
+     * followed by the key and the value of each one.
+     *
+     * @param out the output
+     * @throws IOException
+     * @see #read read(...)
+     */
+    public abstract void write( DataOutput out ) throws IOException;
+    
+    
+    /**
+     * Replaces the content of the memory with the attributes
+     * written by {@link #write write(...)}.
+     *
+     * @param in the input
+     * @throws IOException
+     */
+    public abstract void read( DataInput in ) throws IOException;
+    
+    
+}   // end class AttributeMemory
@@ -0,0 +1,47 @@
+package org.coinor.opents;
+
+
+/**
+ * An {@link ObjectiveFunction} that can write the value of a move
+ * into an array supplied by the caller. The tabu search uses it to
+ * evaluate a neighborhood without allocating an array for every move:
+ * it keeps two arrays per group of moves, the best value found so far
+ * and the value being evaluated, and swaps them when a better move is found.
+ *<p><em>This code is licensed for public use under the Common Public License version 0.5.</em><br/>
+ * The Common Public License, developed by IBM and modeled after their industry-friendly IBM Public License,
+ * differs from other common open source licenses in several important ways:
+ * <ul>
+ *  <li>You may include this software with other software that uses a different (even non-open source) license.</li>
+ *  <li>You may use this software to make for-profit software.</li>
+ *  <li>Your patent rights, should you generate patents, are protected.</li>
+ * </ul>
+ * </p>
+ */
+public interface BufferedObjectiveFunction extends ObjectiveFunction
+{
+
+    
+    
+    /**
+     * Evaluates the solution, or the effect of the proposed move on it,
+     * exactly like {@link ObjectiveFunction#evaluate(Solution,Move)} but
+     * writes the values into <var>value</var> instead of returning a new array.
+     * <P>
+     * The array has the same length as the ones returned by
+     * {@link ObjectiveFunction#evaluate(Solution,Move)}. It belongs to the
+     * caller, which may overwrite it as soon as the method returns,
+     * so the implementation must not keep a reference to it.
+     * The method may be called by several threads at the same time
+     * on the same solution.
+     *
+     * @param soln The solution to evaluate
+     * @param move If not <tt>null</tt> the proposed move
+     * @param value The array receiving the function's value
+     * @see Solution
+     * @see Move
+     */
+    public abstract void evaluate( Solution soln, Move move, double[] value );
+    
+    
+    
+}   // end class BufferedObjectiveFunction
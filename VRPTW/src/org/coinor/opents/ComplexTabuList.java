@@ -1,5 +1,9 @@
 package org.coinor.opents;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 
 /**
  * <p>
@@ -9,11 +13,12 @@ package org.coinor.opents;
  * and implement {@link ComplexMove} rather than just {@link Move}</strong>.
  * </p>
  * <p>
- *  A double <tt>int</tt> array (<tt>int[][]</tt>) is used to store
- *  the attributes values, and a double
- *  <code>for</code> loop checks for a move's presence
- *  when {@link #isTabu isTabu(...)}
- *  is called.
+ *  The attributes are encoded as a <tt>long</tt> key, the mixed radix
+ *  number of the attributes over the dimensions of the list, and an
+ *  {@link AttributeMemory} stores for each key the iteration at which
+ *  it became tabu: a flat array for small instances, a hash table for
+ *  huge ones. A {@link KeyedComplexMove} gives its keys directly,
+ *  so nothing is allocated when {@link #isTabu isTabu(...)} is called.
  * </p>
  * <p>
  *  You can resize the tabu list dynamically by calling
@@ -74,7 +79,7 @@ public class ComplexTabuList implements TabuList
 
     
     private int           tenure;        // Tabu list tenure
-    private int[][][][][] tabuList;      // Data structure used to store list
+    private AttributeMemory tabuList;    // Data structure used to store list
     private int           lowPos;        // Used when tenure increase in order to take only those in the list
     private int           numAttr;       // Number of attributes to track
     private int           lastIteration; // Last iteration number used so far in the list
@@ -102,7 +107,7 @@ public class ComplexTabuList implements TabuList
         for(int i = 0; i < numAttr; ++i){
         	tabuDim[i] = attrDim[i];
         }
-        this.tabuList   = new int[ tabuDim[0] ][ tabuDim[1] ][ tabuDim[2] ][ tabuDim[3] ][ tabuDim[4] ];
+        this.tabuList   = AttributeMemory.create( (long)tabuDim[0] * tabuDim[1] * tabuDim[2] * tabuDim[3] * tabuDim[4] );
         this.lowPos = 0;
     }   // end SimpleTabuList
     
@@ -131,17 +136,16 @@ public class ComplexTabuList implements TabuList
             throw new IllegalArgumentException( "Move is not of type ComplexMove" );
         ComplexMove cMove = (ComplexMove)move;
 
-        // Get attributes and check length
-        int[] attrs = cMove.attributesInsert();
-        if( attrs.length != this.numAttr )
-            throw new IllegalArgumentException( "Wrong number of attributes (" +
-                                                attrs.length + "). Should be " +
-                                                this.numAttr + "." );
+        // Get the key of the attributes
+        long key = cMove instanceof KeyedComplexMove
+            ? ((KeyedComplexMove)cMove).insertKey()
+            : key( cMove.attributesInsert() );
 
 
         // See if the move is tabu
-        if ( tabuList[ attrs[0] ][ attrs[1] ][ attrs[2] ][ attrs[3] ][ attrs[4] ] + tenure  > iteration
-        		&& tabuList[ attrs[0] ][ attrs[1] ][ attrs[2] ][ attrs[3] ][ attrs[4] ] > lowPos) {
+        int tabuIteration = tabuList.get( key );
+        if ( tabuIteration + tenure  > iteration
+        		&& tabuIteration > lowPos) {
 //        	System.out.print(" Is tabu\n");
         	return true;
         }
@@ -178,16 +182,35 @@ public class ComplexTabuList implements TabuList
             throw new IllegalArgumentException( "Move is not of type ComplexMove" );
         ComplexMove cMove = (ComplexMove)move;
 
-        // Get attributes and check length
-        int[] attrs = cMove.attributesDelete();
+        // Get the key of the attributes
+        long key = cMove instanceof KeyedComplexMove
+            ? ((KeyedComplexMove)cMove).deleteKey()
+            : key( cMove.attributesDelete() );
+        lastIteration = iteration; // update the last iteration used in the list
+        // Record tabu
+        tabuList.set( key, iteration );
+    }   // end setTabu
+    
+    
+    /**
+     * Encodes the attributes as the mixed radix number over the
+     * dimensions of the list, as {@link KeyedComplexMove} does.
+     *
+     * @throw IllegalArgumentException if the number of attributes is wrong.
+     * @since 1.0c
+     */
+    protected long key( int[] attrs )
+    {
+        // Check length
         if( attrs.length != this.numAttr )
             throw new IllegalArgumentException( "Wrong number of attributes (" +
                                                 attrs.length + "). Should be " +
                                                 this.numAttr + "." );
-//        lastIteration = iteration; // update the last iteration used in the list
-        // Record tabu
-        tabuList[ attrs[0] ][ attrs[1] ][ attrs[2] ][ attrs[3] ][ attrs[4] ] = iteration;
-    }   // end setTabu
+        long key = 0;
+        for( int i = 0; i < MAX_NUM_ATTR; ++i )
+            key = key * tabuDim[i] + (i < numAttr ? attrs[i] : 0);
+        return key;
+    }   // end key
 
 
     /**
@@ -234,22 +257,57 @@ public class ComplexTabuList implements TabuList
     {
         if( tenure < 0 )
             return;
+        // never below the last reset, or the moves it has cleared would be tabu again
         if(tenure > this.tenure )
-        	this.lowPos = Math.max(0, this.lastIteration - this.tenure);
+        	this.lowPos = Math.max(this.lowPos, this.lastIteration - this.tenure);
         this.tenure = tenure;
     }   // end setTenure
     
+    /**
+     * Writes the state of the list: tenure, reset position,
+     * last iteration and the tabu attributes.
+     *
+     * @param out the output
+     * @throws IOException
+     * @since 1.0c
+     */
+    public void write( DataOutput out ) throws IOException
+    {
+        out.writeInt( tenure );
+        out.writeInt( lowPos );
+        out.writeInt( lastIteration );
+        tabuList.write( out );
+    }   // end write
+    
+    
+    /**
+     * Restores the state written by {@link #write write(...)}
+     * on a list with the same dimensions.
+     *
+     * @param in the input
+     * @throws IOException
+     * @since 1.0c
+     */
+    public void read( DataInput in ) throws IOException
+    {
+        tenure = in.readInt();
+        lowPos = in.readInt();
+        lastIteration = in.readInt();
+        tabuList.read( in );
+    }   // end read
+    
+    
     /**
      * This function returns a string which contains the tabu list values
      */
     public String toString(){
 		StringBuffer print = new StringBuffer();
 		// Cycle the tabu list
-		for( int i = 0; i < tabuList.length; ++i ){
+		for( int i = 0; i < tabuDim[0]; ++i ){
 			print.append("D"+ i + "\n" );
-			for( int j = 0; j < tabuList[i].length; ++j ){
-				for( int k = 0; k < tabuList[i][j].length; ++k ){
-					print.append(tabuList[i][j][k][0][0] + " ");
+			for( int j = 0; j < tabuDim[1]; ++j ){
+				for( int k = 0; k < tabuDim[2]; ++k ){
+					print.append(tabuList.get( (((long)i * tabuDim[1] + j) * tabuDim[2] + k) * tabuDim[3] * tabuDim[4] ) + " ");
 				}
 				print.append("\n");
 			}
@@ -0,0 +1,94 @@
+package org.coinor.opents;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ *  {@link AttributeMemory} backed by a flat <tt>int</tt> array
+ *  indexed by the key: one memory access per lookup.
+ * </p>
+ *
+ * <p><em>This code is licensed for public use under the Common Public License version 0.5.</em><br/>
+ * The Common Public License, developed by IBM and modeled after their industry-friendly IBM Public License,
+ * differs from other common open source licenses in several important ways:
+ * <ul>
+ *  <li>You may include this software with other software that uses a different (even non-open source) license.</li>
+ *  <li>You may use this software to make for-profit software.</li>
+ *  <li>Your patent rights, should you generate patents, are protected.</li>
+ * </ul>
+ * </p>
+ *
+ * @see AttributeMemory#create
+ */
+@SuppressWarnings("serial")
+public class DenseAttributeMemory extends AttributeMemory
+{
+    private int[] values;
+    
+    
+    /**
+     * Constructs the memory for the keys in <tt>[0, size)</tt>.
+     *
+     * @param size the number of keys
+     */
+    public DenseAttributeMemory( int size )
+    {
+        this.values = new int[ size ];
+    }   // end constructor
+    
+    
+    public int get( long key )
+    {   return values[ (int)key ];
+    }   // end get
+    
+    
+    public void set( long key, int value )
+    {   values[ (int)key ] = value;
+    }   // end set
+    
+    
+    public int increment( long key )
+    {   return ++values[ (int)key ];
+    }   // end increment
+    
+    
+    public void scale( double factor )
+    {
+        final int[] values = this.values;
+        for( int i = 0; i < values.length; i++ )
+            values[i] = (int)( values[i] * factor );
+    }   // end scale
+    
+    
+    public void write( DataOutput out ) throws IOException
+    {
+        final int[] values = this.values;
+        int count = 0;
+        for( int i = 0; i < values.length; i++ )
+            if( values[i] != 0 )
+                count++;
+        out.writeInt( count );
+        for( int i = 0; i < values.length; i++ )
+            if( values[i] != 0 )
+            {   out.writeLong( i );
+                out.writeInt( values[i] );
+            }   // end if: attribute set
+    }   // end write
+    
+    
+    public void read( DataInput in ) throws IOException
+    {
+        Arrays.fill( values, 0 );
+        int count = in.readInt();
+        for( int i = 0; i < count; i++ )
+        {   long key = in.readLong();
+            values[ (int)key ] = in.readInt();
+        }   // end for: each attribute
+    }   // end read
+    
+    
+}   // end class DenseAttributeMemory
@@ -0,0 +1,168 @@
+package org.coinor.opents;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ *  {@link AttributeMemory} backed by an open addressing hash table with
+ *  linear probing on primitive arrays. Its size depends on the attributes
+ *  actually set, not on the number of possible keys, so it fits instances
+ *  where the attributes space is too large for a flat array.
+ *  Setting an absent attribute to zero does not store it.
+ * </p>
+ *
+ * <p><em>This code is licensed for public use under the Common Public License version 0.5.</em><br/>
+ * The Common Public License, developed by IBM and modeled after their industry-friendly IBM Public License,
+ * differs from other common open source licenses in several important ways:
+ * <ul>
+ *  <li>You may include this software with other software that uses a different (even non-open source) license.</li>
+ *  <li>You may use this software to make for-profit software.</li>
+ *  <li>Your patent rights, should you generate patents, are protected.</li>
+ * </ul>
+ * </p>
+ *
+ * @see AttributeMemory#create
+ */
+@SuppressWarnings("serial")
+public class HashedAttributeMemory extends AttributeMemory
+{
+    private final static long EMPTY = -1L;      // keys are non negative
+    private final static int INITIAL_CAPACITY = 1 << 10;
+    
+    private long[] keys;
+    private int[]  values;
+    private int    size;                        // number of keys stored
+    
+    
+    /**
+     * Constructs an empty memory.
+     */
+    public HashedAttributeMemory()
+    {
+        allocate( INITIAL_CAPACITY );
+    }   // end constructor
+    
+    
+    public int get( long key )
+    {   
+        int slot = find( key );
+        return keys[ slot ] == EMPTY ? 0 : values[ slot ];
+    }   // end get
+    
+    
+    public void set( long key, int value )
+    {
+        int slot = find( key );
+        if( keys[ slot ] == EMPTY )
+        {   if( value == 0 )
+                return;
+            slot = insert( key, slot );
+        }   // end if: new key
+        values[ slot ] = value;
+    }   // end set
+    
+    
+    public int increment( long key )
+    {
+        int slot = find( key );
+        if( keys[ slot ] == EMPTY )
+            slot = insert( key, slot );
+        return ++values[ slot ];
+    }   // end increment
+    
+    
+    public void scale( double factor )
+    {
+        final int[] values = this.values;
+        for( int i = 0; i < values.length; i++ )
+            values[i] = (int)( values[i] * factor );
+    }   // end scale
+    
+    
+    public void write( DataOutput out ) throws IOException
+    {
+        final long[] keys = this.keys;
+        final int[] values = this.values;
+        int count = 0;
+        for( int i = 0; i < keys.length; i++ )
+            if( keys[i] != EMPTY && values[i] != 0 )
+                count++;
+        out.writeInt( count );
+        for( int i = 0; i < keys.length; i++ )
+            if( keys[i] != EMPTY && values[i] != 0 )
+            {   out.writeLong( keys[i] );
+                out.writeInt( values[i] );
+            }   // end if: attribute set
+    }   // end write
+    
+    
+    public void read( DataInput in ) throws IOException
+    {
+        allocate( INITIAL_CAPACITY );
+        size = 0;
+        int count = in.readInt();
+        for( int i = 0; i < count; i++ )
+        {   long key = in.readLong();
+            set( key, in.readInt() );
+        }   // end for: each attribute
+    }   // end read
+    
+    
+    /**
+     * Returns the slot of the key, or the empty slot where it would be inserted.
+     */
+    private int find( long key )
+    {
+        final long[] keys = this.keys;
+        final int mask = keys.length - 1;
+        int slot = hash( key ) & mask;
+        while( keys[ slot ] != key && keys[ slot ] != EMPTY )
+            slot = (slot + 1) & mask;
+        return slot;
+    }   // end find
+    
+    
+    /**
+     * Stores the key in the empty slot found by {@link #find find(...)},
+     * growing the table when half full. Returns the slot of the key.
+     */
+    private int insert( long key, int slot )
+    {
+        if( 2 * (size + 1) > keys.length )
+        {   long[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate( 2 * oldKeys.length );
+            for( int i = 0; i < oldKeys.length; i++ )
+                if( oldKeys[i] != EMPTY )
+                {   int newSlot = find( oldKeys[i] );
+                    keys[ newSlot ] = oldKeys[i];
+                    values[ newSlot ] = oldValues[i];
+                }   // end if: key to move
+            slot = find( key );
+        }   // end if: grow
+        keys[ slot ] = key;
+        size++;
+        return slot;
+    }   // end insert
+    
+    
+    private void allocate( int capacity )
+    {
+        keys = new long[ capacity ];
+        values = new int[ capacity ];
+        Arrays.fill( keys, EMPTY );
+    }   // end allocate
+    
+    
+    private static int hash( long key )
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)( h ^ (h >>> 32) );
+    }   // end hash
+    
+    
+}   // end class HashedAttributeMemory
@@ -0,0 +1,42 @@
+package org.coinor.opents;
+
+
+/**
+ * A {@link ComplexMove} that encodes its attributes as a single
+ * <tt>long</tt> key, so the {@link ComplexTabuList} can look it up
+ * without building the attributes arrays.
+ * The key must be the mixed radix number of the attributes over the
+ * dimensions of the tabu list, the first attribute being the most significant:
+ * <tt>(((a[0] * dim[1] + a[1]) * dim[2] + a[2]) * dim[3] + a[3]) * dim[4] + a[4]</tt>.
+ *
+ * <p><em>This code is licensed for public use under the Common Public License version 0.5.</em><br/>
+ * The Common Public License, developed by IBM and modeled after their industry-friendly IBM Public License,
+ * differs from other common open source licenses in several important ways:
+ * <ul>
+ *  <li>You may include this software with other software that uses a different (even non-open source) license.</li>
+ *  <li>You may use this software to make for-profit software.</li>
+ *  <li>Your patent rights, should you generate patents, are protected.</li>
+ * </ul>
+ * </p>
+ *
+ * @see ComplexTabuList
+ */
+public interface KeyedComplexMove extends ComplexMove
+{
+
+    /**
+     * Returns the key of {@link ComplexMove#attributesDelete}.
+     *
+     * @return the key of the delete attributes
+     */
+    public abstract long deleteKey();
+    
+    /**
+     * Returns the key of {@link ComplexMove#attributesInsert}.
+     *
+     * @return the key of the insert attributes
+     */
+    public abstract long insertKey();
+
+
+}   // end class KeyedComplexMove
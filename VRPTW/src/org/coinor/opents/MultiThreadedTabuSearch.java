@@ -1,11 +1,23 @@
 package org.coinor.opents;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This version of the {@link TabuSearch} can create multiple threads to take advantage
  * of multiple processors. If more than one thread is requested, then the neighborhood
- * will be split up evenly after the {@link MoveManager#getAllMoves getAllMoves()} method is called
- * on your {@link MoveManager}.
+ * returned by the {@link MoveManager#getAllMoves getAllMoves()} method of your
+ * {@link MoveManager} is evaluated by a fork/join pool: the array of moves is split
+ * recursively into index ranges (without being copied) and work-stealing keeps
+ * all the workers busy even when some moves are much more expensive than others.
  * <p/>
  * <em><b>This is the recommended {@link TabuSearch}</b></em> for nearly all well-threaded
  * applications because it does not block on the {@link #startSolving} method. When done
@@ -13,6 +25,12 @@ package org.coinor.opents;
  * If you add iterations with {@link SingleThreadedTabuSearch#setIterationsToGo setIterationsToGo()} and call 
  * {@link #startSolving} again,
  * the thread(s) will restart.
+ * <p/>
+ * Each run is tracked by a {@link Future}, returned by {@link #solve}, that completes
+ * with the best solution once the run is over; cancelling it stops the search at the
+ * end of the current iteration. The solving thread only reads volatile flags between
+ * iterations and never locks the tabu search, so callers wait on the future rather
+ * than on the tabu search's monitor.
  *
  *
  * <p><em>This code is licensed for public use under the Common Public License version 0.5.</em><br/>
@@ -43,7 +61,7 @@ public class MultiThreadedTabuSearch extends SingleThreadedTabuSearch
      *
      * @since 1.0
      */
-    private int threads = 1;
+    private volatile int threads = 1;
     
     /**
      * Priority to use for the threads that the tabu search creates.
@@ -54,9 +72,44 @@ public class MultiThreadedTabuSearch extends SingleThreadedTabuSearch
     
     
     /**
-     * Holds the helpers that will evaluate the neighborhood.
+     * Pool that evaluates the neighborhood when more than one thread is requested.
+     * It is created lazily and kept for the lifetime of the tabu search.
+     */
+    private transient volatile ForkJoinPool pool;
+    
+    
+    /**
+     * Tracks the current (or last) run of the tabu search.
+     *
+     * @since 1.0c
+     */
+    private transient volatile SolverFuture solver;
+    
+    
+    /**
+     * Runs the solving loop, or <tt>null</tt> to start a new
+     * thread for each run.
+     *
+     * @since 1.0c
+     */
+    private transient Executor executor;
+    
+    
+    /**
+     * Smallest range of moves a neighborhood task will split further.
+     *
+     * @since 1.0c
      */
-    private NeighborhoodHelper[] helpers;
+    private final static int MIN_TASK_SIZE = 16;
+    
+    
+    /**
+     * How many tasks per thread the neighborhood is split into,
+     * so that idle workers always have something to steal.
+     *
+     * @since 1.0c
+     */
+    private final static int TASKS_PER_THREAD = 8;
     
     
 /* ********  C O N S T R U C T O R S  ******** */
@@ -126,48 +179,12 @@ public class MultiThreadedTabuSearch extends SingleThreadedTabuSearch
         // Set variable
         this.threads = threads;
         
-        // Make sure we have an equal number of helper threads.
-        if( helpers == null )
-        {   helpers = new NeighborhoodHelper[ threads ];
-            for( int i = 0; i < threads; i++ )
-            {
-                helpers[i] = new NeighborhoodHelper();
-                helpers[i].start();
-            }   // end for: each new thread
-        }   // end if: helpers array is null
-        
-        
-        // Are there too few helpers?
-        else if( helpers.length < threads )
-        {   
-            // New array for helpers
-            NeighborhoodHelper[] temp = new NeighborhoodHelper[ threads ];
-            
-            // Copy or create new
-            for( int i = 0; i < threads; i++ )
-                temp[i] = i < helpers.length ? helpers[i] : new NeighborhoodHelper();
-            
-            // Set new array
-            helpers = temp;
-        }   // end else if: not enough helpers
-
-        
-        // Are there too many helpers?
-        else if( helpers.length > threads )
-        {   
-            // New array for helpers
-            NeighborhoodHelper[] temp = new NeighborhoodHelper[ threads ];
-            
-            // Copy or dispose
-            for( int i = 0; i < threads; i++ )
-                if( i < threads )
-                    temp[i] = helpers[i];
-                else
-                    helpers[i].dispose();
-            
-            // Set new array
-            helpers = temp;
-        }   // end else if: too many helpers
+        // Drop a pool of the wrong size. A new one is
+        // created the next time the neighborhood is evaluated.
+        if( pool != null && pool.getParallelism() != threads )
+        {   pool.shutdown();
+            pool = null;
+        }   // end if: wrong size
         notifyAll();
     }   // end setThreads
     
@@ -222,14 +239,61 @@ public class MultiThreadedTabuSearch extends SingleThreadedTabuSearch
     
     
     /**
-     * Return the {@link NeighborhoodHelper}s being used to search the neighborhood.
+     * Sets the {@link Executor} that runs the solving loop, for instance a pool
+     * shared by several tabu searches so that no more of them run at the same time
+     * than the pool has threads. With <tt>null</tt>, the default, a new thread
+     * with priority {@link #getThreadPriority} is started for each run.
+     * <P>
+     * <em>If the tabu search is already running, 
+     * this will not take effect until the tabu search restarts.</em>
+     *
+     * @param executor The executor running the solving loop, or <tt>null</tt>
+     * @since 1.0c
+     */
+    public synchronized void setExecutor( Executor executor )
+    {   
+        this.executor = executor;
+    }   // end setExecutor
+    
+    
+    /**
+     * Returns the {@link Executor} that runs the solving loop, 
+     * or <tt>null</tt> if a new thread is started for each run.
      *
-     * @since 1.0
+     * @return The executor running the solving loop
+     * @since 1.0c
      */
-    private NeighborhoodHelper[] getHelpers()
+    public synchronized Executor getExecutor()
     {   
-        return this.helpers;
-    }   // end getHelpers
+        return this.executor;
+    }   // end getExecutor
+    
+    
+    /**
+     * Returns the fork/join pool used to evaluate the neighborhood,
+     * creating it if necessary. The pool has as many workers as
+     * {@link #getThreads} and its threads run at {@link #getThreadPriority}.
+     *
+     * @return The pool evaluating the neighborhood
+     * @since 1.0c
+     */
+    public synchronized ForkJoinPool getForkJoinPool()
+    {   
+        if( pool == null )
+        {   
+            final int priority = this.threadPriority;
+            pool = new ForkJoinPool( this.threads, new ForkJoinPool.ForkJoinWorkerThreadFactory()
+            {   public ForkJoinWorkerThread newThread( ForkJoinPool pool )
+                {   
+                    ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( pool );
+                    t.setName( "Neighborhood-Helper-" + t.getPoolIndex() );
+                    t.setPriority( priority );
+                    return t;
+                }   // end newThread
+            }, null, false );
+        }   // end if: no pool yet
+        return this.pool;
+    }   // end getForkJoinPool
     
     
     
@@ -241,9 +305,14 @@ public class MultiThreadedTabuSearch extends SingleThreadedTabuSearch
      * By setting <var>chooseFirstImprovingMove</var> to <tt>true</tt>
      * you tell the tabu search to return the first move it encounters
      * that is improving and non-tabu rather than search through all of
-     * the moves. This is actually implemented by having each thread
+     * the moves. This is actually implemented by having each task
      * return the first improving move it encounters and then choosing
      * the best among these moves.
+     * <P>
+     * The results of the tasks are combined with the same rules the
+     * single-threaded search applies move by move, so for a given
+     * neighborhood the chosen move does not depend on the number of threads
+     * (unless the first improving move is requested).
      *
      * @since 1.0
      */
@@ -258,102 +327,24 @@ public class MultiThreadedTabuSearch extends SingleThreadedTabuSearch
     {      
         // If only one thread is requested, then make it this thread and call the
         // simple "getBestMove" in the SingleThreadedTabuSearch class.
-        int threads = getThreads();
+        int threads = this.threads;
         if( threads == 1 )
         {   
             return SingleThreadedTabuSearch.getBestMove( soln, moves, objectiveFunction,
                 tabuList, aspirationCriteria, maximizing, chooseFirstImprovingMove, getIterationsCompleted(), this );
         }   // end if: one thread requested
         
-        // Else use as many threads as was requested.
+        // Else split the neighborhood among the workers of the pool.
         else
         {
-            // Set up variables
-            Move      bestMove     = null;
-            double[]  bestMoveVal  = null;
-            boolean   bestMoveTabu = false;
-            NeighborhoodHelper[] helpers = getHelpers();
-            
-            // Divide up the moves in equal-sized groups.
-            int numGroups = helpers.length;
-            int nominalSize = moves.length / numGroups;
-            Move[][] moveGroups= new Move[ numGroups ][];
-            
-            // Assign equal number to all but last group
-            for( int i = 0; i < numGroups-1; i++ )
-            {   
-                moveGroups[i] = new Move[ nominalSize ];
-                System.arraycopy( moves, i*nominalSize, 
-                    moveGroups[i], 0, nominalSize );
-            }   // end for: group except last
-            
-            // Last group gets at least as many as the first groups
-            // but may also have some leftovers
-            moveGroups[ numGroups-1 ] = new Move[ nominalSize + (moves.length % numGroups) ];
-            System.arraycopy( moves, (numGroups-1)*nominalSize, 
-                moveGroups[numGroups-1], 0, moveGroups[numGroups-1].length );
+            ForkJoinPool pool = this.pool;
+            if( pool == null )
+                pool = getForkJoinPool();
             
-            // Hand out moves to the threads.
-            for( int i = 0; i < numGroups; i++ )
-                helpers[i].setWork( soln, moveGroups[i], objectiveFunction, 
-                    tabuList, aspirationCriteria, maximizing, chooseFirstImprovingMove, this, getIterationsCompleted() );
-
-            // Wait for threads to finish neighborhood when helpers[i].getBestMove
-            // is called. That is, the method blocks until the work is done.
-            // As a thread finishes, immediately compare it with the existing
-            // best known move.
-            //Object[][] bestMoves = new Object[ numGroups ][];
-            for( int i = 0; i < numGroups; i++ )
-            {
-                // Get helper thread's best move data
-                Object[] contender = helpers[i].getBestMove();
-                
-                // Make quick access variables to contender.
-                Move newMove = (Move) contender[0];
-                double[] newObjVal = (double[]) contender[1];
-                boolean newMoveTabu = ((Boolean)contender[2]).booleanValue();
-                
-                // If we don't already have a best move, then this is the
-                // best by default.
-                if( bestMove == null )
-                {
-                    bestMove = newMove;
-                    bestMoveVal = newObjVal;
-                    bestMoveTabu = newMoveTabu;
-                }   // end if: no existing best move
-                
-                // Else check to see if the contender is better than the existing best
-                else
-                {
-                    if( isFirstBetterThanSecond( newObjVal, bestMoveVal, maximizing ) )
-                    {   
-                        // New one has a better objective value.
-
-                        // Compare tabu status. The following, messy 'if' statement says
-                        // Continue under the following conditions:
-                        //  o  The new move is not tabu, or
-                        //  o  The new move is tabu, but so is the old best move
-                        if( !(!bestMoveTabu && newMoveTabu) )
-                        {   bestMove = newMove;
-                            bestMoveVal = newObjVal;
-                            bestMoveTabu = newMoveTabu;
-                        }   // end if: switch over
-                    }   // end if: new one has better objective value
-                    else
-                    {   // New one does not have better objective value, but see if it
-                        // has a better tabu status.
-                        if( bestMoveTabu && newMoveTabu )
-                        {   bestMove = newMove;
-                            bestMoveVal = newObjVal;
-                            bestMoveTabu = newMoveTabu; // <-- This should be false at this point.
-                        }   // end if: old was tabu, new one isn't.
-                    }   // end else: new one does not have better objective value
-                    
-                }   // end else
-                
-            }   // end for: each thread
-
-            return new Object[]{ bestMove, bestMoveVal, new Boolean( bestMoveTabu) };
+            int taskSize = Math.max( MIN_TASK_SIZE, moves.length / (threads * TASKS_PER_THREAD) );
+            return pool.invoke( new NeighborhoodTask( 
+                soln, moves, 0, moves.length, taskSize, objectiveFunction, tabuList, aspirationCriteria, 
+                maximizing, chooseFirstImprovingMove, getIterationsCompleted(), this, new AtomicBoolean() ) );
         }   // end else: multiple threads
     }   // end getBestMove
     
@@ -387,19 +378,14 @@ public class MultiThreadedTabuSearch extends SingleThreadedTabuSearch
             
             fireTabuSearchStarted();  // Inform listeners
             
-        
-            // Get a final version of 'this' so we can lock on it.
-            final TabuSearch This = this;
-
-            Thread t = new Thread( new Runnable()
-            {   public void run()
+            solver = new SolverFuture( new Callable<Solution>()
+            {   public Solution call()
                 {
-                    // While there's work left to do
-                    while( keepSolving && iterationsToGo > 0 )
-                    {   
-                        // Lock on the Tabu Search object
-                        synchronized( This )
-                        {
+                    try
+                    {
+                        // While there's work left to do
+                        while( keepSolving && iterationsToGo > 0 )
+                        {   
                             iterationsToGo--;
 
                             try
@@ -418,219 +404,271 @@ public class MultiThreadedTabuSearch extends SingleThreadedTabuSearch
                                 stopSolving();
                             }   // end catch
                             incrementIterationsCompleted();
-                            This.notifyAll();
-                        }   // end sync: this
-                    }   // end while: iters left
-                    
-                    // Lock and close up shop
-                    synchronized( This )
+                        }   // end while: iters left
+                    }   // end try
+                    finally
                     {
                         // Turn off our 'Go' flags, although the keepSolving may
                         // already be turned off.
                         setSolving( false );
                         setKeepSolving( false );
 
-                        // Clear the helper threads.
-                        if( helpers != null )
-                            for( int i = 0; i < helpers.length; i++ )
-                                helpers[i].dispose();
-                        helpers = null;
-
                         // Let listeners know that we stopped solving
                         fireTabuSearchStopped();
-                        This.notifyAll();
-                    }   // end sync
+                    }   // end finally
                     
                     // Okay, main thread is dying now. It will be restarted if
                     // more work is requested of the tabu search engine.
-                    
-                }   // end run
-            }, "MultiThreadedTabuSearch-Master"); // end runnable, thread
-            t.setPriority( threadPriority );
-            t.start();
+                    return getBestSolution();
+                }   // end call
+            }); // end callable
+            
+            if( executor != null )
+                executor.execute( solver );
+            else
+            {   Thread t = new Thread( solver, "MultiThreadedTabuSearch-Master" );
+                t.setPriority( threadPriority );
+                t.start();
+            }   // end else: own thread
         }   // end if: not already solving
-        notifyAll();
     }   // end startSolving
     
     
+    /**
+     * Starts the tabu search (see {@link #startSolving}) and returns the
+     * {@link Future} of the run, which completes with the best solution when
+     * the iterations are used up or the search is stopped. If the tabu
+     * search is already solving, the future of the running search is returned.
+     * If there are no iterations to go, the returned future is already done.
+     * <P>
+     * Cancelling the future stops the search at the end of the current
+     * iteration; {@link TabuSearchListener}s still receive the
+     * <tt>tabuSearchStopped</tt> event.
+     *
+     * @return The future of the run
+     * @since 1.0c
+     */
+    public synchronized Future<Solution> solve()
+    {   
+        startSolving();
+        
+        // Nothing was started: report the best solution right away
+        if( !solving )
+        {   solver = new SolverFuture( new Callable<Solution>()
+            {   public Solution call()
+                {   return getBestSolution();
+                }   // end call
+            }); // end callable
+            solver.run();
+        }   // end if: not solving
+        return solver;
+    }   // end solve
+    
+    
+    /**
+     * Returns the {@link Future} of the current or last run of the tabu search,
+     * or <tt>null</tt> if it has never been started.
+     *
+     * @return The future of the current or last run
+     * @since 1.0c
+     */
+    public Future<Solution> getSolverFuture()
+    {   
+        return this.solver;
+    }   // end getSolverFuture
+    
+    
     /**
      * Stops the tabu search and preserves the number of
      * iterations remaining.
      *
      * @since 1.0
      */
-    public synchronized void stopSolving()
+    public void stopSolving()
     {   
         setKeepSolving( false );
-        notifyAll();
     }   // end stopSolving
     
     /**
-     * Blocks until the tabu search reaches zero iterations to go.
+     * Blocks until the current run of the tabu search is over,
+     * that is until it has used up its iterations or has been stopped.
      *
      * @since 1.0-exp8
      **/
     public void waitToFinish(){
-        synchronized( this ){
-            while( getIterationsToGo() > 0 ){
-                try{
-                    this.wait();
-                }   // end try
-                catch( InterruptedException e ){
-                    e.printStackTrace();
-                }   // end catch
-            }   // end while: not done
-        }   // end sync
+        Future<Solution> solver = this.solver;
+        if( solver == null )
+            return;
+        
+        try{
+            solver.get();
+        }   // end try
+        catch( CancellationException e ){
+            // Stopped on request
+        }   // end catch
+        catch( InterruptedException e ){
+            e.printStackTrace();
+        }   // end catch
+        catch( ExecutionException e ){
+            e.printStackTrace();
+        }   // end catch
     }   // end waitToFinish
     
     
     
     
-/* ********  N E I G H B O R H O O D   H E L P E R   I N N E R   C L A S S  ******** */    
+/* ********  S O L V E R   F U T U R E   I N N E R   C L A S S  ******** */    
     
     
-    protected static class NeighborhoodHelper extends java.lang.Thread
+    /**
+     * The future of a run of the tabu search. Cancelling it also
+     * tells the tabu search to stop solving.
+     *
+     * @since 1.0c
+     */
+    private class SolverFuture extends FutureTask<Solution>
     {
-        /** Kills thread when the thread is no longer needed. */
-        private boolean dispose = false;
-        
-        /** Tells helper that there's work waiting to be done. */
-        private boolean workToDo = false;
-        
-        /** Stores the results of the last work that was done. */
-        private Object[] bestMove;
-        
-        private static int instanceNum = 0;
-        
-        
-        // The tabu search objects that the helper uses.
-        private Solution            soln;
-        private Move[]              moves;
-        private ObjectiveFunction   objectiveFunction;
-        private TabuList            tabuList;
-        private AspirationCriteria  aspirationCriteria;
-        private boolean             maximizing; 
-        private boolean             chooseFirstImprovingMove;
-        private TabuSearch          tabuSearch;
-        private int                 iterationsCompleted;
-        
-        
-        /**
-         * Constructs a <tt>NeighborhoodHelper</tt> and starts its thread.
-         * 
-         * @since 1.0
-         */
-        private NeighborhoodHelper()
-        {   super( "Neighborhood-Helper-" + (instanceNum++));
-            //start();
+        private SolverFuture( Callable<Solution> callable )
+        {   super( callable );
         }   // end constructor
         
         
-        
-        /** 
-         * Keeps running until the tabu search determines it's time to quit
-         * and free up resources.
-         */
-        public void run()
+        public boolean cancel( boolean mayInterruptIfRunning )
         {   
-            while( !dispose )
-            {
-                // If there's nothing to do, just wait.
-                if( !workToDo )
-                {
-                    synchronized( this )
-                    {   try{ this.wait(); }
-                        catch( java.lang.InterruptedException e )
-                        {   e.printStackTrace( err );
-                        }   // end catch
-                    }   // end sync
-                }   // end if: no work to do
-                
-                // Else there's work to do
-                else
-                {   
-                    synchronized( this )
-                    {   
-                        // Use the "getBestMove" method in the simpler SingleThreadedTabuSearch
-                        // class and pretend like we're just finding a "smalller" neighborhood.
-                        bestMove = SingleThreadedTabuSearch.getBestMove( 
-                            soln, 
-                            moves, 
-                            objectiveFunction, 
-                            tabuList, 
-                            aspirationCriteria, 
-                            maximizing, 
-                            chooseFirstImprovingMove,
-                            iterationsCompleted,
-                            tabuSearch );
-                        workToDo = false;
-                        
-                        this.notifyAll();
-                    }   // end sync
-                }   // end else: work to do
-            }   // end while
-            // Okay, we're dying now.
-        }   // end run
+            stopSolving();
+            return super.cancel( mayInterruptIfRunning );
+        }   // end cancel
+        
+    }   // end inner class SolverFuture
+    
+    
+    
+    
+/* ********  N E I G H B O R H O O D   T A S K   I N N E R   C L A S S  ******** */    
     
+    
+    /**
+     * Finds the best move of a range of the neighborhood, splitting the range
+     * in two halves until it is small enough to be scanned with
+     * {@link SingleThreadedTabuSearch#getBestMove getBestMove(...)}.
+     *
+     * @since 1.0c
+     */
+    protected static class NeighborhoodTask extends RecursiveTask<Object[]>
+    {
+        // The tabu search objects that the task uses.
+        private final Solution            soln;
+        private final Move[]              moves;
+        private final int                 from;
+        private final int                 to;
+        private final int                 taskSize;
+        private final ObjectiveFunction   objectiveFunction;
+        private final TabuList            tabuList;
+        private final AspirationCriteria  aspirationCriteria;
+        private final boolean             maximizing; 
+        private final boolean             chooseFirstImprovingMove;
+        private final int                 iterationsCompleted;
+        private final TabuSearch          tabuSearch;
         
-        
-        /**
-         * Returns the results of the last work that was done. 
-         * If work is still happening, then block until the work is done.
-         */
-        private synchronized Object[] getBestMove()
-        {   
-            while( workToDo )
-                synchronized( this )
-                {   try{ this.wait(); }
-                    catch( java.lang.InterruptedException e )
-                    {   e.printStackTrace( err );
-                    }   // end catch
-                }   // end sync
-                
-            return bestMove;
-        }   // end getBestMove
+        /** Set when a task found an improving, non-tabu move. */
+        private final AtomicBoolean       improvingFound;
         
         
-        /** Set the tabu objects that are to do work. */
-        private synchronized void setWork(
+        private NeighborhoodTask(
         final Solution soln, 
         final Move[] moves, 
+        final int from,
+        final int to,
+        final int taskSize,
         final ObjectiveFunction objectiveFunction, 
         final TabuList tabuList, 
         final AspirationCriteria aspirationCriteria, 
         final boolean maximizing, 
         final boolean chooseFirstImprovingMove,
+        final int iterationsCompleted,
         final TabuSearch tabuSearch,
-        final int iterationsCompleted)
-        {         
-            // Store the tabu objects
+        final AtomicBoolean improvingFound )
+        {   
             this.soln                       = soln;
             this.moves                      = moves;
+            this.from                       = from;
+            this.to                         = to;
+            this.taskSize                   = taskSize;
             this.objectiveFunction          = objectiveFunction;
             this.tabuList                   = tabuList;
             this.aspirationCriteria         = aspirationCriteria;
             this.maximizing                 = maximizing;
             this.chooseFirstImprovingMove   = chooseFirstImprovingMove;
-            this.tabuSearch                 = tabuSearch;
             this.iterationsCompleted        = iterationsCompleted;
+            this.tabuSearch                 = tabuSearch;
+            this.improvingFound             = improvingFound;
+        }   // end constructor
+        
+        
+        /**
+         * Returns the same <tt>{move, value, tabu}</tt> array as
+         * {@link SingleThreadedTabuSearch#getBestMove getBestMove(...)},
+         * or <tt>null</tt> if the range was skipped because another
+         * task already found an improving move.
+         */
+        protected Object[] compute()
+        {   
+            // Nothing left to do if we only want the first improving move.
+            if( chooseFirstImprovingMove && improvingFound.get() )
+                return null;
             
-            // Turn on the work flag
-            workToDo = true;
-            bestMove = null;
+            // Small enough: scan the range.
+            if( to - from <= taskSize )
+            {   
+                Object[] best = SingleThreadedTabuSearch.getBestMove( 
+                    soln, moves, from, to, objectiveFunction, tabuList, aspirationCriteria, 
+                    maximizing, chooseFirstImprovingMove, iterationsCompleted, tabuSearch );
+                
+                if( chooseFirstImprovingMove && !((Boolean)best[2]).booleanValue() &&
+                    isFirstBetterThanSecond( (double[])best[1], soln.getObjectiveValue(), maximizing ) )
+                    improvingFound.set( true );
+                return best;
+            }   // end if: small range
             
-            // Wake up self.
-            this.notifyAll();
+            // Else split in two halves
+            int mid = (from + to) >>> 1;
+            NeighborhoodTask first = new NeighborhoodTask( soln, moves, from, mid, taskSize, 
+                objectiveFunction, tabuList, aspirationCriteria, maximizing, 
+                chooseFirstImprovingMove, iterationsCompleted, tabuSearch, improvingFound );
+            NeighborhoodTask second = new NeighborhoodTask( soln, moves, mid, to, taskSize, 
+                objectiveFunction, tabuList, aspirationCriteria, maximizing, 
+                chooseFirstImprovingMove, iterationsCompleted, tabuSearch, improvingFound );
+            second.fork();
+            Object[] firstBest = first.compute();
+            Object[] secondBest = second.join();
             
-        }   // end setWork
+            return combine( firstBest, secondBest, maximizing );
+        }   // end compute
         
         
-        /** Mark helper for destruction. Thread will complete and die gracefully. */
-        private synchronized void dispose()
-        {   this.dispose = true;
-            this.notifyAll();
-        }   // end dispose
+        /**
+         * Chooses between the best moves of two adjacent ranges,
+         * <var>first</var> coming before <var>second</var> in the neighborhood.
+         * A non-tabu move beats a tabu one; otherwise the second move
+         * wins only if it is strictly better, just as when the moves
+         * are scanned one after the other.
+         */
+        private static Object[] combine( Object[] first, Object[] second, boolean maximizing )
+        {   
+            if( first == null )
+                return second;
+            if( second == null )
+                return first;
+            
+            boolean firstTabu = ((Boolean)first[2]).booleanValue();
+            boolean secondTabu = ((Boolean)second[2]).booleanValue();
+            if( firstTabu != secondTabu )
+                return firstTabu ? second : first;
+            
+            return isFirstBetterThanSecond( (double[])second[1], (double[])first[1], maximizing ) ?
+                second : first;
+        }   // end combine
         
-    }   // end inner class NeighborhoodHelper
+    }   // end inner class NeighborhoodTask
     
 }   // end class MultiThreadedTabuSearch
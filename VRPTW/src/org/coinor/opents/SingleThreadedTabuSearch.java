@@ -31,35 +31,39 @@ public class SingleThreadedTabuSearch extends TabuSearchBase
 {
     
     
+    /* The tabu objects and the state flags are volatile so that the solving
+     * thread can read them at every iteration without taking the lock
+     * that the synchronized setters use. */
+    
     /** Objective function. */
-    protected ObjectiveFunction objectiveFunction;
+    protected volatile ObjectiveFunction objectiveFunction;
     
     /** Move manager. */
-    protected MoveManager moveManager;
+    protected volatile MoveManager moveManager;
     
     /** Tabu list. */
-    protected TabuList tabuList;
+    protected volatile TabuList tabuList;
     
     /** Aspiration criteria. */
-    protected AspirationCriteria aspirationCriteria;
+    protected volatile AspirationCriteria aspirationCriteria;
     
     /** Current solution. */
-    protected Solution currentSolution;
+    protected volatile Solution currentSolution;
     
     /** Best solution. */
-    protected Solution bestSolution;
+    protected volatile Solution bestSolution;
     
     /** Iterations to go. */
-    protected int iterationsToGo;
+    protected volatile int iterationsToGo;
     
     /** Maximizing: true. Minimizing: false. */
-    protected boolean maximizing;
+    protected volatile boolean maximizing;
     
     /** Whether or not the the tabu search is solving. */
-    protected boolean solving;
+    protected volatile boolean solving;
     
     /** Whether or not the tabu search should keep solving if it gets a chance to quit. */
-    protected boolean keepSolving;
+    protected volatile boolean keepSolving;
     
     /** Fire new current solution event at the end of the iteration. */
     protected boolean fireNewCurrentSolution;
@@ -78,7 +82,7 @@ public class SingleThreadedTabuSearch extends TabuSearchBase
     
        
     /** Choose first improving neighbor instead of best neighbor overall. */
-    protected boolean chooseFirstImprovingMove = false;
+    protected volatile boolean chooseFirstImprovingMove = false;
     
     /** Print errors to this stream. */
     protected static java.io.PrintStream err = System.err;
@@ -180,14 +184,15 @@ public class SingleThreadedTabuSearch extends TabuSearchBase
     protected void performOneIteration() throws NoMovesGeneratedException, NoCurrentSolutionException
     {
         // Grab local copies of the problem.
-        final   TabuList                tabuList            = getTabuList();
-        final   MoveManager             moveManager         = getMoveManager();
-        final   ObjectiveFunction       objectiveFunction   = getObjectiveFunction();
-        final   AspirationCriteria      aspirationCriteria  = getAspirationCriteria();
-        final   Solution                currentSolution     = getCurrentSolution();
-                Solution                bestSolution        = getBestSolution();
-        final   boolean                 chooseFirstImproving = isChooseFirstImprovingMove();
-        final   boolean                 maximizing          = isMaximizing();
+        // The fields are volatile: no need to lock the tabu search.
+        final   TabuList                tabuList            = this.tabuList;
+        final   MoveManager             moveManager         = this.moveManager;
+        final   ObjectiveFunction       objectiveFunction   = this.objectiveFunction;
+        final   AspirationCriteria      aspirationCriteria  = this.aspirationCriteria;
+        final   Solution                currentSolution     = this.currentSolution;
+                Solution                bestSolution        = this.bestSolution;
+        final   boolean                 chooseFirstImproving = this.chooseFirstImprovingMove;
+        final   boolean                 maximizing          = this.maximizing;
           
         // Check for null solutions
         if( currentSolution == null )
@@ -305,7 +310,7 @@ public class SingleThreadedTabuSearch extends TabuSearchBase
     
     /**
      * The static method that actually does the work. It's static so that
-     * the NeighborhoodHelper in the MultiThreadedTabuSearch can
+     * the neighborhood tasks in the MultiThreadedTabuSearch can
      * use the same code.
      *
      * @since 1.0
@@ -320,17 +325,53 @@ public class SingleThreadedTabuSearch extends TabuSearchBase
     final boolean chooseFirstImprovingMove,
     final int iteration,
     final TabuSearch This )
+    {
+        return getBestMove( soln, moves, 0, moves.length, objectiveFunction, tabuList,
+                            aspirationCriteria, maximizing, chooseFirstImprovingMove, iteration, This );
+    }   // end getBestMove
+    
+    
+    /**
+     * Finds the best move among <tt>moves[from]</tt> (inclusive) and
+     * <tt>moves[to]</tt> (exclusive). Working on a range of the shared array
+     * lets the MultiThreadedTabuSearch split the neighborhood without
+     * copying it.
+     * <P>
+     * Among non-tabu moves the first one with the best value wins; a tabu
+     * move is returned only if every move of the range is tabu.
+     *
+     * @since 1.0c
+     */
+    protected static Object[] getBestMove( 
+    final Solution soln, 
+    final Move[] moves, 
+    final int from,
+    final int to,
+    final ObjectiveFunction objectiveFunction, 
+    final TabuList tabuList, 
+    final AspirationCriteria aspirationCriteria, 
+    final boolean maximizing, 
+    final boolean chooseFirstImprovingMove,
+    final int iteration,
+    final TabuSearch This )
     {
         // Set up variables
-        Move bestMove = moves[0];
+        Move bestMove = moves[from];
         double[] bestMoveVal = {};
         boolean bestMoveTabu = false;
         
+        // v1.0c: A BufferedObjectiveFunction writes into two arrays that are
+        // swapped when a better move is found, so nothing is allocated per move.
+        final BufferedObjectiveFunction bufferedFunction = objectiveFunction instanceof BufferedObjectiveFunction
+            ? (BufferedObjectiveFunction)objectiveFunction
+            : null;
+        double[] newObjVal = null;
+        
         // Set up first move
         bestMoveVal = objectiveFunction.evaluate( soln, bestMove );
-        bestMoveTabu = moves.length == 0 ?
-            false : // Don't bother calling the tabu list if there's only one move.
-            isTabu( soln, bestMove, bestMoveVal, tabuList, aspirationCriteria, iteration, This );
+        bestMoveTabu = isTabu( soln, bestMove, bestMoveVal, tabuList, aspirationCriteria, iteration, This );
+        if( bufferedFunction != null )
+            newObjVal = new double[ bestMoveVal.length ];
         
         // If we only want to choose the first improving move,
         // we'll need to know the current solutin's value.
@@ -342,59 +383,58 @@ public class SingleThreadedTabuSearch extends TabuSearchBase
         {   
             currSolnVal = soln.getObjectiveValue();
             if( !bestMoveTabu && isFirstBetterThanSecond( bestMoveVal, currSolnVal, maximizing ) )
-                return new Object[]{ bestMove, bestMoveVal, new Boolean( bestMoveTabu) };
+                return new Object[]{ bestMove, bestMoveVal, Boolean.valueOf( bestMoveTabu ) };
         }   // end if: choose first improving
     
-        // Go through each move
-        final int movesLen = moves.length;
-        for( int i = 1; i < movesLen; i++ )
-        {            
-            // Now go through the rest and see if there's a better one.
-            for( i = 1; i < moves.length; i++ )
-            {
-                Move move = moves[i];
+        // Now go through the rest and see if there's a better one.
+        for( int i = from + 1; i < to; i++ )
+        {
+            Move move = moves[i];
 
-                // Since the tabu status has not yet been determined, do the
-                // objective value comparisons first. Reasoning: comparing a handful
-                // of doubles is likely to be faster than whatever kind of tabu
-                // list the user has set up.
-                double[] newObjVal = objectiveFunction.evaluate( soln, move );
-                if( isFirstBetterThanSecond( newObjVal, bestMoveVal, maximizing ) )
-                {   
-                    // New one has a better objective value.
-                    // Check the tabu status of both.
-                    // Do not switch over only if the new one is tabu, but the old one isn't.
-                    boolean newIsTabu = isTabu( soln, move, newObjVal, tabuList, 
-                    		aspirationCriteria, 
-                    		iteration, This );
-                    
-                    if( !(!bestMoveTabu && newIsTabu) )
-                    {   bestMove = move;
-                        bestMoveVal = newObjVal;
-                        bestMoveTabu = newIsTabu;
-                        
-                        // If choosing first improving move, consider this one
-                        if( chooseFirstImprovingMove )
-                            if( !bestMoveTabu && isFirstBetterThanSecond( bestMoveVal, currSolnVal, maximizing ) )
-                                return new Object[]{ bestMove, bestMoveVal, new Boolean( bestMoveTabu) };
+            // Since the tabu status has not yet been determined, do the
+            // objective value comparisons first. Reasoning: comparing a handful
+            // of doubles is likely to be faster than whatever kind of tabu
+            // list the user has set up.
+            if( bufferedFunction != null )
+                bufferedFunction.evaluate( soln, move, newObjVal );
+            else newObjVal = objectiveFunction.evaluate( soln, move );
+            if( isFirstBetterThanSecond( newObjVal, bestMoveVal, maximizing ) )
+            {   
+                // New one has a better objective value.
+                // Check the tabu status of both.
+                // Do not switch over only if the new one is tabu, but the old one isn't.
+                boolean newIsTabu = isTabu( soln, move, newObjVal, tabuList, 
+                		aspirationCriteria, 
+                		iteration, This );
                 
-                    }   // end if: switch over
-                }   // end if: new one has better objective value
-                else
-                {   // New one does not have better objective value, but see if it
-                    // has a better tabu status.
-                    //boolean newIsTabu;
-                    if( bestMoveTabu && !isTabu( soln, move, newObjVal, tabuList, aspirationCriteria, iteration, This ) )
-                    {   bestMove = move;
-                        bestMoveVal = newObjVal;
-                        bestMoveTabu = false;
-                    }   // end if: old was tabu, new one isn't.
-                }   // end else: new one does not have better objective value
-            }   // end for: through remaining moves
+                if( !(!bestMoveTabu && newIsTabu) )
+                {   bestMove = move;
+                    double[] swap = bestMoveVal;
+                    bestMoveVal = newObjVal;
+                    newObjVal = swap;
+                    bestMoveTabu = newIsTabu;
+                    
+                    // If choosing first improving move, consider this one
+                    if( chooseFirstImprovingMove )
+                        if( !bestMoveTabu && isFirstBetterThanSecond( bestMoveVal, currSolnVal, maximizing ) )
+                            return new Object[]{ bestMove, bestMoveVal, Boolean.valueOf( bestMoveTabu ) };
             
-        }   // end for: through each move
+                }   // end if: switch over
+            }   // end if: new one has better objective value
+            else
+            {   // New one does not have better objective value, but see if it
+                // has a better tabu status.
+                if( bestMoveTabu && !isTabu( soln, move, newObjVal, tabuList, aspirationCriteria, iteration, This ) )
+                {   bestMove = move;
+                    double[] swap = bestMoveVal;
+                    bestMoveVal = newObjVal;
+                    newObjVal = swap;
+                    bestMoveTabu = false;
+                }   // end if: old was tabu, new one isn't.
+            }   // end else: new one does not have better objective value
+        }   // end for: through remaining moves
         
-        return new Object[]{ bestMove, bestMoveVal, new Boolean( bestMoveTabu) };
+        return new Object[]{ bestMove, bestMoveVal, Boolean.valueOf( bestMoveTabu ) };
     }   // end getBestMove
     
     
@@ -806,7 +846,7 @@ public class SingleThreadedTabuSearch extends TabuSearchBase
      *
      * @since 1.0
      */
-    public synchronized void stopSolving()
+    public void stopSolving()
     {   setKeepSolving( false );
     }   // end stopSolving
     
@@ -816,7 +856,7 @@ public class SingleThreadedTabuSearch extends TabuSearchBase
      *
      * @since 1.0
      */
-    public synchronized boolean isSolving()
+    public boolean isSolving()
     {   return solving;
     }   // end isSolving
     
@@ -1056,7 +1096,7 @@ public class SingleThreadedTabuSearch extends TabuSearchBase
      * @return The number of iterations left for the tabu search to execute.
      * @since 1.0
      */
-    public synchronized int getIterationsToGo()
+    public int getIterationsToGo()
     {   return iterationsToGo;
     }   // end getIterationsToGo
     
@@ -71,7 +71,7 @@ public abstract class TabuSearchBase implements TabuSearch
 
      */
 
-    private int iterationsCompleted;
+    private volatile int iterationsCompleted;
 
     
 
@@ -123,6 +123,30 @@ public abstract class TabuSearchBase implements TabuSearch
 
     
 
+    /**
+
+     * Sets the number of iterations completed, used to resume
+
+     * a search from a checkpoint before it starts solving.
+
+     *
+
+     * @param iterationsCompleted the iterations completed
+
+     * @since 1.0c
+
+     */
+
+    public void setIterationsCompleted( int iterationsCompleted )
+
+    {   this.iterationsCompleted = iterationsCompleted;
+
+    }   // end setIterationsCompleted
+
+    
+
+    
+
 /* ********  E V E N T   C O D E  ******** */
 
 
@@ -163,6 +187,10 @@ public abstract class TabuSearchBase implements TabuSearch
 
      * faster to access and iterate through than other objects.
 
+     * The array is never modified, only replaced, so the events are
+
+     * fired without locking the tabu search.
+
      * 
 
      * @see TabuSearchListener
@@ -171,7 +199,7 @@ public abstract class TabuSearchBase implements TabuSearch
 
      */
 
-    private TabuSearchListener[] tabuSearchListenerList = {};
+    private volatile TabuSearchListener[] tabuSearchListenerList = {};
 
     
 
@@ -323,13 +351,15 @@ public abstract class TabuSearchBase implements TabuSearch
 
      */
 
-    protected synchronized final void fireNewBestSolution()
+    protected final void fireNewBestSolution()
+
+    {   final TabuSearchListener[] list = tabuSearchListenerList;
 
-    {   int len = tabuSearchListenerList.length;
+        int len = list.length;
 
         for( int i = 0; i < len; i++ )
 
-            tabuSearchListenerList[i].newBestSolutionFound( tabuEvent );
+            list[i].newBestSolutionFound( tabuEvent );
 
     }   // end fireNewBestSolution
 
@@ -355,13 +385,15 @@ public abstract class TabuSearchBase implements TabuSearch
 
      */
 
-    protected synchronized final void fireNewCurrentSolution()
+    protected final void fireNewCurrentSolution()
+
+    {   final TabuSearchListener[] list = tabuSearchListenerList;
 
-    {   int len = tabuSearchListenerList.length;
+        int len = list.length;
 
         for( int i = 0; i < len; i++ )
 
-            tabuSearchListenerList[i].newCurrentSolutionFound( tabuEvent );
+            list[i].newCurrentSolutionFound( tabuEvent );
 
     }   // end fireNewCurrentSolution
 
@@ -387,13 +419,15 @@ public abstract class TabuSearchBase implements TabuSearch
 
      */
 
-    protected synchronized final void fireUnimprovingMoveMade()
+    protected final void fireUnimprovingMoveMade()
 
-    {   int len = tabuSearchListenerList.length;
+    {   final TabuSearchListener[] list = tabuSearchListenerList;
+
+        int len = list.length;
 
         for( int i = 0; i < len; i++ )
 
-            tabuSearchListenerList[i].unimprovingMoveMade( tabuEvent );
+            list[i].unimprovingMoveMade( tabuEvent );
 
     }   // end fireUnimprovingMoveMade
 
@@ -408,11 +442,12 @@ public abstract class TabuSearchBase implements TabuSearch
      * @see TabuSearchEvent
      * @since 1.0-exp7
      */
-    protected synchronized final void fireImprovingMoveMade()
+    protected final void fireImprovingMoveMade()
     {   
-        int len = tabuSearchListenerList.length;
+        final TabuSearchListener[] list = tabuSearchListenerList;
+        int len = list.length;
         for( int i = 0; i < len; i++ )
-            tabuSearchListenerList[i].improvingMoveMade( tabuEvent );
+            list[i].improvingMoveMade( tabuEvent );
     }   // end fireImprovingMoveMade
 
 
@@ -427,11 +462,12 @@ public abstract class TabuSearchBase implements TabuSearch
      * @see TabuSearchEvent
      * @since 1.0-exp7
      */
-    protected synchronized final void fireNoChangeInValueMoveMade()
+    protected final void fireNoChangeInValueMoveMade()
     {   
-        int len = tabuSearchListenerList.length;
+        final TabuSearchListener[] list = tabuSearchListenerList;
+        int len = list.length;
         for( int i = 0; i < len; i++ )
-            tabuSearchListenerList[i].noChangeInValueMoveMade( tabuEvent );
+            list[i].noChangeInValueMoveMade( tabuEvent );
     }   // end fireNoChangeInValueMoveMade
 
 
@@ -453,13 +489,15 @@ public abstract class TabuSearchBase implements TabuSearch
 
      */
 
-    protected synchronized final void fireTabuSearchStopped()
+    protected final void fireTabuSearchStopped()
+
+    {   final TabuSearchListener[] list = tabuSearchListenerList;
 
-    {   int len = tabuSearchListenerList.length;
+        int len = list.length;
 
         for( int i = 0; i < len; i++ )
 
-            tabuSearchListenerList[i].tabuSearchStopped( tabuEvent );
+            list[i].tabuSearchStopped( tabuEvent );
 
     }   // end fireTabuSearchStopped
 
@@ -485,13 +523,15 @@ public abstract class TabuSearchBase implements TabuSearch
 
      */
 
-    protected synchronized final void fireTabuSearchStarted()
+    protected final void fireTabuSearchStarted()
+
+    {   final TabuSearchListener[] list = tabuSearchListenerList;
 
-    {   int len = tabuSearchListenerList.length;
+        int len = list.length;
 
         for( int i = 0; i < len; i++ )
 
-            tabuSearchListenerList[i].tabuSearchStarted( tabuEvent );
+            list[i].tabuSearchStarted( tabuEvent );
 
     }   // end fireTabuSearchStarted
 